@@ -11,6 +11,39 @@ ALTER TABLE notes ADD COLUMN IF NOT EXISTS pinned BOOLEAN DEFAULT FALSE;
 DROP INDEX IF EXISTS idx_user_created;
 CREATE INDEX idx_user_pinned_created ON notes(user_id, pinned DESC, created_at DESC);
 
+-- add index for time-window queries (recently edited notes)
+CREATE INDEX IF NOT EXISTS idx_user_updated ON notes(user_id, updated_at DESC);
+
+-- add SimHash column (64-bit content fingerprint for duplicate detection)
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS simhash BIGINT;
+
+-- add style fingerprint column (encoded StyleFingerprint for thought similarity)
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS style_fingerprint VARBINARY(128);
+
+-- add table for AI-extracted keywords (versioned by the note's updated_at)
+CREATE TABLE IF NOT EXISTS note_keywords (
+    note_id VARCHAR(36) PRIMARY KEY,
+    keywords VARCHAR(1000) NOT NULL,
+    note_updated_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
+
+-- add table for keyword Bloom sketches (versioned by the note's updated_at)
+CREATE TABLE IF NOT EXISTS note_sketches (
+    note_id VARCHAR(36) PRIMARY KEY,
+    keyword_bloom VARBINARY(128) NOT NULL,
+    note_updated_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
+
+-- add table for topic cluster assignments (versioned by the note's updated_at)
+CREATE TABLE IF NOT EXISTS note_clusters (
+    note_id VARCHAR(36) PRIMARY KEY,
+    cluster_id INT NOT NULL,
+    note_updated_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
+
 /*
 CREATE TABLE IF NOT EXISTS notes (
     id VARCHAR(36) PRIMARY KEY,
@@ -23,7 +56,10 @@ CREATE TABLE IF NOT EXISTS notes (
     done BOOLEAN DEFAULT FALSE,
     tags VARCHAR(500) DEFAULT '',
     pinned BOOLEAN DEFAULT FALSE,
+    simhash BIGINT,
+    style_fingerprint VARBINARY(128),
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-    INDEX idx_user_pinned_created (user_id, pinned DESC, created_at DESC)
+    INDEX idx_user_pinned_created (user_id, pinned DESC, created_at DESC),
+    INDEX idx_user_updated (user_id, updated_at DESC)
 );
 */
@@ -19,7 +19,36 @@ CREATE TABLE IF NOT EXISTS notes (
     done BOOLEAN DEFAULT FALSE,
     tags VARCHAR(500) DEFAULT '',
     pinned BOOLEAN DEFAULT FALSE,
+    simhash BIGINT,
+    style_fingerprint VARBINARY(128),
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
 CREATE INDEX IF NOT EXISTS idx_user_pinned_created ON notes(user_id, pinned DESC, created_at DESC);
+
+-- Time-window queries (recently edited notes)
+CREATE INDEX IF NOT EXISTS idx_user_updated ON notes(user_id, updated_at DESC);
+
+-- AI-extracted keywords per note, versioned by the note's updated_at
+CREATE TABLE IF NOT EXISTS note_keywords (
+    note_id VARCHAR(36) PRIMARY KEY,
+    keywords VARCHAR(1000) NOT NULL,
+    note_updated_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
+
+-- Keyword Bloom sketches per note, versioned by the note's updated_at
+CREATE TABLE IF NOT EXISTS note_sketches (
+    note_id VARCHAR(36) PRIMARY KEY,
+    keyword_bloom VARBINARY(128) NOT NULL,
+    note_updated_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
+
+-- Topic cluster assignment per note, versioned by the note's updated_at
+CREATE TABLE IF NOT EXISTS note_clusters (
+    note_id VARCHAR(36) PRIMARY KEY,
+    cluster_id INT NOT NULL,
+    note_updated_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
@@ -0,0 +1,103 @@
+package com.notesmith.ai;
+
+import com.notesmith.util.Logger;
+
+/**
+ * Circuit breaker guarding the Gemini API.
+ *
+ * CLOSED    - requests flow normally; consecutive failures are counted
+ * OPEN      - requests are rejected immediately until the cooldown expires
+ * HALF_OPEN - a single trial request is let through to probe recovery
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * Check whether a request may be sent right now.
+     * In HALF_OPEN state only the first caller gets through.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt >= openDurationMillis) {
+                    state = State.HALF_OPEN;
+                    trialInFlight = true;
+                    logger.info("Circuit half-open, sending trial request");
+                    return true;
+                }
+                return false;
+            case HALF_OPEN:
+            default:
+                if (!trialInFlight) {
+                    trialInFlight = true;
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Non-consuming health check, used to decide whether to fall back before building a request.
+     */
+    public synchronized boolean isAvailable() {
+        if (state == State.OPEN) {
+            return System.currentTimeMillis() - openedAt >= openDurationMillis;
+        }
+        return state == State.CLOSED || !trialInFlight;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Circuit closed, AI service recovered");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                logger.warn("Circuit opened after " + consecutiveFailures + " consecutive failures");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Release a HALF_OPEN trial slot that ended without a verdict (e.g. cancelled).
+     */
+    public synchronized void recordIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -1,6 +1,7 @@
 package com.notesmith.ai;
 
 import com.notesmith.ai.models.AIResponse;
+import com.notesmith.config.AppConfig;
 import com.notesmith.model.Note;
 import com.notesmith.util.Logger;
 
@@ -9,14 +10,24 @@ import java.util.List;
 
 /**
  * Service for analyzing note content and suggesting tags.
+ * Tags come from the local TagSuggester when it has any; Gemini is only
+ * asked when the user's own tagging offers no evidence yet.
  */
 public class ContentAnalyzer {
     
     private static final Logger logger = Logger.getLogger(ContentAnalyzer.class);
+    private static final int MAX_TAGS = 5;
+    private static final int MAX_PARTIAL_TAGS = 3;
     private final GeminiClient client;
+    private final TagSuggester tagSuggester; // null = always ask Gemini
     
     public ContentAnalyzer() {
+        this(null);
+    }
+    
+    public ContentAnalyzer(TagSuggester tagSuggester) {
         this.client = new GeminiClient();
+        this.tagSuggester = tagSuggester;
     }
     
     /**
@@ -25,12 +36,26 @@ public class ContentAnalyzer {
     public List<String> suggestTags(Note note) {
         logger.info("Suggesting tags for: " + note.getTitle());
         
+        if (tagSuggester != null) {
+            List<String> local = tagSuggester.suggest(note, MAX_TAGS);
+            if (!local.isEmpty() || !AppConfig.isAIEnabled()) {
+                logger.info("Suggested " + local.size() + " tags from local tag statistics");
+                return local;
+            }
+        }
+        
         // Use mock mode if no API key configured
-        if (MockAIService.shouldUseMockMode(com.notesmith.config.AppConfig.getGeminiApiKey())) {
+        if (MockAIService.shouldUseMockMode(AppConfig.getGeminiApiKey())) {
             logger.info("Using mock AI for tags (no API key configured)");
             return MockAIService.generateMockTags(note);
         }
         
+        // Short-circuit while the API is unhealthy
+        if (!client.isAvailable()) {
+            logger.warn("AI service unavailable, using mock tags");
+            return MockAIService.generateMockTags(note);
+        }
+        
         String prompt = String.format(
             "Based on this note content, suggest 3-5 relevant tags. " +
             "Return ONLY the tags as a comma-separated list, nothing else.\n\n" +
@@ -59,6 +84,9 @@ public class ContentAnalyzer {
             logger.info("Suggested " + tags.size() + " tags");
         } else {
             logger.error("Failed to suggest tags: " + response.getError());
+            if (!client.isAvailable()) {
+                return MockAIService.generateMockTags(note);
+            }
         }
         
         return tags;
@@ -68,6 +96,13 @@ public class ContentAnalyzer {
      * Suggest tags based on partial content (as user types).
      */
     public List<String> suggestTagsFromPartialContent(String title, String content) {
+        if (tagSuggester != null) {
+            List<String> local = tagSuggester.suggest(title, content, List.of(), MAX_PARTIAL_TAGS);
+            if (!local.isEmpty() || !AppConfig.isAIEnabled()) {
+                return local;
+            }
+        }
+        
         if (content.length() < 50) {
             return new ArrayList<>(); // Too short to analyze
         }
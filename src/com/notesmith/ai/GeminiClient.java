@@ -6,108 +6,290 @@ import com.notesmith.config.AppConfig;
 import com.notesmith.util.Logger;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * HTTP client for Google Gemini API.
+ *
+ * All instances share one rate limiter and one circuit breaker, so the
+ * quota is respected no matter how many services or background jobs
+ * are calling the API concurrently. Identical requests that are already
+ * in flight are coalesced into a single API call.
  */
 public class GeminiClient {
-    
+
     private static final Logger logger = Logger.getLogger(GeminiClient.class);
     private static final String API_BASE_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
-    
+
+    // Shared across every client instance - the quota is per API key, not per service
+    private static final RateLimiter rateLimiter = new RateLimiter(
+        AppConfig.getAIRequestsPerMinute(),
+        AppConfig.getAITokensPerMinute()
+    );
+    private static final CircuitBreaker circuitBreaker = new CircuitBreaker(
+        AppConfig.getAICircuitFailureThreshold(),
+        AppConfig.getAICircuitOpenMs()
+    );
+    private static final RequestCoalescer<String, AIResponse> inFlightRequests =
+        new RequestCoalescer<>("gemini-request");
+
     private final String apiKey;
     private final String model;
-    
+
     public GeminiClient() {
         this.apiKey = AppConfig.getGeminiApiKey();
         this.model = AppConfig.getGeminiModel();
-        
+
         if (apiKey == null || apiKey.isEmpty()) {
             logger.warn("Gemini API key not configured");
         }
     }
-    
+
     /**
      * Send a prompt to Gemini and get response.
      */
     public AIResponse generateContent(String prompt) {
         return generateContent(new AIRequest(prompt));
     }
-    
+
     /**
      * Send a request to Gemini API.
+     * Rate limited, retried with jittered exponential backoff on 429/5xx,
+     * and short-circuited while the API is unhealthy.
      */
     public AIResponse generateContent(AIRequest request) {
         if (!AppConfig.isAIEnabled()) {
             return new AIResponse("AI features are disabled", true);
         }
-        
+
         if (apiKey == null || apiKey.isEmpty()) {
             return new AIResponse("Gemini API key not configured. Please add it to config.properties", true);
         }
-        
+
+        try {
+            return inFlightRequests.execute(cacheKey(request), () -> sendWithRetry(request));
+        } catch (InterruptedException e) {
+            // Caller moved on (e.g. user selected another note)
+            Thread.currentThread().interrupt();
+            return new AIResponse("Request cancelled", true);
+        } catch (ExecutionException e) {
+            logger.error("Failed to call Gemini API", e.getCause());
+            return new AIResponse("Failed to connect to AI service: " + e.getCause().getMessage(), true);
+        }
+    }
+
+    /**
+     * Send a request, retrying transient failures.
+     */
+    private AIResponse sendWithRetry(AIRequest request) {
+        int maxAttempts = Math.max(1, AppConfig.getAIRetryMaxAttempts());
+        int estimatedTokens = estimateTokens(request);
+        AIResponse lastResponse = null;
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                logger.warn("Circuit open, skipping Gemini API call");
+                return new AIResponse("AI service temporarily unavailable", true);
+            }
+
+            try {
+                if (!rateLimiter.acquire(estimatedTokens, AppConfig.getAIRateWaitTimeoutMs())) {
+                    circuitBreaker.recordIgnored();
+                    return new AIResponse("Rate limit reached, please try again shortly", true);
+                }
+            } catch (InterruptedException e) {
+                circuitBreaker.recordIgnored();
+                Thread.currentThread().interrupt();
+                return new AIResponse("Request cancelled", true);
+            }
+
+            CallResult result = execute(request);
+            lastResponse = result.response;
+
+            if (result.response.isSuccess()) {
+                circuitBreaker.recordSuccess();
+                return result.response;
+            }
+
+            if (!result.retryable) {
+                // Client errors (bad key, bad request) say nothing about API health
+                circuitBreaker.recordIgnored();
+                return result.response;
+            }
+
+            circuitBreaker.recordFailure();
+
+            if (attempt == maxAttempts) {
+                break;
+            }
+
+            if (result.retryAfterMillis > AppConfig.getAIRateWaitTimeoutMs()) {
+                // Retrying sooner would only hit the same 429; give up instead of blocking this long
+                logger.warn("Gemini asked to retry after " + result.retryAfterMillis + " ms, not retrying");
+                break;
+            }
+            long delay = backoffDelay(attempt, result.retryAfterMillis);
+            logger.warn("Gemini call failed (attempt " + attempt + "/" + maxAttempts +
+                        "), retrying in " + delay + " ms");
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new AIResponse("Request cancelled", true);
+            }
+        }
+
+        return lastResponse;
+    }
+
+    /**
+     * Whether the API is currently considered healthy.
+     * Callers use this to fall back to local/mock results instead of waiting on a dead endpoint.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isAvailable();
+    }
+
+    /**
+     * Perform a single HTTP round trip.
+     */
+    private CallResult execute(AIRequest request) {
         try {
             String endpoint = API_BASE_URL + model + ":generateContent?key=" + apiKey;
             URL url = new URL(endpoint);
-            
+
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("POST");
             conn.setRequestProperty("Content-Type", "application/json");
             conn.setDoOutput(true);
             conn.setConnectTimeout(10000); // 10 seconds
             conn.setReadTimeout(30000); // 30 seconds
-            
+
             // Send request
             String jsonRequest = request.toJson();
             logger.info("Sending request to Gemini API");
-            
+
             try (OutputStream os = conn.getOutputStream()) {
                 byte[] input = jsonRequest.getBytes(StandardCharsets.UTF_8);
                 os.write(input, 0, input.length);
             }
-            
+
             // Read response
             int responseCode = conn.getResponseCode();
-            
+
             if (responseCode == 200) {
-                StringBuilder response = new StringBuilder();
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        response.append(line);
-                    }
-                }
-                
+                String response = readBody(conn.getInputStream());
                 logger.info("Received response from Gemini API");
-                return AIResponse.fromJson(response.toString());
-                
-            } else {
-                // Read error response
-                StringBuilder error = new StringBuilder();
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        error.append(line);
-                    }
-                }
-                
-                logger.error("Gemini API error: " + responseCode + " - " + error.toString());
-                return new AIResponse("API Error: " + responseCode + " - " + error.toString(), true);
+                return new CallResult(AIResponse.fromJson(response), false, -1);
             }
-            
+
+            // Read error response
+            String error = readBody(conn.getErrorStream());
+            logger.error("Gemini API error: " + responseCode + " - " + error);
+
+            boolean retryable = responseCode == 429 || responseCode >= 500;
+            long retryAfter = parseRetryAfter(conn.getHeaderField("Retry-After"));
+            return new CallResult(
+                new AIResponse("API Error: " + responseCode + " - " + error, true),
+                retryable,
+                retryAfter
+            );
+
+        } catch (IOException e) {
+            // Timeouts and connection resets are transient
+            logger.error("Failed to call Gemini API", e);
+            return new CallResult(
+                new AIResponse("Failed to connect to AI service: " + e.getMessage(), true),
+                true,
+                -1
+            );
         } catch (Exception e) {
             logger.error("Failed to call Gemini API", e);
-            return new AIResponse("Failed to connect to AI service: " + e.getMessage(), true);
+            return new CallResult(
+                new AIResponse("Failed to connect to AI service: " + e.getMessage(), true),
+                false,
+                -1
+            );
+        }
+    }
+
+    private String readBody(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                body.append(line);
+            }
+        }
+        return body.toString();
+    }
+
+    /**
+     * Full-jitter exponential backoff. A server-provided Retry-After wins if it
+     * is longer, even beyond the configured cap, which only bounds our own backoff.
+     */
+    private long backoffDelay(int attempt, long retryAfterMillis) {
+        long base = AppConfig.getAIRetryBaseDelayMs();
+        long cap = AppConfig.getAIRetryMaxDelayMs();
+        long exponential = Math.min(cap, base << Math.min(attempt - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(exponential + 1);
+
+        if (retryAfterMillis > 0) {
+            return Math.max(retryAfterMillis, jittered);
+        }
+        return Math.max(1, jittered);
+    }
+
+    /**
+     * Retry-After is either delta-seconds or an HTTP-date.
+     */
+    private long parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return -1;
+        }
+        String value = header.trim();
+        try {
+            return Long.parseLong(value) * 1000;
+        } catch (NumberFormatException ignored) {
+            // Not a number, try HTTP-date
         }
+        try {
+            ZonedDateTime when = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(when.getZone()), when).toMillis());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Requests with the same model, prompt and generation settings are interchangeable.
+     */
+    private String cacheKey(AIRequest request) {
+        return model + "|" + request.getMaxTokens() + "|" + request.getTemperature() + "|" + request.getPrompt();
     }
-    
+
+    /**
+     * Rough token estimate (~4 chars per token) plus the output budget.
+     */
+    private int estimateTokens(AIRequest request) {
+        return request.getPrompt().length() / 4 + request.getMaxTokens();
+    }
+
     /**
      * Test API connectivity.
      */
@@ -115,4 +297,19 @@ public class GeminiClient {
         AIResponse response = generateContent("Hello, respond with 'OK' if you can read this.");
         return response.isSuccess();
     }
+
+    /**
+     * Outcome of one HTTP attempt.
+     */
+    private static class CallResult {
+        final AIResponse response;
+        final boolean retryable;
+        final long retryAfterMillis;
+
+        CallResult(AIResponse response, boolean retryable, long retryAfterMillis) {
+            this.response = response;
+            this.retryable = retryable;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+    }
 }
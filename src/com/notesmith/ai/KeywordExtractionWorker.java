@@ -0,0 +1,55 @@
+package com.notesmith.ai;
+
+import com.notesmith.model.Note;
+import com.notesmith.util.Logger;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Background worker that lazily extracts AI keywords for notes.
+ * Runs on a single low-priority thread so it never competes with itself
+ * for the API quota; duplicate requests for the same note are dropped.
+ */
+public class KeywordExtractionWorker {
+
+    private static final Logger logger = Logger.getLogger(KeywordExtractionWorker.class);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "keyword-extractor");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Consumer<Note> task;
+
+    public KeywordExtractionWorker(Consumer<Note> task) {
+        this.task = task;
+    }
+
+    /**
+     * Schedule extraction for a note unless it is already queued.
+     */
+    public void enqueue(Note note) {
+        if (!pending.add(note.getId())) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                task.accept(note);
+            } catch (RuntimeException e) {
+                logger.error("Keyword extraction failed for note: " + note.getId(), e);
+            } finally {
+                pending.remove(note.getId());
+            }
+        });
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
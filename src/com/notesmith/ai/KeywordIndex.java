@@ -0,0 +1,93 @@
+package com.notesmith.ai;
+
+import com.notesmith.model.Note;
+import com.notesmith.model.NoteKeywords;
+
+import java.util.*;
+
+/**
+ * In-memory inverted index of AI-extracted keywords.
+ * Maps each keyword to the notes it was extracted from, so related notes
+ * can be found by keyword-set intersection instead of scanning note text.
+ */
+public class KeywordIndex {
+
+    private final Map<String, NoteKeywords> byNote = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    /**
+     * Add or replace the keywords for a note.
+     */
+    public synchronized void put(NoteKeywords keywords) {
+        remove(keywords.getNoteId());
+        byNote.put(keywords.getNoteId(), keywords);
+        for (String keyword : keywords.getKeywords()) {
+            postings.computeIfAbsent(keyword, k -> new HashSet<>()).add(keywords.getNoteId());
+        }
+    }
+
+    public synchronized void remove(String noteId) {
+        NoteKeywords old = byNote.remove(noteId);
+        if (old == null) {
+            return;
+        }
+        for (String keyword : old.getKeywords()) {
+            Set<String> ids = postings.get(keyword);
+            if (ids != null) {
+                ids.remove(noteId);
+                if (ids.isEmpty()) {
+                    postings.remove(keyword);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keywords for the note, or null if missing or extracted from an older version.
+     */
+    public synchronized NoteKeywords getCurrent(Note note) {
+        NoteKeywords keywords = byNote.get(note.getId());
+        return (keywords != null && keywords.isCurrentFor(note)) ? keywords : null;
+    }
+
+    /**
+     * Count, per note, how many of the given keywords it shares.
+     */
+    public synchronized Map<String, Integer> countSharedKeywords(Collection<String> keywords) {
+        Map<String, Integer> shared = new HashMap<>();
+        for (String keyword : keywords) {
+            Set<String> ids = postings.get(keyword);
+            if (ids != null) {
+                for (String id : ids) {
+                    shared.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Normalize a comma-separated AI response into a clean keyword list.
+     * Keywords past what note_keywords.keywords can hold are dropped, so the
+     * index and the stored row agree.
+     */
+    public static List<String> parseKeywords(String text) {
+        List<String> keywords = new ArrayList<>();
+        if (text == null) {
+            return keywords;
+        }
+        int length = 0;
+        for (String part : text.split(",")) {
+            String keyword = part.trim().toLowerCase();
+            if (!keyword.isEmpty() && !keywords.contains(keyword)) {
+                int joined = length + (keywords.isEmpty() ? 0 : 1) + keyword.length();
+                if (joined > NoteKeywords.MAX_STORED_LENGTH) {
+                    break;
+                }
+                keywords.add(keyword);
+                length = joined;
+            }
+        }
+        return keywords;
+    }
+}
@@ -0,0 +1,191 @@
+package com.notesmith.ai;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton for matching many keywords in a single pass.
+ *
+ * Compiled once per query, then each candidate text is scanned exactly once,
+ * case-insensitively, without lowercasing or concatenating strings.
+ * Cost is linear in text length regardless of how many keywords there are.
+ */
+public class KeywordMatcher {
+
+    private final List<String> keywords;
+
+    // Trie edges per state: sorted labels and matching target states
+    private char[][] edgeLabels;
+    private int[][] edgeTargets;
+    private int[] fail;
+    // Keyword ending exactly at a state (-1 if none), and the next state on the
+    // fail chain that ends a keyword (-1 if none)
+    private int[] terminal;
+    private int[] outputLink;
+
+    public KeywordMatcher(List<String> keywords) {
+        this.keywords = keywords;
+        build();
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public int size() {
+        return keywords.size();
+    }
+
+    /**
+     * Count occurrences of every keyword across the given text parts.
+     * Parts are treated as if joined by a single space, like "title content".
+     */
+    public int[] countMatches(CharSequence... parts) {
+        int[] counts = new int[keywords.size()];
+        int state = 0;
+        for (int p = 0; p < parts.length; p++) {
+            if (p > 0) {
+                state = step(state, ' ', counts);
+            }
+            CharSequence text = parts[p];
+            if (text == null) {
+                continue;
+            }
+            for (int i = 0, n = text.length(); i < n; i++) {
+                state = step(state, Character.toLowerCase(text.charAt(i)), counts);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Whether any keyword occurs in the text.
+     */
+    public boolean matchesAny(CharSequence text) {
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            if (terminal[state] >= 0 || outputLink[state] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int step(int state, char c, int[] counts) {
+        state = next(state, c);
+        if (terminal[state] >= 0) {
+            counts[terminal[state]]++;
+        }
+        for (int s = outputLink[state]; s >= 0; s = outputLink[s]) {
+            counts[terminal[s]]++;
+        }
+        return state;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int target = edge(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int edge(int state, char c) {
+        int idx = Arrays.binarySearch(edgeLabels[state], c);
+        return idx >= 0 ? edgeTargets[state][idx] : -1;
+    }
+
+    // ===== Construction =====
+
+    private void build() {
+        int maxStates = 1;
+        for (String keyword : keywords) {
+            maxStates += keyword.length();
+        }
+
+        edgeLabels = new char[maxStates][];
+        edgeTargets = new int[maxStates][];
+        terminal = new int[maxStates];
+        Arrays.fill(terminal, -1);
+        edgeLabels[0] = new char[0];
+        edgeTargets[0] = new int[0];
+        int stateCount = 1;
+
+        // 1. Trie of lowercased keywords
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                int target = edge(state, c);
+                if (target < 0) {
+                    target = stateCount++;
+                    edgeLabels[target] = new char[0];
+                    edgeTargets[target] = new int[0];
+                    addEdge(state, c, target);
+                }
+                state = target;
+            }
+            if (state != 0 && terminal[state] < 0) {
+                terminal[state] = k;
+            }
+        }
+
+        // 2. Failure and output links, breadth-first
+        fail = new int[stateCount];
+        outputLink = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            fail[target] = 0;
+            queue.add(target);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            char[] labels = edgeLabels[state];
+            int[] targets = edgeTargets[state];
+
+            for (int i = 0; i < labels.length; i++) {
+                int child = targets[i];
+                int f = fail[state];
+                while (f != 0 && edge(f, labels[i]) < 0) {
+                    f = fail[f];
+                }
+                int fallback = edge(f, labels[i]);
+                fail[child] = (fallback >= 0 && fallback != child) ? fallback : 0;
+
+                int link = fail[child];
+                outputLink[child] = terminal[link] >= 0 ? link : outputLink[link];
+                queue.add(child);
+            }
+        }
+    }
+
+    private void addEdge(int state, char c, int target) {
+        char[] labels = edgeLabels[state];
+        int[] targets = edgeTargets[state];
+        int pos = -(Arrays.binarySearch(labels, c) + 1);
+
+        char[] newLabels = new char[labels.length + 1];
+        int[] newTargets = new int[targets.length + 1];
+        System.arraycopy(labels, 0, newLabels, 0, pos);
+        System.arraycopy(targets, 0, newTargets, 0, pos);
+        newLabels[pos] = c;
+        newTargets[pos] = target;
+        System.arraycopy(labels, pos, newLabels, pos + 1, labels.length - pos);
+        System.arraycopy(targets, pos, newTargets, pos + 1, targets.length - pos);
+
+        edgeLabels[state] = newLabels;
+        edgeTargets[state] = newTargets;
+    }
+}
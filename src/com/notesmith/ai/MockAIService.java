@@ -1,21 +1,39 @@
 package com.notesmith.ai;
 
 import com.notesmith.ai.models.RelatedNote;
+import com.notesmith.config.AppConfig;
 import com.notesmith.model.Note;
+import com.notesmith.similarity.StopWords;
+import com.notesmith.similarity.TermDictionary;
+import com.notesmith.similarity.Tokenizer;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Random;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Mock AI service for testing/demo purposes when no API key is configured.
- * Provides generic responses to simulate AI functionality.
+ *
+ * Acts as a deterministic local stand-in for Gemini:
+ * - tags are the note's top TF-IDF terms, with the note's own sentences
+ *   as the documents
+ * - summaries are extractive (highest-weighted sentences, in original order)
+ * - related notes are the notes sharing the most terms, looked up in a
+ *   RelatedNotesIndex owned by the caller and synced to the note list
+ *   passed in
+ *
+ * Results depend only on the configured seed and the call's arguments, so
+ * the same note gives the same tags and summary no matter what was asked
+ * before or for which user. No static state is kept apart from the
+ * error-injection counter, and all methods are safe to call concurrently.
+ * Optional injected latency and error rate (ai.mock.latency.ms,
+ * ai.mock.error.rate) allow load-testing the AI pipeline without a network.
  */
 public class MockAIService {
-    
-    private static final Random random = new Random();
-    
+
+    private static final String MOCK_SUFFIX =
+        "\n\n[Mock AI Response - Configure Gemini API key for real AI features]";
+
     private static final String[] SUMMARY_TEMPLATES = {
         "This note discusses %s and provides insights on %s. Key takeaway: %s.",
         "The main focus is on %s, with emphasis on %s. Important point: %s.",
@@ -23,112 +41,387 @@ public class MockAIService {
         "An overview of %s with details about %s. Remember: %s.",
         "Key concepts include %s and %s. Main idea: %s."
     };
-    
+
     private static final String[] TOPICS = {
         "important concepts", "key ideas", "main themes", "core principles",
         "essential points", "fundamental aspects", "critical elements"
     };
-    
+
     private static final String[] INSIGHTS = {
         "practical applications", "theoretical foundations", "real-world examples",
         "best practices", "common patterns", "useful techniques"
     };
-    
+
     private static final String[] TAKEAWAYS = {
         "stay focused on the goal", "practice makes perfect", "consistency is key",
         "attention to detail matters", "keep learning and improving"
     };
-    
+
     private static final String[] TAG_SUGGESTIONS = {
         "important", "review", "ideas", "notes", "reference", "todo",
         "project", "personal", "work", "study", "research", "draft"
     };
-    
+
+    private static final StopWords STOP_WORDS = StopWords.of(
+        "about", "after", "also", "been", "before", "being", "could", "does", "each",
+        "from", "have", "into", "just", "like", "more", "most", "much", "only", "other",
+        "over", "said", "same", "should", "some", "such", "than", "that", "their", "them",
+        "then", "there", "these", "they", "this", "those", "very", "were", "what", "when",
+        "where", "which", "while", "will", "with", "would", "your"
+    );
+
+    private static final int MAX_TAGS = 5;
+    private static final int SUMMARY_SENTENCES = 2;
+
+    private static final long SEED = AppConfig.getMockAISeed();
+    private static final AtomicLong callSequence = new AtomicLong();
+
     /**
      * Generate a mock summary for a note.
      */
     public static String generateMockSummary(Note note) {
-        String template = SUMMARY_TEMPLATES[random.nextInt(SUMMARY_TEMPLATES.length)];
-        String topic = TOPICS[random.nextInt(TOPICS.length)];
-        String insight = INSIGHTS[random.nextInt(INSIGHTS.length)];
-        String takeaway = TAKEAWAYS[random.nextInt(TAKEAWAYS.length)];
-        
-        return String.format(template, topic, insight, takeaway) + 
-               "\n\n[Mock AI Response - Configure Gemini API key for real AI features]";
+        if (simulateCall()) {
+            return "Failed to generate summary: Mock AI injected error";
+        }
+
+        List<String> sentences = splitSentences(note.getContent());
+        if (sentences.size() <= SUMMARY_SENTENCES) {
+            if (!sentences.isEmpty()) {
+                return String.join(" ", sentences) + MOCK_SUFFIX;
+            }
+            return templateSummary(note) + MOCK_SUFFIX;
+        }
+
+        // Score sentences by the TF-IDF weight of their terms
+        Map<String, Double> weights = termWeights(note);
+        double[] scores = new double[sentences.size()];
+        for (int i = 0; i < sentences.size(); i++) {
+            List<String> terms = tokenize(sentences.get(i));
+            double score = 0.0;
+            for (String term : terms) {
+                score += weights.getOrDefault(term, 0.0);
+            }
+            scores[i] = terms.isEmpty() ? 0.0 : score / Math.sqrt(terms.size());
+        }
+
+        // Pick the best sentences, keep them in document order
+        Integer[] order = new Integer[sentences.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(a, b));
+        int[] chosen = new int[SUMMARY_SENTENCES];
+        for (int i = 0; i < SUMMARY_SENTENCES; i++) {
+            chosen[i] = order[i];
+        }
+        Arrays.sort(chosen);
+
+        StringBuilder summary = new StringBuilder();
+        for (int index : chosen) {
+            if (summary.length() > 0) {
+                summary.append(' ');
+            }
+            summary.append(sentences.get(index));
+        }
+        return summary + MOCK_SUFFIX;
     }
-    
+
     /**
-     * Generate mock tag suggestions.
+     * Generate mock tag suggestions from the note's top TF-IDF terms.
      */
     public static List<String> generateMockTags(Note note) {
+        if (simulateCall()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, Double> weights = termWeights(note);
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(weights.entrySet());
+        ranked.sort((a, b) -> {
+            int cmp = Double.compare(b.getValue(), a.getValue());
+            return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+        });
+
         List<String> tags = new ArrayList<>();
-        
-        // Pick 3-5 random tags
-        int count = 3 + random.nextInt(3);
-        List<String> available = new ArrayList<>(Arrays.asList(TAG_SUGGESTIONS));
-        
-        for (int i = 0; i < count && !available.isEmpty(); i++) {
-            int index = random.nextInt(available.size());
-            tags.add(available.remove(index));
-        }
-        
+        for (Map.Entry<String, Double> entry : ranked) {
+            if (tags.size() >= MAX_TAGS) {
+                break;
+            }
+            if (!note.getTagView().contains(entry.getKey())) {
+                tags.add(entry.getKey());
+            }
+        }
+
+        // Too little content - pad with generic tags, chosen deterministically per note
+        if (tags.size() < 3) {
+            Random random = randomFor(note, 1);
+            List<String> available = new ArrayList<>(Arrays.asList(TAG_SUGGESTIONS));
+            while (tags.size() < 3 && !available.isEmpty()) {
+                String tag = available.remove(random.nextInt(available.size()));
+                if (!tags.contains(tag)) {
+                    tags.add(tag);
+                }
+            }
+        }
+
         return tags;
     }
-    
+
     /**
-     * Find mock related notes using simple keyword matching.
+     * Find mock related notes: the notes sharing the most distinct terms
+     * with the current one, counted through the index's postings.
      */
-    public static List<RelatedNote> findMockRelatedNotes(Note currentNote, List<Note> allNotes) {
+    public static List<RelatedNote> findMockRelatedNotes(Note currentNote, List<Note> allNotes,
+                                                         RelatedNotesIndex index) {
         List<RelatedNote> related = new ArrayList<>();
-        
+
         if (allNotes.size() <= 1) {
             return related;
         }
-        
-        // Extract words from current note
-        String[] words = (currentNote.getTitle() + " " + currentNote.getContent())
-            .toLowerCase()
-            .split("\\W+");
-        
-        // Simple keyword matching
-        for (Note note : allNotes) {
-            if (note.getId().equals(currentNote.getId())) {
-                continue;
-            }
-            
-            String noteText = (note.getTitle() + " " + note.getContent()).toLowerCase();
-            int matches = 0;
-            
-            for (String word : words) {
-                if (word.length() > 3 && noteText.contains(word)) {
-                    matches++;
-                }
-            }
-            
-            if (matches > 0) {
-                double similarity = Math.min(0.95, matches * 0.15);
-                String reason = "Shares " + matches + " keyword" + (matches > 1 ? "s" : "");
-                related.add(new RelatedNote(note, similarity, reason));
-            }
+
+        if (simulateCall()) {
+            return related;
         }
-        
-        // Sort by similarity
-        related.sort((a, b) -> Double.compare(b.getSimilarityScore(), a.getSimilarityScore()));
-        
+
+        Map<String, Integer> shared = index.countSharedTerms(currentNote, allNotes);
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            int matches = entry.getValue();
+            double similarity = Math.min(0.95, matches * 0.15);
+            String reason = "Shares " + matches + " keyword" + (matches > 1 ? "s" : "");
+            related.add(new RelatedNote(index.noteOf(entry.getKey()), similarity, reason));
+        }
+
+        // Sort by similarity, ties broken by id so the order is reproducible
+        related.sort((a, b) -> {
+            int cmp = Double.compare(b.getSimilarityScore(), a.getSimilarityScore());
+            return cmp != 0 ? cmp : a.getNote().getId().compareTo(b.getNote().getId());
+        });
+
         // Return top 5
         if (related.size() > 5) {
             related = related.subList(0, 5);
         }
-        
+
         return related;
     }
-    
+
     /**
      * Check if mock mode should be used.
      */
     public static boolean shouldUseMockMode(String apiKey) {
-        return apiKey == null || apiKey.isEmpty() || 
+        return apiKey == null || apiKey.isEmpty() ||
                apiKey.equals("YOUR_GEMINI_API_KEY_HERE") ||
                apiKey.equals("YOUR_API_KEY_HERE");
     }
+
+    // ===== Scoring helpers =====
+
+    /**
+     * TF-IDF weight of each term in the note, treating the note's sentences as
+     * the documents: terms that run through the whole note count for less than
+     * terms concentrated in a few sentences. Depends on the note alone.
+     */
+    private static Map<String, Double> termWeights(Note note) {
+        Map<String, Integer> termFreq = new HashMap<>();
+        for (String term : tokenize(note.getTitle() + " " + note.getContent())) {
+            termFreq.merge(term, 1, Integer::sum);
+        }
+
+        List<String> sentences = splitSentences(note.getContent());
+        Map<String, Integer> sentenceFreq = new HashMap<>();
+        for (String sentence : sentences) {
+            for (String term : new HashSet<>(tokenize(sentence))) {
+                sentenceFreq.merge(term, 1, Integer::sum);
+            }
+        }
+
+        Map<String, Double> weights = new HashMap<>();
+        int totalSentences = Math.max(1, sentences.size());
+        for (Map.Entry<String, Integer> entry : termFreq.entrySet()) {
+            int df = Math.max(1, sentenceFreq.getOrDefault(entry.getKey(), 0));
+            double idf = Math.log(1.0 + (double) totalSentences / df);
+            weights.put(entry.getKey(), entry.getValue() * idf);
+        }
+        return weights;
+    }
+
+    private static String templateSummary(Note note) {
+        Random random = randomFor(note, 2);
+        String template = SUMMARY_TEMPLATES[random.nextInt(SUMMARY_TEMPLATES.length)];
+        String topic = TOPICS[random.nextInt(TOPICS.length)];
+        String insight = INSIGHTS[random.nextInt(INSIGHTS.length)];
+        String takeaway = TAKEAWAYS[random.nextInt(TAKEAWAYS.length)];
+        return String.format(template, topic, insight, takeaway);
+    }
+
+    private static List<String> splitSentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        if (text == null) {
+            return sentences;
+        }
+        for (String sentence : text.split("(?<=[.!?])\\s+|\\n+")) {
+            String trimmed = sentence.trim();
+            if (trimmed.length() > 10) {
+                sentences.add(trimmed);
+            }
+        }
+        return sentences;
+    }
+
+    private static int[] distinctTermIds(Note note) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        Tokenizer.forEachTerm(note.getTitle() + " " + note.getContent(), 4, STOP_WORDS, ids::add);
+        int[] result = new int[ids.size()];
+        int i = 0;
+        for (int id : ids) {
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        Tokenizer.forEachTerm(text, 4, STOP_WORDS, termId -> terms.add(TermDictionary.termOf(termId)));
+        return terms;
+    }
+
+    // ===== Determinism, latency and error injection =====
+
+    /**
+     * A fresh Random derived from the seed and the note, so every caller gets
+     * the same sequence for the same note without sharing mutable state.
+     */
+    private static Random randomFor(Note note, int salt) {
+        long seed = SEED ^ (31L * note.getId().hashCode()) ^ ((long) note.getContent().hashCode() << 16) ^ salt;
+        return new Random(seed);
+    }
+
+    /**
+     * Apply configured latency and decide whether this call fails.
+     * The decision stream is derived from the seed and a call counter,
+     * so a single-threaded run is fully reproducible.
+     *
+     * @return true if an error should be injected
+     */
+    private static boolean simulateCall() {
+        Random random = new Random(SEED ^ mix(callSequence.incrementAndGet()));
+
+        long latency = AppConfig.getMockAILatencyMs();
+        long jitter = AppConfig.getMockAILatencyJitterMs();
+        if (jitter > 0) {
+            latency += (long) (random.nextDouble() * jitter);
+        }
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+        }
+
+        return random.nextDouble() < AppConfig.getMockAIErrorRate();
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * Inverted index (term id to note ids) for mock related-note lookups.
+     * Each note is tokenized once per version (updatedAt); a lookup syncs the
+     * index to the given notes, then counts shared terms from the postings of
+     * the current note's terms only. One instance per owner, not shared.
+     */
+    public static class RelatedNotesIndex {
+
+        private final Map<String, IndexedNote> notes = new HashMap<>();
+        private final Map<Integer, Set<String>> postings = new HashMap<>();
+
+        /**
+         * Shared distinct-term counts per other note in allNotes (notes
+         * sharing nothing are left out).
+         */
+        synchronized Map<String, Integer> countSharedTerms(Note currentNote, List<Note> allNotes) {
+            sync(allNotes);
+            IndexedNote current = notes.get(currentNote.getId());
+            int[] terms = current != null && current.version.equals(currentNote.getUpdatedAt())
+                ? current.terms
+                : distinctTermIds(currentNote); // Unsaved edit: tokenize the query only
+
+            Map<String, Integer> shared = new HashMap<>();
+            for (int term : terms) {
+                Set<String> ids = postings.get(term);
+                if (ids == null) {
+                    continue;
+                }
+                for (String id : ids) {
+                    if (!id.equals(currentNote.getId())) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+            return shared;
+        }
+
+        synchronized Note noteOf(String noteId) {
+            return notes.get(noteId).note;
+        }
+
+        /**
+         * Index new and edited notes, drop the ones no longer listed.
+         */
+        private void sync(List<Note> allNotes) {
+            Set<String> live = new HashSet<>();
+            for (Note note : allNotes) {
+                live.add(note.getId());
+                IndexedNote indexed = notes.get(note.getId());
+                if (indexed == null || !indexed.version.equals(note.getUpdatedAt())) {
+                    if (indexed != null) {
+                        unpost(indexed);
+                    }
+                    IndexedNote entry = new IndexedNote(note, distinctTermIds(note));
+                    for (int term : entry.terms) {
+                        postings.computeIfAbsent(term, t -> new HashSet<>()).add(note.getId());
+                    }
+                    notes.put(note.getId(), entry);
+                } else {
+                    indexed.note = note; // Same version; keep the caller's instance
+                }
+            }
+            Iterator<IndexedNote> it = notes.values().iterator();
+            while (it.hasNext()) {
+                IndexedNote indexed = it.next();
+                if (!live.contains(indexed.note.getId())) {
+                    unpost(indexed);
+                    it.remove();
+                }
+            }
+        }
+
+        private void unpost(IndexedNote indexed) {
+            for (int term : indexed.terms) {
+                Set<String> ids = postings.get(term);
+                if (ids != null) {
+                    ids.remove(indexed.note.getId());
+                    if (ids.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        private static class IndexedNote {
+            Note note;
+            final LocalDateTime version;
+            final int[] terms; // distinct TermDictionary ids
+
+            IndexedNote(Note note, int[] terms) {
+                this.note = note;
+                this.version = note.getUpdatedAt();
+                this.terms = terms;
+            }
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package com.notesmith.ai;
+
+/**
+ * Client-side token bucket limiter for the Gemini API.
+ * Enforces two budgets at once: requests per minute and tokens per minute.
+ * Both buckets refill continuously, so short bursts up to the per-minute
+ * limit are allowed while the long-run rate never exceeds the quota.
+ */
+public class RateLimiter {
+
+    private static final double MILLIS_PER_MINUTE = 60_000.0;
+
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final double requestsPerMilli;
+    private final double tokensPerMilli;
+
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefill;
+
+    public RateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        if (requestsPerMinute <= 0 || tokensPerMinute <= 0) {
+            throw new IllegalArgumentException("Rate limits must be positive");
+        }
+        this.requestCapacity = requestsPerMinute;
+        this.tokenCapacity = tokensPerMinute;
+        this.requestsPerMilli = requestsPerMinute / MILLIS_PER_MINUTE;
+        this.tokensPerMilli = tokensPerMinute / MILLIS_PER_MINUTE;
+        this.availableRequests = requestCapacity;
+        this.availableTokens = tokenCapacity;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    /**
+     * Block until one request costing the given number of tokens fits in both buckets.
+     * Requests larger than the whole token budget are clamped so they can still run.
+     *
+     * @return true if acquired, false if the wait would exceed timeoutMillis
+     */
+    public synchronized boolean acquire(int tokens, long timeoutMillis) throws InterruptedException {
+        double cost = Math.min(Math.max(1, tokens), tokenCapacity);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        while (true) {
+            refill();
+            if (availableRequests >= 1.0 && availableTokens >= cost) {
+                availableRequests -= 1.0;
+                availableTokens -= cost;
+                return true;
+            }
+
+            long waitMillis = millisUntilAvailable(cost);
+            long remaining = deadline - System.currentTimeMillis();
+            if (waitMillis > remaining) {
+                return false;
+            }
+            // wait() releases the lock so other callers can check the buckets meanwhile
+            wait(Math.max(1, waitMillis));
+        }
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            availableRequests = Math.min(requestCapacity, availableRequests + elapsed * requestsPerMilli);
+            availableTokens = Math.min(tokenCapacity, availableTokens + elapsed * tokensPerMilli);
+            lastRefill = now;
+        }
+    }
+
+    private long millisUntilAvailable(double cost) {
+        double requestDeficit = Math.max(0.0, 1.0 - availableRequests);
+        double tokenDeficit = Math.max(0.0, cost - availableTokens);
+        double waitForRequests = requestDeficit / requestsPerMilli;
+        double waitForTokens = tokenDeficit / tokensPerMilli;
+        return (long) Math.ceil(Math.max(waitForRequests, waitForTokens));
+    }
+}
@@ -0,0 +1,100 @@
+package com.notesmith.ai;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-flight request coalescing.
+ *
+ * Concurrent calls with the same key share one in-flight execution instead of
+ * each hitting the backend. The shared call runs on its own worker thread so a
+ * caller can give up (be interrupted) without affecting the others; the
+ * underlying call is only cancelled once every waiter has left.
+ */
+public class RequestCoalescer<K, V> {
+
+    private final Object lock = new Object();
+    private final Map<K, InFlight> inFlight = new HashMap<>();
+    private final ExecutorService executor;
+
+    public RequestCoalescer(String threadName) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, threadName + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Run the call, or join an identical call that is already running.
+     *
+     * @throws InterruptedException if this caller was interrupted while waiting
+     * @throws ExecutionException if the shared call failed
+     */
+    public V execute(K key, Callable<V> call) throws InterruptedException, ExecutionException {
+        InFlight flight;
+        synchronized (lock) {
+            flight = inFlight.get(key);
+            if (flight == null) {
+                flight = new InFlight(key, call);
+                inFlight.put(key, flight);
+                executor.execute(flight);
+            }
+            flight.waiters++;
+        }
+
+        try {
+            return flight.get();
+        } finally {
+            leave(flight);
+        }
+    }
+
+    /**
+     * Number of distinct calls currently running (for diagnostics).
+     */
+    public int inFlightCount() {
+        synchronized (lock) {
+            return inFlight.size();
+        }
+    }
+
+    private void leave(InFlight flight) {
+        synchronized (lock) {
+            flight.waiters--;
+            if (flight.waiters == 0 && !flight.isDone()) {
+                // Nobody is interested anymore - stop retries/backoff early
+                flight.cancel(true);
+                inFlight.remove(flight.key, flight);
+            }
+        }
+    }
+
+    /**
+     * A shared call. Removes itself from the map when it finishes so later
+     * callers start a fresh request rather than receiving a stale result.
+     */
+    private class InFlight extends FutureTask<V> {
+        final K key;
+        int waiters;
+
+        InFlight(K key, Callable<V> call) {
+            super(call);
+            this.key = key;
+        }
+
+        @Override
+        protected void done() {
+            synchronized (lock) {
+                inFlight.remove(key, this);
+            }
+        }
+    }
+}
@@ -2,77 +2,198 @@ package com.notesmith.ai;
 
 import com.notesmith.ai.models.AIResponse;
 import com.notesmith.ai.models.RelatedNote;
+import com.notesmith.exception.PersistenceException;
 import com.notesmith.model.Note;
+import com.notesmith.model.NoteKeywords;
+import com.notesmith.persistence.NoteChangeListener;
+import com.notesmith.persistence.NoteKeywordRepository;
 import com.notesmith.util.Logger;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for finding related notes using AI.
+ *
+ * Keywords are extracted once per note version, persisted, and kept in an
+ * inverted index. Linking is a keyword-set intersection against that index;
+ * notes without current keywords are queued for background extraction and
+ * matched by text until their keywords arrive. Deleted notes leave the
+ * index through onNoteDeleted (their stored rows go by ON DELETE CASCADE).
  */
-public class SmartLinkingService {
-    
+public class SmartLinkingService implements NoteChangeListener {
+
     private static final Logger logger = Logger.getLogger(SmartLinkingService.class);
     private final GeminiClient client;
-    
+    private final NoteKeywordRepository keywordRepo; // null = keep keywords in memory only
+    private final KeywordIndex keywordIndex;
+    private final KeywordExtractionWorker extractionWorker;
+    private final MockAIService.RelatedNotesIndex mockIndex = new MockAIService.RelatedNotesIndex();
+    private boolean keywordsLoaded;
+
     public SmartLinkingService() {
+        this(null);
+    }
+
+    public SmartLinkingService(NoteKeywordRepository keywordRepo) {
         this.client = new GeminiClient();
+        this.keywordRepo = keywordRepo;
+        this.keywordIndex = new KeywordIndex();
+        this.extractionWorker = new KeywordExtractionWorker(this::extractAndStore);
     }
-    
+
     /**
      * Find notes related to the given note.
      * Returns top 5 most related notes with similarity scores.
      */
     public List<RelatedNote> findRelatedNotes(Note currentNote, List<Note> allNotes) {
         List<RelatedNote> relatedNotes = new ArrayList<>();
-        
+
         if (allNotes.isEmpty() || allNotes.size() == 1) {
             return relatedNotes;
         }
-        
+
         // Use mock mode if no API key configured
         if (MockAIService.shouldUseMockMode(com.notesmith.config.AppConfig.getGeminiApiKey())) {
             logger.info("Using mock AI for related notes (no API key configured)");
-            return MockAIService.findMockRelatedNotes(currentNote, allNotes);
+            return MockAIService.findMockRelatedNotes(currentNote, allNotes, mockIndex);
         }
-        
+
+        loadPersistedKeywords();
+
+        // Short-circuit to local matching while the API is unhealthy
+        // (unless the current note's keywords are already known)
+        if (!client.isAvailable() && keywordIndex.getCurrent(currentNote) == null) {
+            logger.warn("AI service unavailable, using local matching for related notes");
+            return MockAIService.findMockRelatedNotes(currentNote, allNotes, mockIndex);
+        }
+
         logger.info("Finding related notes for: " + currentNote.getTitle());
-        
-        // Extract keywords from current note
-        String keywords = extractKeywords(currentNote);
-        if (keywords == null || keywords.isEmpty()) {
+
+        // Keywords for the current note: from the index, or one API call if stale
+        List<String> keywords = getOrExtractKeywords(currentNote);
+        if (keywords.isEmpty()) {
             logger.warn("Failed to extract keywords");
+            if (!client.isAvailable()) {
+                return MockAIService.findMockRelatedNotes(currentNote, allNotes, mockIndex);
+            }
             return relatedNotes;
         }
-        
-        logger.info("Extracted keywords: " + keywords);
-        
+
+        logger.info("Keywords: " + String.join(", ", keywords));
+
+        Map<String, Integer> sharedCounts = keywordIndex.countSharedKeywords(keywords);
+        KeywordMatcher matcher = new KeywordMatcher(keywords); // compiled once per query
+        int queued = 0;
+
         // Compare with other notes
         for (Note note : allNotes) {
             if (note.getId().equals(currentNote.getId())) {
                 continue; // Skip the current note
             }
-            
-            double similarity = calculateSimilarity(keywords, note);
-            
+
+            NoteKeywords noteKeywords = keywordIndex.getCurrent(note);
+            double similarity;
+            String reason;
+
+            if (noteKeywords != null) {
+                int shared = sharedCounts.getOrDefault(note.getId(), 0);
+                similarity = calculateIndexedSimilarity(matcher, shared, note);
+                reason = similarity > 0.3 ? generateIndexedReason(keywords, noteKeywords) : null;
+            } else {
+                // No current keywords yet - extract in the background, match by text for now
+                if (client.isAvailable()) {
+                    extractionWorker.enqueue(note);
+                    queued++;
+                }
+                int[] counts = matcher.countMatches(note.getTitle(), note.getContent());
+                similarity = calculateSimilarity(matcher, counts, note);
+                reason = similarity > 0.3 ? generateReason(matcher, counts) : null;
+            }
+
             if (similarity > 0.3) { // Threshold: 30% similarity
-                String reason = generateReason(keywords, note);
                 relatedNotes.add(new RelatedNote(note, similarity, reason));
             }
         }
-        
+
+        if (queued > 0) {
+            logger.info("Queued " + queued + " notes for background keyword extraction");
+        }
+
         // Sort by similarity (highest first) and take top 5
         relatedNotes.sort((a, b) -> Double.compare(b.getSimilarityScore(), a.getSimilarityScore()));
-        
+
         if (relatedNotes.size() > 5) {
             relatedNotes = relatedNotes.subList(0, 5);
         }
-        
+
         logger.info("Found " + relatedNotes.size() + " related notes");
         return relatedNotes;
     }
-    
+
+    @Override
+    public void onNoteSaved(Note note) {
+        // Nothing to do: keywords are versioned, stale ones are re-extracted on demand
+    }
+
+    @Override
+    public void onNoteDeleted(String noteId) {
+        keywordIndex.remove(noteId);
+    }
+
+    /**
+     * Load previously extracted keywords into the index (once).
+     */
+    private synchronized void loadPersistedKeywords() {
+        if (keywordsLoaded || keywordRepo == null) {
+            return;
+        }
+        keywordsLoaded = true;
+        try {
+            List<NoteKeywords> stored = keywordRepo.findAll();
+            stored.forEach(keywordIndex::put);
+            logger.info("Loaded keywords for " + stored.size() + " notes");
+        } catch (PersistenceException e) {
+            logger.error("Failed to load stored keywords", e);
+        }
+    }
+
+    private List<String> getOrExtractKeywords(Note note) {
+        NoteKeywords current = keywordIndex.getCurrent(note);
+        if (current != null) {
+            return current.getKeywords();
+        }
+        NoteKeywords extracted = extractAndStore(note);
+        return extracted != null ? extracted.getKeywords() : Collections.emptyList();
+    }
+
+    /**
+     * Extract keywords with AI and store them, versioned by the note's
+     * updated_at as it was before the call (so edits made meanwhile count as stale).
+     */
+    private NoteKeywords extractAndStore(Note note) {
+        LocalDateTime version = note.getUpdatedAt();
+        String text = extractKeywords(note);
+        if (text == null) {
+            return null;
+        }
+
+        NoteKeywords keywords = new NoteKeywords(note.getId(), KeywordIndex.parseKeywords(text), version);
+        keywordIndex.put(keywords);
+
+        if (keywordRepo != null) {
+            try {
+                keywordRepo.save(keywords);
+            } catch (PersistenceException e) {
+                logger.error("Failed to persist keywords for note: " + note.getId(), e);
+            }
+        }
+        return keywords;
+    }
+
     /**
      * Extract keywords from a note using AI.
      */
@@ -86,9 +207,9 @@ public class SmartLinkingService {
             note.getTitle(),
             truncateContent(note.getContent(), 500)
         );
-        
+
         AIResponse response = client.generateContent(prompt);
-        
+
         if (response.isSuccess()) {
             return response.getText().trim();
         } else {
@@ -96,59 +217,84 @@ public class SmartLinkingService {
             return null;
         }
     }
-    
+
     /**
-     * Calculate similarity between keywords and a note.
+     * Similarity from the keyword index: shared AI keywords plus matching tags.
      */
-    private double calculateSimilarity(String keywords, Note note) {
-        String[] keywordArray = keywords.toLowerCase().split(",");
-        String noteText = (note.getTitle() + " " + note.getContent()).toLowerCase();
-        
+    private double calculateIndexedSimilarity(KeywordMatcher matcher, int sharedKeywords, Note note) {
+        int matches = sharedKeywords + countTagMatches(matcher, note);
+        return Math.min(1.0, (double) matches / matcher.size());
+    }
+
+    /**
+     * Calculate similarity from keyword match counts in a note's text.
+     * Fallback for notes whose keywords have not been extracted yet.
+     */
+    private double calculateSimilarity(KeywordMatcher matcher, int[] counts, Note note) {
         int matches = 0;
-        for (String keyword : keywordArray) {
-            String trimmed = keyword.trim();
-            if (!trimmed.isEmpty() && noteText.contains(trimmed)) {
+        for (int count : counts) {
+            if (count > 0) {
                 matches++;
             }
         }
-        
-        // Also check tags
-        for (String tag : note.getTags()) {
-            for (String keyword : keywordArray) {
-                if (tag.toLowerCase().contains(keyword.trim().toLowerCase())) {
-                    matches++;
-                    break;
-                }
+
+        matches += countTagMatches(matcher, note);
+
+        return Math.min(1.0, (double) matches / matcher.size());
+    }
+
+    /**
+     * Count tags that contain any of the keywords.
+     */
+    private int countTagMatches(KeywordMatcher matcher, Note note) {
+        int matches = 0;
+        for (String tag : note.getTagView()) {
+            if (matcher.matchesAny(tag)) {
+                matches++;
             }
         }
-        
-        return Math.min(1.0, (double) matches / keywordArray.length);
+        return matches;
     }
-    
+
+    /**
+     * Generate a reason from the keywords both notes share.
+     */
+    private String generateIndexedReason(List<String> keywords, NoteKeywords noteKeywords) {
+        List<String> matchedKeywords = new ArrayList<>();
+        for (String keyword : keywords) {
+            if (noteKeywords.getKeywords().contains(keyword)) {
+                matchedKeywords.add(keyword);
+                if (matchedKeywords.size() >= 3) break; // Limit to 3 keywords
+            }
+        }
+
+        if (matchedKeywords.isEmpty()) {
+            return "Similar tags";
+        }
+
+        return "Shares: " + String.join(", ", matchedKeywords);
+    }
+
     /**
      * Generate a reason why notes are related.
      */
-    private String generateReason(String keywords, Note note) {
-        String[] keywordArray = keywords.toLowerCase().split(",");
+    private String generateReason(KeywordMatcher matcher, int[] counts) {
         List<String> matchedKeywords = new ArrayList<>();
-        
-        String noteText = (note.getTitle() + " " + note.getContent()).toLowerCase();
-        
-        for (String keyword : keywordArray) {
-            String trimmed = keyword.trim();
-            if (!trimmed.isEmpty() && noteText.contains(trimmed)) {
-                matchedKeywords.add(trimmed);
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                matchedKeywords.add(matcher.getKeywords().get(i));
                 if (matchedKeywords.size() >= 3) break; // Limit to 3 keywords
             }
         }
-        
+
         if (matchedKeywords.isEmpty()) {
             return "Similar content";
         }
-        
+
         return "Shares: " + String.join(", ", matchedKeywords);
     }
-    
+
     /**
      * Truncate content to max length.
      */
@@ -28,6 +28,12 @@ public class SummarizationService {
             return MockAIService.generateMockSummary(note);
         }
         
+        // Short-circuit while the API is unhealthy
+        if (!client.isAvailable()) {
+            logger.warn("AI service unavailable, using mock summary");
+            return MockAIService.generateMockSummary(note);
+        }
+        
         String prompt = String.format(
             "Summarize this note in 2-3 concise sentences. Focus on the main points and key takeaways.\n\n" +
             "Title: %s\n" +
@@ -44,6 +50,9 @@ public class SummarizationService {
             return response.getText().trim();
         } else {
             logger.error("Failed to generate summary: " + response.getError());
+            if (!client.isAvailable()) {
+                return MockAIService.generateMockSummary(note);
+            }
             return "Failed to generate summary: " + response.getError();
         }
     }
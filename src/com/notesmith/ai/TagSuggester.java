@@ -0,0 +1,334 @@
+package com.notesmith.ai;
+
+import com.notesmith.model.Note;
+import com.notesmith.persistence.NoteChangeListener;
+import com.notesmith.similarity.StopWords;
+import com.notesmith.similarity.Tokenizer;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Local tag suggestion from the user's own tagging.
+ *
+ * Keeps note counts per term, per tag, per (term, tag) pair and per pair of
+ * tags. A tag's score for some text is the TF-IDF weighted average of the
+ * positive PMI between the text's terms and the tag, plus the PMI between
+ * the tag and the tags already on the note. Every save replaces only that
+ * note's contribution, so the model is always current and a suggestion is a
+ * walk over the text's terms, with no network round trip.
+ *
+ * Tags are matched case-insensitively, and a suggestion is shown in the
+ * spelling most notes use for that tag.
+ */
+public class TagSuggester implements NoteChangeListener {
+
+    // Minimum length of an indexed term, as in TFIDFCalculator
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private static final StopWords STOP_WORDS = StopWords.of(
+        "the", "and", "for", "are", "but", "not", "you", "all", "can", "her",
+        "was", "one", "our", "out", "day", "get", "has", "him", "his", "how",
+        "man", "new", "now", "old", "see", "two", "way", "who", "boy", "did",
+        "its", "let", "put", "say", "she", "too", "use", "this", "that", "with",
+        "have", "from", "they", "will", "what", "been", "more", "when", "your",
+        "said", "each", "tell", "does", "very", "just", "than", "into", "them"
+    );
+
+    // Weight of tag co-occurrence relative to the text evidence
+    private static final double COOCCURRENCE_WEIGHT = 0.5;
+
+    // Suggestions scoring below this are noise from incidental words
+    private static final double MIN_SCORE = 0.1;
+
+    private final Map<String, NoteEntry> entries = new HashMap<>();
+    private final Map<String, Integer> tagIds = new HashMap<>();
+    private final List<String> tagNames = new ArrayList<>(); // normalized, by tag id
+    private final List<Map<String, Integer>> tagSpellings = new ArrayList<>(); // notes per spelling, by tag id
+    private int[] tagCounts = new int[16];
+    private PairCounts[] tagPairs = new PairCounts[16];
+    private int[] termCounts = new int[1024]; // by TermDictionary id, so sized to the dictionary
+    private PairCounts[] termTags = new PairCounts[1024];
+
+    /**
+     * Bring the model in line with the note list: adds new and edited notes,
+     * drops notes that are gone. Unchanged notes cost one lookup each.
+     */
+    public synchronized void sync(List<Note> notes) {
+        Set<String> live = new HashSet<>();
+        for (Note note : notes) {
+            live.add(note.getId());
+            NoteEntry entry = entries.get(note.getId());
+            if (entry == null || !entry.version.equals(note.getUpdatedAt())) {
+                index(note);
+            }
+        }
+        Iterator<NoteEntry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            NoteEntry entry = it.next();
+            if (!live.contains(entry.noteId)) {
+                apply(entry, -1);
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onNoteSaved(Note note) {
+        index(note);
+    }
+
+    @Override
+    public synchronized void onNoteDeleted(String noteId) {
+        NoteEntry old = entries.remove(noteId);
+        if (old != null) {
+            apply(old, -1);
+        }
+    }
+
+    /**
+     * Up to limit tags for the note that it does not carry yet, best first.
+     */
+    public List<String> suggest(Note note, int limit) {
+        return suggest(note.getTitle(), note.getContent(), note.getTagView(), limit);
+    }
+
+    /**
+     * Up to limit tags for the given text, best first, leaving out the tags
+     * already chosen. Empty until some notes with similar words are tagged.
+     */
+    public synchronized List<String> suggest(String title, String content, Collection<String> existingTags,
+                                             int limit) {
+        int notes = entries.size();
+        if (notes == 0 || tagNames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double[] scores = new double[tagNames.size()];
+
+        // Text evidence: sorted ids, so a term's frequency is its run length.
+        // Lookup only: words no note contains carry no evidence, and the
+        // editor's half-typed words must not be interned.
+        int[] terms = Tokenizer.knownTermIds(title + "\n" + content, MIN_TERM_LENGTH, STOP_WORDS);
+        Arrays.sort(terms);
+        double totalWeight = 0.0;
+        for (int i = 0; i < terms.length; ) {
+            int term = terms[i];
+            int run = i;
+            while (run < terms.length && terms[run] == term) {
+                run++;
+            }
+            int frequency = run - i;
+            i = run;
+
+            int df = term < termCounts.length ? termCounts[term] : 0;
+            if (df == 0) {
+                continue; // Never seen in any note: no evidence either way
+            }
+            double weight = (1 + Math.log(frequency)) * Math.log(1 + notes / (double) df);
+            totalWeight += weight;
+            PairCounts tags = termTags[term];
+            if (tags != null && df * 2 <= notes) { // Above that PMI is under ln 2 for every tag
+                for (int p = 0; p < tags.size; p++) {
+                    scores[tags.keys[p]] += weight * pmi(tags.counts[p], df, tagCounts[tags.keys[p]], notes);
+                }
+            }
+        }
+        if (totalWeight > 0) {
+            for (int g = 0; g < scores.length; g++) {
+                scores[g] /= totalWeight;
+            }
+        }
+
+        // Tag evidence: tags that usually go with the ones already chosen
+        Set<Integer> chosen = new HashSet<>();
+        for (String tag : existingTags) {
+            Integer id = tagIds.get(normalize(tag));
+            if (id == null) {
+                continue;
+            }
+            chosen.add(id);
+            PairCounts related = tagPairs[id];
+            if (related != null) {
+                for (int p = 0; p < related.size; p++) {
+                    int other = related.keys[p];
+                    scores[other] += COOCCURRENCE_WEIGHT
+                        * pmi(related.counts[p], tagCounts[id], tagCounts[other], notes);
+                }
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>();
+        for (int g = 0; g < scores.length; g++) {
+            if (scores[g] >= MIN_SCORE && !chosen.contains(g)) {
+                ranked.add(g);
+            }
+        }
+        ranked.sort((a, b) -> Double.compare(scores[b], scores[a]));
+        List<String> suggestions = new ArrayList<>();
+        for (int g : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            suggestions.add(displayName(g));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Positive PMI of two events seen together in joint of the notes,
+     * discounted while the joint count is small so one-off pairs do not
+     * dominate.
+     */
+    private static double pmi(int joint, int countA, int countB, int notes) {
+        if (joint <= 0 || countA <= 0 || countB <= 0) {
+            return 0.0;
+        }
+        double pmi = Math.log(joint * (double) notes / ((double) countA * countB));
+        return pmi <= 0 ? 0.0 : pmi * joint / (joint + 1.0);
+    }
+
+    private void index(Note note) {
+        NoteEntry old = entries.remove(note.getId());
+        if (old != null) {
+            apply(old, -1);
+        }
+        int[] terms = Tokenizer.distinctTermIds(note.getTitle() + "\n" + note.getContent(),
+            MIN_TERM_LENGTH, STOP_WORDS);
+        Map<Integer, String> tags = new LinkedHashMap<>(); // tag id -> spelling on this note
+        for (String tag : note.getTagView()) {
+            String name = normalize(tag);
+            if (!name.isEmpty()) {
+                tags.putIfAbsent(tagId(name), tag.trim());
+            }
+        }
+        NoteEntry entry = new NoteEntry(note.getId(), note.getUpdatedAt(), terms,
+            tags.keySet().stream().mapToInt(Integer::intValue).toArray(),
+            tags.values().toArray(new String[0]));
+        apply(entry, 1);
+        entries.put(note.getId(), entry);
+    }
+
+    /**
+     * Add (delta 1) or remove (delta -1) one note's counts.
+     */
+    private void apply(NoteEntry entry, int delta) {
+        for (int term : entry.terms) {
+            ensureTermCapacity(term);
+            termCounts[term] += delta;
+            if (entry.tags.length > 0) {
+                if (termTags[term] == null) {
+                    termTags[term] = new PairCounts();
+                }
+                for (int tag : entry.tags) {
+                    termTags[term].add(tag, delta);
+                }
+            }
+        }
+        for (int i = 0; i < entry.tags.length; i++) {
+            Map<String, Integer> spellings = tagSpellings.get(entry.tags[i]);
+            if (spellings.merge(entry.spellings[i], delta, Integer::sum) <= 0) {
+                spellings.remove(entry.spellings[i]);
+            }
+        }
+        for (int tag : entry.tags) {
+            tagCounts[tag] += delta;
+            for (int other : entry.tags) {
+                if (other != tag) {
+                    if (tagPairs[tag] == null) {
+                        tagPairs[tag] = new PairCounts();
+                    }
+                    tagPairs[tag].add(other, delta);
+                }
+            }
+        }
+    }
+
+    private int tagId(String name) {
+        Integer id = tagIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        int newId = tagNames.size();
+        tagIds.put(name, newId);
+        tagNames.add(name);
+        tagSpellings.add(new HashMap<>());
+        if (newId == tagCounts.length) {
+            tagCounts = Arrays.copyOf(tagCounts, newId * 2);
+            tagPairs = Arrays.copyOf(tagPairs, newId * 2);
+        }
+        return newId;
+    }
+
+    private void ensureTermCapacity(int term) {
+        if (term >= termCounts.length) {
+            int capacity = Math.max(term + 1, termCounts.length * 2);
+            termCounts = Arrays.copyOf(termCounts, capacity);
+            termTags = Arrays.copyOf(termTags, capacity);
+        }
+    }
+
+    /**
+     * The spelling most notes use for the tag (ties go to the alphabetically
+     * first, so the choice is stable), or the normalized name if none is left.
+     */
+    private String displayName(int tag) {
+        String best = tagNames.get(tag);
+        int bestCount = 0;
+        for (Map.Entry<String, Integer> entry : tagSpellings.get(tag).entrySet()) {
+            int count = entry.getValue();
+            if (count > bestCount || (count == bestCount && entry.getKey().compareTo(best) < 0)) {
+                best = entry.getKey();
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static String normalize(String tag) {
+        return tag.trim().toLowerCase();
+    }
+
+    /**
+     * What one note version contributed to the counts.
+     */
+    private static class NoteEntry {
+        final String noteId;
+        final LocalDateTime version;
+        final int[] terms; // distinct TermDictionary ids
+        final int[] tags;  // distinct tag ids
+        final String[] spellings; // the note's spelling of each tag
+
+        NoteEntry(String noteId, LocalDateTime version, int[] terms, int[] tags, String[] spellings) {
+            this.noteId = noteId;
+            this.version = version;
+            this.terms = terms;
+            this.tags = tags;
+            this.spellings = spellings;
+        }
+    }
+
+    /**
+     * Small int-to-count map as parallel arrays; one per term or tag, and
+     * most hold only a handful of tags.
+     */
+    private static class PairCounts {
+        int[] keys = new int[2];
+        int[] counts = new int[2];
+        int size;
+
+        void add(int key, int delta) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    counts[i] += delta;
+                    return;
+                }
+            }
+            if (delta <= 0) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            keys[size] = key;
+            counts[size++] = delta;
+        }
+    }
+}
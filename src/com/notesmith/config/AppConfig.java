@@ -94,7 +94,159 @@ public final class AppConfig {
     public static int getAIMaxTokens() {
         return Integer.parseInt(getProperty("ai.max.tokens", "1000"));
     }
-    
+
+    // AI rate limiting and resilience (defaults match the Gemini free tier)
+    public static int getAIRequestsPerMinute() {
+        return Integer.parseInt(getProperty("ai.rate.requests.per.minute", "15"));
+    }
+
+    public static int getAITokensPerMinute() {
+        return Integer.parseInt(getProperty("ai.rate.tokens.per.minute", "250000"));
+    }
+
+    public static long getAIRateWaitTimeoutMs() {
+        return Long.parseLong(getProperty("ai.rate.wait.timeout.ms", "30000"));
+    }
+
+    public static int getAIRetryMaxAttempts() {
+        return Integer.parseInt(getProperty("ai.retry.max.attempts", "4"));
+    }
+
+    public static long getAIRetryBaseDelayMs() {
+        return Long.parseLong(getProperty("ai.retry.base.delay.ms", "500"));
+    }
+
+    public static long getAIRetryMaxDelayMs() {
+        return Long.parseLong(getProperty("ai.retry.max.delay.ms", "30000"));
+    }
+
+    public static int getAICircuitFailureThreshold() {
+        return Integer.parseInt(getProperty("ai.circuit.failure.threshold", "5"));
+    }
+
+    public static long getAICircuitOpenMs() {
+        return Long.parseLong(getProperty("ai.circuit.open.ms", "60000"));
+    }
+
+    // Mock AI (offline stand-in, also used for local load testing)
+    public static long getMockAISeed() {
+        return Long.parseLong(getProperty("ai.mock.seed", "42"));
+    }
+
+    public static long getMockAILatencyMs() {
+        return Long.parseLong(getProperty("ai.mock.latency.ms", "0"));
+    }
+
+    public static long getMockAILatencyJitterMs() {
+        return Long.parseLong(getProperty("ai.mock.latency.jitter.ms", "0"));
+    }
+
+    public static double getMockAIErrorRate() {
+        return Double.parseDouble(getProperty("ai.mock.error.rate", "0.0"));
+    }
+
+    // Time budget for the interactive "Find Related" search
+    public static long getRelatedNotesBudgetMs() {
+        return Long.parseLong(getProperty("similarity.related.budget.ms", "250"));
+    }
+
+    // Memory bound for cached similarity result lists
+    public static int getSimilarityCacheMaxKb() {
+        return Integer.parseInt(getProperty("similarity.cache.max.kb", "2048"));
+    }
+
+    // Style fingerprints kept by the coherence signal (least recently used go first)
+    public static int getCoherenceCacheMaxNotes() {
+        return Integer.parseInt(getProperty("similarity.coherence.cache.max.notes", "20000"));
+    }
+
+    // Notes whose SimHash differs in at most this many bits count as duplicates
+    public static int getDuplicateMaxBits() {
+        return Integer.parseInt(getProperty("similarity.duplicates.max.bits", "4"));
+    }
+
+    // Stage-1 prefilter of the optimized engine: quick-score floor and candidate range
+    public static double getPrefilterThreshold() {
+        return Double.parseDouble(getProperty("similarity.prefilter.threshold", "0.05"));
+    }
+
+    public static int getPrefilterMinCandidates() {
+        return Integer.parseInt(getProperty("similarity.prefilter.min.candidates", "10"));
+    }
+
+    public static int getPrefilterMaxCandidates() {
+        return Integer.parseInt(getProperty("similarity.prefilter.max.candidates", "200"));
+    }
+
+    // Share of the exact top N the candidates should contain
+    public static double getPrefilterTargetRecall() {
+        return Double.parseDouble(getProperty("similarity.prefilter.target.recall", "0.95"));
+    }
+
+    // Every Nth search also runs an exact search to measure recall (0 = never)
+    public static int getPrefilterCalibrationInterval() {
+        return Integer.parseInt(getProperty("similarity.prefilter.calibration.interval", "25"));
+    }
+
+    // Topic clustering (mini-batch k-means over TF-IDF vectors)
+    public static int getMaxTopicClusters() {
+        return Integer.parseInt(getProperty("similarity.clusters.max", "64"));
+    }
+
+    // Below this many notes related-note search scans everything
+    public static int getClusterSearchMinNotes() {
+        return Integer.parseInt(getProperty("similarity.clusters.search.min.notes", "2000"));
+    }
+
+    // Nearest clusters searched by cluster-restricted search
+    public static int getClusterSearchProbes() {
+        return Integer.parseInt(getProperty("similarity.clusters.search.probes", "3"));
+    }
+
+    // Local semantic similarity (embeddings + HNSW index)
+    public static int getEmbeddingDimension() {
+        return Integer.parseInt(getProperty("similarity.embedding.dimension", "256"));
+    }
+
+    public static int getHnswM() {
+        return Integer.parseInt(getProperty("similarity.hnsw.m", "16"));
+    }
+
+    public static int getHnswEfConstruction() {
+        return Integer.parseInt(getProperty("similarity.hnsw.ef.construction", "100"));
+    }
+
+    public static int getHnswEfSearch() {
+        return Integer.parseInt(getProperty("similarity.hnsw.ef.search", "64"));
+    }
+
+    // Vector API kernels when the JVM runs with --add-modules jdk.incubator.vector
+    public static boolean isSimdEnabled() {
+        return Boolean.parseBoolean(getProperty("similarity.simd.enabled", "true"));
+    }
+
+    public static String getVectorEncoding() {
+        return getProperty("similarity.vector.encoding", "float32");
+    }
+
+    // none, sq (int8 scalar) or pq (product quantization)
+    public static String getVectorQuantization() {
+        return getProperty("similarity.quantization", "sq");
+    }
+
+    public static int getQuantizationMinVectors() {
+        return Integer.parseInt(getProperty("similarity.quantization.min.vectors", "2000"));
+    }
+
+    public static int getPQSubspaces() {
+        return Integer.parseInt(getProperty("similarity.pq.subspaces", "32"));
+    }
+
+    // Quiet period after the last keystroke before the note search runs
+    public static int getSearchDebounceMs() {
+        return Integer.parseInt(getProperty("ui.search.debounce.ms", "150"));
+    }
+
     private static String getProperty(String key, String defaultValue) {
         // Check environment variable first (uppercase with underscores)
         String envKey = key.toUpperCase().replace('.', '_');
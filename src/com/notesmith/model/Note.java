@@ -2,6 +2,7 @@ package com.notesmith.model;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,6 +15,8 @@ public abstract class Note {
     private final NoteType type;
     private List<String> tags;
     private boolean pinned;
+    private Long simHash;                // content fingerprint, null = not computed yet
+    private byte[] styleFingerprint;     // encoded StyleFingerprint, null = not computed yet
 
     protected Note(String title, String content, NoteType type) {
         this.id = UUID.randomUUID().toString();
@@ -48,6 +51,7 @@ public abstract class Note {
             throw new IllegalArgumentException("Title cannot be empty.");
         }
         this.title = title;
+        this.simHash = null;
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -55,6 +59,8 @@ public abstract class Note {
 
     public void setContent(String content) {
         this.content = content;
+        this.simHash = null;
+        this.styleFingerprint = null;
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -66,6 +72,11 @@ public abstract class Note {
     
     public List<String> getTags() { return new ArrayList<>(tags); }
     
+    /**
+     * Read-only view of the tags, for hot paths that must not copy.
+     */
+    public List<String> getTagView() { return Collections.unmodifiableList(tags); }
+    
     public void setTags(List<String> tags) {
         this.tags = new ArrayList<>(tags);
         this.updatedAt = LocalDateTime.now();
@@ -85,11 +96,46 @@ public abstract class Note {
     
     public boolean isPinned() { return pinned; }
     
+    /**
+     * Restore tags and pinned state when loading from storage.
+     * Unlike addTag/setPinned this keeps updatedAt, which versions derived data.
+     */
+    public void restoreState(List<String> tags, boolean pinned) {
+        this.tags = new ArrayList<>();
+        for (String tag : tags) {
+            String trimmed = tag.trim();
+            if (!trimmed.isEmpty() && !this.tags.contains(trimmed)) {
+                this.tags.add(trimmed);
+            }
+        }
+        this.pinned = pinned;
+    }
+    
     public void setPinned(boolean pinned) {
         this.pinned = pinned;
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * SimHash of title and content, or null if not computed since the last edit.
+     */
+    public Long getSimHash() { return simHash; }
+    
+    /**
+     * Cache the SimHash of the current title and content; does not touch updatedAt.
+     */
+    public void setSimHash(long simHash) { this.simHash = simHash; }
+
+    /**
+     * Encoded StyleFingerprint of the content, or null if not computed since the last edit.
+     */
+    public byte[] getStyleFingerprint() { return styleFingerprint; }
+
+    /**
+     * Cache the encoded StyleFingerprint of the current content; does not touch updatedAt.
+     */
+    public void setStyleFingerprint(byte[] styleFingerprint) { this.styleFingerprint = styleFingerprint; }
+
     // Polymorphism
     public abstract String display();
 }
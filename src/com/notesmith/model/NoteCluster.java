@@ -0,0 +1,36 @@
+package com.notesmith.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Topic cluster a note was assigned to, versioned by the note's updated_at
+ * at assignment time.
+ */
+public class NoteCluster {
+    private final String noteId;
+    private final int clusterId;
+    private final LocalDateTime noteUpdatedAt;
+
+    public NoteCluster(String noteId, int clusterId, LocalDateTime noteUpdatedAt) {
+        this.noteId = noteId;
+        this.clusterId = clusterId;
+        this.noteUpdatedAt = noteUpdatedAt;
+    }
+
+    public String getNoteId() { return noteId; }
+
+    public int getClusterId() { return clusterId; }
+
+    public LocalDateTime getNoteUpdatedAt() { return noteUpdatedAt; }
+
+    /**
+     * Whether this assignment was made for the note's current content.
+     * Compared at millisecond precision since the database may truncate timestamps.
+     */
+    public boolean isCurrentFor(Note note) {
+        return note.getId().equals(noteId) &&
+               note.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS)
+                   .equals(noteUpdatedAt.truncatedTo(ChronoUnit.MILLIS));
+    }
+}
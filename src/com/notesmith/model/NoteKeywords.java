@@ -0,0 +1,42 @@
+package com.notesmith.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AI-extracted keywords for a note, versioned by the note's updated_at
+ * at extraction time so stale keywords can be detected after an edit.
+ */
+public class NoteKeywords {
+    // Capacity of note_keywords.keywords (comma-joined)
+    public static final int MAX_STORED_LENGTH = 1000;
+
+    private final String noteId;
+    private final List<String> keywords;
+    private final LocalDateTime noteUpdatedAt;
+
+    public NoteKeywords(String noteId, List<String> keywords, LocalDateTime noteUpdatedAt) {
+        this.noteId = noteId;
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+        this.noteUpdatedAt = noteUpdatedAt;
+    }
+
+    public String getNoteId() { return noteId; }
+
+    public List<String> getKeywords() { return keywords; }
+
+    public LocalDateTime getNoteUpdatedAt() { return noteUpdatedAt; }
+
+    /**
+     * Whether these keywords were extracted from the note's current content.
+     * Compared at millisecond precision since the database may truncate timestamps.
+     */
+    public boolean isCurrentFor(Note note) {
+        return note.getId().equals(noteId) &&
+               note.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS)
+                   .equals(noteUpdatedAt.truncatedTo(ChronoUnit.MILLIS));
+    }
+}
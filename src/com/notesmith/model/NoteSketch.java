@@ -0,0 +1,36 @@
+package com.notesmith.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Compact per-note keyword sketch (a Bloom filter) used to pre-reject
+ * keyword overlap, versioned by the note's updated_at when it was built.
+ */
+public class NoteSketch {
+    private final String noteId;
+    private final long[] keywordBloom;
+    private final LocalDateTime noteUpdatedAt;
+
+    public NoteSketch(String noteId, long[] keywordBloom, LocalDateTime noteUpdatedAt) {
+        this.noteId = noteId;
+        this.keywordBloom = keywordBloom.clone();
+        this.noteUpdatedAt = noteUpdatedAt;
+    }
+
+    public String getNoteId() { return noteId; }
+
+    public long[] getKeywordBloom() { return keywordBloom.clone(); }
+
+    public LocalDateTime getNoteUpdatedAt() { return noteUpdatedAt; }
+
+    /**
+     * Whether this sketch was built from the note's current content.
+     * Compared at millisecond precision since the database may truncate timestamps.
+     */
+    public boolean isCurrentFor(Note note) {
+        return note.getId().equals(noteId) &&
+               note.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS)
+                   .equals(noteUpdatedAt.truncatedTo(ChronoUnit.MILLIS));
+    }
+}
@@ -89,10 +89,38 @@ public class ConnectionPool {
                     done BOOLEAN DEFAULT FALSE,
                     tags VARCHAR(500) DEFAULT '',
                     pinned BOOLEAN DEFAULT FALSE,
+                    simhash BIGINT,
+                    style_fingerprint VARBINARY(128),
                     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
                 );
                 
+                ALTER TABLE notes ADD COLUMN IF NOT EXISTS simhash BIGINT;
+                ALTER TABLE notes ADD COLUMN IF NOT EXISTS style_fingerprint VARBINARY(128);
+                
                 CREATE INDEX IF NOT EXISTS idx_user_pinned_created ON notes(user_id, pinned DESC, created_at DESC);
+                
+                CREATE INDEX IF NOT EXISTS idx_user_updated ON notes(user_id, updated_at DESC);
+                
+                CREATE TABLE IF NOT EXISTS note_keywords (
+                    note_id VARCHAR(36) PRIMARY KEY,
+                    keywords VARCHAR(1000) NOT NULL,
+                    note_updated_at TIMESTAMP NOT NULL,
+                    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+                );
+                
+                CREATE TABLE IF NOT EXISTS note_sketches (
+                    note_id VARCHAR(36) PRIMARY KEY,
+                    keyword_bloom VARBINARY(128) NOT NULL,
+                    note_updated_at TIMESTAMP NOT NULL,
+                    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+                );
+                
+                CREATE TABLE IF NOT EXISTS note_clusters (
+                    note_id VARCHAR(36) PRIMARY KEY,
+                    cluster_id INT NOT NULL,
+                    note_updated_at TIMESTAMP NOT NULL,
+                    FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+                );
                 """;
             
             statement.execute(schema);
@@ -8,6 +8,7 @@ import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class FileNoteRepository implements NoteRepository {
@@ -145,20 +146,15 @@ public class FileNoteRepository implements NoteRepository {
             }
             
             // Parse tags (index 7) - handle old format without tags
+            List<String> tags = new ArrayList<>();
             if (parts.length > 7 && !parts[7].isEmpty()) {
-                String[] tags = parts[7].split(",");
-                for (String tag : tags) {
-                    String trimmed = tag.trim();
-                    if (!trimmed.isEmpty()) {
-                        note.addTag(trimmed);
-                    }
-                }
+                tags.addAll(Arrays.asList(parts[7].split(",")));
             }
             
             // Parse pinned (index 8) - handle old format without pinned
-            if (parts.length > 8 && !parts[8].isEmpty()) {
-                note.setPinned(Boolean.parseBoolean(parts[8]));
-            }
+            boolean pinned = parts.length > 8 && !parts[8].isEmpty() && Boolean.parseBoolean(parts[8]);
+            
+            note.restoreState(tags, pinned);
             
             return note;
         } catch (Exception e) {
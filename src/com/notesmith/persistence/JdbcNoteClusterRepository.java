@@ -0,0 +1,86 @@
+package com.notesmith.persistence;
+
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.NoteCluster;
+import com.notesmith.util.Logger;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores topic cluster assignments in the note_clusters table.
+ * Rows are removed automatically when their note is deleted (ON DELETE CASCADE).
+ */
+public class JdbcNoteClusterRepository implements NoteClusterRepository {
+
+    private static final Logger logger = Logger.getLogger(JdbcNoteClusterRepository.class);
+    private final int userId;
+
+    public JdbcNoteClusterRepository(int userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public List<NoteCluster> findAll() throws PersistenceException {
+        List<NoteCluster> result = new ArrayList<>();
+
+        String sql = "SELECT c.note_id, c.cluster_id, c.note_updated_at " +
+                "FROM note_clusters c JOIN notes n ON n.id = c.note_id WHERE n.user_id = ?";
+
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, userId);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String noteId = rs.getString("note_id");
+                        int clusterId = rs.getInt("cluster_id");
+                        LocalDateTime noteUpdatedAt = rs.getTimestamp("note_updated_at").toLocalDateTime();
+                        result.add(new NoteCluster(noteId, clusterId, noteUpdatedAt));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Database error loading note clusters", e);
+        } finally {
+            if (conn != null) {
+                Database.releaseConnection(conn);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void saveAll(List<NoteCluster> assignments) throws PersistenceException {
+        if (assignments.isEmpty()) {
+            return;
+        }
+        String sql = "MERGE INTO note_clusters (note_id, cluster_id, note_updated_at) KEY (note_id) VALUES (?, ?, ?)";
+
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (NoteCluster assignment : assignments) {
+                    ps.setString(1, assignment.getNoteId());
+                    ps.setInt(2, assignment.getClusterId());
+                    ps.setTimestamp(3, Timestamp.valueOf(assignment.getNoteUpdatedAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to save " + assignments.size() + " note clusters", e);
+            throw new PersistenceException("Database error saving note clusters", e);
+        } finally {
+            if (conn != null) {
+                Database.releaseConnection(conn);
+            }
+        }
+    }
+}
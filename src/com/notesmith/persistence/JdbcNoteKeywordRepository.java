@@ -0,0 +1,107 @@
+package com.notesmith.persistence;
+
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.NoteKeywords;
+import com.notesmith.util.Logger;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores AI-extracted keywords per note in the note_keywords table.
+ * Rows are removed automatically when their note is deleted (ON DELETE CASCADE).
+ */
+public class JdbcNoteKeywordRepository implements NoteKeywordRepository {
+
+    private static final Logger logger = Logger.getLogger(JdbcNoteKeywordRepository.class);
+    private final int userId;
+
+    public JdbcNoteKeywordRepository(int userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public List<NoteKeywords> findAll() throws PersistenceException {
+        List<NoteKeywords> result = new ArrayList<>();
+
+        String sql = "SELECT k.note_id, k.keywords, k.note_updated_at " +
+                "FROM note_keywords k JOIN notes n ON n.id = k.note_id WHERE n.user_id = ?";
+
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, userId);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String noteId = rs.getString("note_id");
+                        String keywordsStr = rs.getString("keywords");
+                        LocalDateTime noteUpdatedAt = rs.getTimestamp("note_updated_at").toLocalDateTime();
+
+                        List<String> keywords = new ArrayList<>();
+                        if (keywordsStr != null && !keywordsStr.isEmpty()) {
+                            for (String keyword : keywordsStr.split(",")) {
+                                keywords.add(keyword.trim());
+                            }
+                        }
+                        result.add(new NoteKeywords(noteId, keywords, noteUpdatedAt));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Database error loading note keywords", e);
+        } finally {
+            if (conn != null) {
+                Database.releaseConnection(conn);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void save(NoteKeywords keywords) throws PersistenceException {
+        String sqlUpdate = "UPDATE note_keywords SET keywords = ?, note_updated_at = ? WHERE note_id = ?";
+        String sqlInsert = "INSERT INTO note_keywords (note_id, keywords, note_updated_at) VALUES (?, ?, ?)";
+
+        String keywordsStr = String.join(",", keywords.getKeywords());
+        if (keywordsStr.length() > NoteKeywords.MAX_STORED_LENGTH) {
+            // Keep whole keywords only
+            int cut = keywordsStr.lastIndexOf(',', NoteKeywords.MAX_STORED_LENGTH);
+            keywordsStr = keywordsStr.substring(0, cut > 0 ? cut : NoteKeywords.MAX_STORED_LENGTH);
+        }
+        Timestamp noteUpdatedAt = Timestamp.valueOf(keywords.getNoteUpdatedAt());
+
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            // Try update first
+            try (PreparedStatement ps = conn.prepareStatement(sqlUpdate)) {
+                ps.setString(1, keywordsStr);
+                ps.setTimestamp(2, noteUpdatedAt);
+                ps.setString(3, keywords.getNoteId());
+
+                int rows = ps.executeUpdate();
+                if (rows == 0) {
+                    // Insert if no row updated
+                    try (PreparedStatement psIns = conn.prepareStatement(sqlInsert)) {
+                        psIns.setString(1, keywords.getNoteId());
+                        psIns.setString(2, keywordsStr);
+                        psIns.setTimestamp(3, noteUpdatedAt);
+                        psIns.executeUpdate();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to save keywords for note: " + keywords.getNoteId(), e);
+            throw new PersistenceException("Database error saving note keywords", e);
+        } finally {
+            if (conn != null) {
+                Database.releaseConnection(conn);
+            }
+        }
+    }
+}
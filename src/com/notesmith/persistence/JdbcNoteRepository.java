@@ -5,11 +5,14 @@ import com.notesmith.model.Note;
 import com.notesmith.model.NoteType;
 import com.notesmith.model.TextNote;
 import com.notesmith.model.TodoNote;
+import com.notesmith.similarity.SimHash;
+import com.notesmith.similarity.StyleFingerprint;
 import com.notesmith.util.Logger;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class JdbcNoteRepository implements NoteRepository {
@@ -25,7 +28,7 @@ public class JdbcNoteRepository implements NoteRepository {
     public List<Note> findAll() throws PersistenceException {
         List<Note> notes = new ArrayList<>();
 
-        String sql = "SELECT id, title, content, created_at, updated_at, type, done, tags, pinned " +
+        String sql = "SELECT id, title, content, created_at, updated_at, type, done, tags, pinned, simhash, style_fingerprint " +
                 "FROM notes WHERE user_id = ? ORDER BY pinned DESC, created_at DESC";
         
         Connection conn = null;
@@ -45,6 +48,9 @@ public class JdbcNoteRepository implements NoteRepository {
                         boolean done = rs.getBoolean("done");
                         String tagsStr = rs.getString("tags");
                         boolean pinned = rs.getBoolean("pinned");
+                        long simHash = rs.getLong("simhash");
+                        boolean hasSimHash = !rs.wasNull();
+                        byte[] styleFingerprint = rs.getBytes("style_fingerprint");
 
                         Note note;
                         if (type == NoteType.TODO) {
@@ -54,14 +60,18 @@ public class JdbcNoteRepository implements NoteRepository {
                         }
                         
                         // Parse tags
+                        List<String> tags = new ArrayList<>();
                         if (tagsStr != null && !tagsStr.isEmpty()) {
-                            String[] tagArray = tagsStr.split(",");
-                            for (String tag : tagArray) {
-                                note.addTag(tag.trim());
-                            }
+                            tags.addAll(Arrays.asList(tagsStr.split(",")));
                         }
                         
-                        note.setPinned(pinned);
+                        note.restoreState(tags, pinned);
+                        if (hasSimHash) {
+                            note.setSimHash(simHash);
+                        }
+                        if (styleFingerprint != null) {
+                            note.setStyleFingerprint(styleFingerprint);
+                        }
                         notes.add(note);
                     }
                 }
@@ -80,17 +90,19 @@ public class JdbcNoteRepository implements NoteRepository {
     @Override
     public void save(Note note) throws PersistenceException {
         String sqlUpdate =
-                "UPDATE notes SET title = ?, content = ?, updated_at = ?, type = ?, done = ?, tags = ?, pinned = ? " +
+                "UPDATE notes SET title = ?, content = ?, updated_at = ?, type = ?, done = ?, tags = ?, pinned = ?, simhash = ?, style_fingerprint = ? " +
                         "WHERE id = ? AND user_id = ?";
         String sqlInsert =
-                "INSERT INTO notes (id, user_id, title, content, created_at, updated_at, type, done, tags, pinned) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "INSERT INTO notes (id, user_id, title, content, created_at, updated_at, type, done, tags, pinned, simhash, style_fingerprint) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         LocalDateTime createdAt = note.getCreatedAt();
         LocalDateTime updatedAt = note.getUpdatedAt();
         boolean done = (note instanceof TodoNote) && ((TodoNote) note).isDone();
         String tags = String.join(",", note.getTags());
         boolean pinned = note.isPinned();
+        long simHash = SimHash.of(note);
+        byte[] styleFingerprint = StyleFingerprint.of(note).encode();
 
         Connection conn = null;
         try {
@@ -104,8 +116,10 @@ public class JdbcNoteRepository implements NoteRepository {
                 ps.setBoolean(5, done);
                 ps.setString(6, tags);
                 ps.setBoolean(7, pinned);
-                ps.setString(8, note.getId());
-                ps.setInt(9, userId);
+                ps.setLong(8, simHash);
+                ps.setBytes(9, styleFingerprint);
+                ps.setString(10, note.getId());
+                ps.setInt(11, userId);
 
                 int rows = ps.executeUpdate();
                 if (rows == 0) {
@@ -121,6 +135,8 @@ public class JdbcNoteRepository implements NoteRepository {
                         psIns.setBoolean(8, done);
                         psIns.setString(9, tags);
                         psIns.setBoolean(10, pinned);
+                        psIns.setLong(11, simHash);
+                        psIns.setBytes(12, styleFingerprint);
                         psIns.executeUpdate();
                     }
                 }
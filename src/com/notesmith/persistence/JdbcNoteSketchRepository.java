@@ -0,0 +1,104 @@
+package com.notesmith.persistence;
+
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.NoteSketch;
+import com.notesmith.util.Logger;
+
+import java.nio.ByteBuffer;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores per-note keyword sketches in the note_sketches table.
+ * Rows are removed automatically when their note is deleted (ON DELETE CASCADE).
+ */
+public class JdbcNoteSketchRepository implements NoteSketchRepository {
+
+    private static final Logger logger = Logger.getLogger(JdbcNoteSketchRepository.class);
+    private final int userId;
+
+    public JdbcNoteSketchRepository(int userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public List<NoteSketch> findAll() throws PersistenceException {
+        List<NoteSketch> result = new ArrayList<>();
+
+        String sql = "SELECT s.note_id, s.keyword_bloom, s.note_updated_at " +
+                "FROM note_sketches s JOIN notes n ON n.id = s.note_id WHERE n.user_id = ?";
+
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, userId);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String noteId = rs.getString("note_id");
+                        long[] bloom = toLongs(rs.getBytes("keyword_bloom"));
+                        LocalDateTime noteUpdatedAt = rs.getTimestamp("note_updated_at").toLocalDateTime();
+                        result.add(new NoteSketch(noteId, bloom, noteUpdatedAt));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Database error loading note sketches", e);
+        } finally {
+            if (conn != null) {
+                Database.releaseConnection(conn);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void saveAll(List<NoteSketch> sketches) throws PersistenceException {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        String sql = "MERGE INTO note_sketches (note_id, keyword_bloom, note_updated_at) KEY (note_id) VALUES (?, ?, ?)";
+
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (NoteSketch sketch : sketches) {
+                    ps.setString(1, sketch.getNoteId());
+                    ps.setBytes(2, toBytes(sketch.getKeywordBloom()));
+                    ps.setTimestamp(3, Timestamp.valueOf(sketch.getNoteUpdatedAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to save " + sketches.size() + " note sketches", e);
+            throw new PersistenceException("Database error saving note sketches", e);
+        } finally {
+            if (conn != null) {
+                Database.releaseConnection(conn);
+            }
+        }
+    }
+
+    private static byte[] toBytes(long[] words) {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    private static long[] toLongs(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] words = new long[bytes.length / Long.BYTES];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return words;
+    }
+}
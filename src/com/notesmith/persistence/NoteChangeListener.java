@@ -0,0 +1,12 @@
+package com.notesmith.persistence;
+
+import com.notesmith.model.Note;
+
+/**
+ * Notified after notes are written to or removed from a repository.
+ * Used to keep derived data (indexes, caches) in step with the notes.
+ */
+public interface NoteChangeListener {
+    void onNoteSaved(Note note);
+    void onNoteDeleted(String noteId);
+}
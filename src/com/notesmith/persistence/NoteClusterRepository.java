@@ -0,0 +1,11 @@
+package com.notesmith.persistence;
+
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.NoteCluster;
+
+import java.util.List;
+
+public interface NoteClusterRepository {
+    List<NoteCluster> findAll() throws PersistenceException;
+    void saveAll(List<NoteCluster> assignments) throws PersistenceException;
+}
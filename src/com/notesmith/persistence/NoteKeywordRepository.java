@@ -0,0 +1,11 @@
+package com.notesmith.persistence;
+
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.NoteKeywords;
+
+import java.util.List;
+
+public interface NoteKeywordRepository {
+    List<NoteKeywords> findAll() throws PersistenceException;
+    void save(NoteKeywords keywords) throws PersistenceException;
+}
@@ -0,0 +1,11 @@
+package com.notesmith.persistence;
+
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.NoteSketch;
+
+import java.util.List;
+
+public interface NoteSketchRepository {
+    List<NoteSketch> findAll() throws PersistenceException;
+    void saveAll(List<NoteSketch> sketches) throws PersistenceException;
+}
@@ -0,0 +1,60 @@
+package com.notesmith.persistence;
+
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.Note;
+import com.notesmith.util.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * NoteRepository decorator that notifies listeners after successful writes.
+ * A failing listener is logged and never fails the save/delete itself.
+ */
+public class ObservableNoteRepository implements NoteRepository {
+
+    private static final Logger logger = Logger.getLogger(ObservableNoteRepository.class);
+    private final NoteRepository delegate;
+    private final List<NoteChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ObservableNoteRepository(NoteRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    public void addListener(NoteChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(NoteChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public List<Note> findAll() throws PersistenceException {
+        return delegate.findAll();
+    }
+
+    @Override
+    public void save(Note note) throws PersistenceException {
+        delegate.save(note);
+        for (NoteChangeListener listener : listeners) {
+            try {
+                listener.onNoteSaved(note);
+            } catch (RuntimeException e) {
+                logger.error("Note listener failed on save: " + note.getId(), e);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String id) throws PersistenceException {
+        delegate.delete(id);
+        for (NoteChangeListener listener : listeners) {
+            try {
+                listener.onNoteDeleted(id);
+            } catch (RuntimeException e) {
+                logger.error("Note listener failed on delete: " + id, e);
+            }
+        }
+    }
+}
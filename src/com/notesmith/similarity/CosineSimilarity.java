@@ -2,63 +2,62 @@ package com.notesmith.similarity;
 
 import com.notesmith.model.Note;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 /**
  * Cosine similarity calculator using simple word frequency vectors.
+ * Vectors are cached per note version as sparse term-id arrays.
  */
 public class CosineSimilarity {
     
+    private final Map<String, CachedVector> cache = new HashMap<>();
+    
     public double calculate(Note note1, Note note2) {
-        Map<String, Integer> vector1 = getWordFrequency(note1.getContent());
-        Map<String, Integer> vector2 = getWordFrequency(note2.getContent());
-        
-        return cosineSimilarity(vector1, vector2);
+        return getVector(note1).cosine(getVector(note2));
     }
     
-    private Map<String, Integer> getWordFrequency(String text) {
-        Map<String, Integer> freq = new HashMap<>();
-        
-        if (text == null || text.isEmpty()) {
-            return freq;
+    private SparseVector getVector(Note note) {
+        CachedVector cached = cache.get(note.getId());
+        if (cached != null && cached.version.equals(note.getUpdatedAt())) {
+            return cached.vector;
         }
-        
-        String[] words = text.toLowerCase().split("\\W+");
-        for (String word : words) {
-            if (word.length() > 2) {
-                freq.put(word, freq.getOrDefault(word, 0) + 1);
+        SparseVector vector = getWordFrequency(note.getContent());
+        cache.put(note.getId(), new CachedVector(note.getUpdatedAt(), vector));
+        return vector;
+    }
+    
+    /**
+     * Word counts (words longer than two characters) as a sparse vector.
+     */
+    private SparseVector getWordFrequency(String text) {
+        int[] words = Tokenizer.termIds(text, 3, null);
+        Arrays.sort(words);
+        
+        int[] indices = new int[words.length];
+        double[] counts = new double[words.length];
+        int n = 0;
+        for (int i = 0; i < words.length; ) {
+            int word = words[i];
+            int count = 0;
+            while (i < words.length && words[i] == word) {
+                count++;
+                i++;
             }
+            indices[n] = word;
+            counts[n] = count;
+            n++;
         }
-        
-        return freq;
+        return SparseVector.ofSorted(indices, counts, n);
     }
     
-    private double cosineSimilarity(Map<String, Integer> v1, Map<String, Integer> v2) {
-        if (v1.isEmpty() || v2.isEmpty()) {
-            return 0.0;
-        }
-        
-        Set<String> allWords = new HashSet<>();
-        allWords.addAll(v1.keySet());
-        allWords.addAll(v2.keySet());
-        
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
+    private static class CachedVector {
+        final LocalDateTime version;
+        final SparseVector vector;
         
-        for (String word : allWords) {
-            int freq1 = v1.getOrDefault(word, 0);
-            int freq2 = v2.getOrDefault(word, 0);
-            
-            dotProduct += freq1 * freq2;
-            norm1 += freq1 * freq1;
-            norm2 += freq2 * freq2;
+        CachedVector(LocalDateTime version, SparseVector vector) {
+            this.version = version;
+            this.vector = vector;
         }
-        
-        if (norm1 == 0.0 || norm2 == 0.0) {
-            return 0.0;
-        }
-        
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
     }
 }
@@ -0,0 +1,25 @@
+package com.notesmith.similarity;
+
+/**
+ * Dense dot-product kernels behind VectorMath: a scalar implementation and,
+ * when jdk.incubator.vector is available, a SIMD one.
+ */
+public interface DenseKernels {
+
+    /**
+     * Short name for logs and benchmark reports.
+     */
+    String getName();
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Dot product of an int8 row with a float query (caller applies the row scale).
+     */
+    float dot(byte[] a, int aOffset, float[] b, int length);
+
+    /**
+     * Score one query against many row-major vectors: out[r] = rows[r] . query.
+     */
+    void dotMany(float[] query, float[] rows, int rowCount, float[] out);
+}
@@ -0,0 +1,68 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.util.*;
+
+/**
+ * A set of near-duplicate notes plus a merge suggestion: keep the most
+ * recently edited version, carry over every tag and the pinned flag of the
+ * others, and delete the rest.
+ */
+public class DuplicateGroup {
+
+    private final List<Note> notes;
+
+    public DuplicateGroup(List<Note> notes) {
+        this.notes = new ArrayList<>(notes);
+        this.notes.sort(Comparator.comparing(Note::getUpdatedAt).reversed());
+    }
+
+    /**
+     * The notes, most recently edited first.
+     */
+    public List<Note> getNotes() {
+        return Collections.unmodifiableList(notes);
+    }
+
+    public Note getSuggestedKeeper() {
+        return notes.get(0);
+    }
+
+    public List<Note> getSuggestedRemovals() {
+        return Collections.unmodifiableList(notes.subList(1, notes.size()));
+    }
+
+    /**
+     * Union of all tags in the group, keeper's tags first.
+     */
+    public List<String> getMergedTags() {
+        Set<String> tags = new LinkedHashSet<>();
+        for (Note note : notes) {
+            tags.addAll(note.getTagView());
+        }
+        return new ArrayList<>(tags);
+    }
+
+    public boolean isMergedPinned() {
+        return notes.stream().anyMatch(Note::isPinned);
+    }
+
+    /**
+     * SimHash distance in bits between the keeper and the given note.
+     */
+    public int getDistance(Note note) {
+        return SimHash.distance(SimHash.of(getSuggestedKeeper()), SimHash.of(note));
+    }
+
+    /**
+     * Largest SimHash distance between the keeper and another note.
+     */
+    public int getMaxDistance() {
+        int max = 0;
+        for (Note note : notes) {
+            max = Math.max(max, getDistance(note));
+        }
+        return max;
+    }
+}
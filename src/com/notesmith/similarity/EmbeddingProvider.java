@@ -0,0 +1,21 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+/**
+ * Turns a note into a fixed-length dense vector.
+ * Implementations must return L2-normalized vectors of getDimension() length,
+ * so cosine similarity is a plain dot product.
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * Identifies the model; stored with persisted vectors so a different
+     * provider (or dimension) triggers a rebuild instead of mixing spaces.
+     */
+    String getName();
+
+    int getDimension();
+
+    float[] embed(Note note);
+}
@@ -0,0 +1,111 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.util.*;
+
+/**
+ * Offline embedding using the hashing trick (a sparse random projection).
+ *
+ * Words, adjacent word pairs and tags are hashed into a fixed number of
+ * signed buckets with sublinear term weights, then the vector is normalized.
+ * Needs no model files or network, and the same text always maps to the
+ * same vector.
+ */
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double TAG_WEIGHT = 2.0;
+    private static final double BIGRAM_WEIGHT = 0.5;
+
+    private static final StopWords STOP_WORDS = StopWords.of(
+        "the", "and", "for", "are", "but", "not", "you", "all", "can", "was",
+        "our", "out", "has", "his", "how", "its", "this", "that", "with", "have",
+        "from", "they", "will", "what", "been", "more", "when", "your", "into", "them"
+    );
+
+    private final int dimension;
+
+    public HashingEmbeddingProvider(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public String getName() {
+        return "hashing-v2"; // v2: Unicode-aware tokenizer
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(Note note) {
+        // Keyed by the feature string's hashCode, so bigrams need no concatenation
+        Map<Integer, Double> features = new HashMap<>();
+        addText(features, note.getTitle(), TITLE_WEIGHT);
+        addText(features, note.getContent(), 1.0);
+        for (String tag : note.getTagView()) {
+            features.merge(("#" + tag.toLowerCase()).hashCode(), TAG_WEIGHT, Double::sum);
+        }
+
+        double[] acc = new double[dimension];
+        for (Map.Entry<Integer, Double> feature : features.entrySet()) {
+            int h = mix(feature.getKey());
+            int bucket = Math.floorMod(h, dimension);
+            double sign = (h & 0x80000000) == 0 ? 1.0 : -1.0;
+            acc[bucket] += sign * (1.0 + Math.log(feature.getValue())); // sublinear tf
+        }
+
+        double norm = 0.0;
+        for (double v : acc) {
+            norm += v * v;
+        }
+        float[] vector = new float[dimension];
+        if (norm > 0) {
+            double inv = 1.0 / Math.sqrt(norm);
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = (float) (acc[i] * inv);
+            }
+        }
+        return vector;
+    }
+
+    private void addText(Map<Integer, Double> features, String text, double weight) {
+        int[] previous = {-1};
+        Tokenizer.forEachTerm(text, 3, STOP_WORDS, termId -> {
+            String word = TermDictionary.termOf(termId);
+            int wordHash = word.hashCode();
+            features.merge(wordHash, weight, Double::sum);
+            if (previous[0] >= 0) {
+                features.merge(bigramHash(TermDictionary.termOf(previous[0]).hashCode(), word),
+                    weight * BIGRAM_WEIGHT, Double::sum);
+            }
+            previous[0] = termId;
+        });
+    }
+
+    /**
+     * hashCode of (first + " " + second), computed without building the string.
+     */
+    private static int bigramHash(int firstHash, String second) {
+        int power = 1;
+        for (int i = 0; i < second.length(); i++) {
+            power *= 31;
+        }
+        return (firstHash * 31 + ' ') * power + second.hashCode();
+    }
+
+    /**
+     * String.hashCode clusters for short, similar strings; mix it before bucketing.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,682 @@
+package com.notesmith.similarity;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbor search.
+ *
+ * Vectors must be L2-normalized; similarity is the dot product.
+ * The graph holds only links; vectors live in an OffHeapVectorStore and share
+ * its dense ordinals. Removing or replacing a note tombstones its node (it still
+ * routes searches but is never returned) and the graph is rebuilt once
+ * tombstones outnumber live nodes.
+ *
+ * With a VectorQuantizer set, both searches and inserts walk the graph using
+ * compact in-memory codes (asymmetric scoring), and the full-precision rows
+ * are read only to rescore a search's final candidates. The codes are then
+ * the only per-vector data that has to stay resident; the mapped rows stay
+ * on disk until a rescore pages a few of them in.
+ */
+public class HnswIndex {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private volatile int efSearch;
+
+    private final OffHeapVectorStore store;                    // vectors and ids by ordinal
+    private final List<Node> nodes = new ArrayList<>();        // by ordinal
+    private final Map<String, Integer> ordinals = new HashMap<>(); // live nodes only
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+    private VectorQuantizer quantizer; // null = score with full-precision rows
+    private byte[] codes = new byte[0]; // by ordinal, quantizer.getCodeSize() bytes each
+    private float[] decoded;            // scratch for decoding codes during inserts (write lock held)
+    private final Random random = new Random(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public HnswIndex(int dimension, int m, int efConstruction, int efSearch) {
+        this(OffHeapVectorStore.inMemory(dimension, OffHeapVectorStore.Encoding.FLOAT32), m, efConstruction, efSearch);
+    }
+
+    /**
+     * Index over an empty store, or call rebuild() to index a store's existing rows.
+     */
+    public HnswIndex(OffHeapVectorStore store, int m, int efConstruction, int efSearch) {
+        this.store = store;
+        this.dimension = store.getDimension();
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(Math.max(2, m));
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public OffHeapVectorStore getStore() {
+        return store;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Score searches with compact codes instead of full vectors.
+     * An untrained quantizer is trained on (a sample of) the live vectors.
+     * Pass null to go back to exact scoring.
+     */
+    public void setQuantizer(VectorQuantizer quantizer) {
+        lock.writeLock().lock();
+        try {
+            this.quantizer = quantizer;
+            if (quantizer == null) {
+                codes = new byte[0];
+                decoded = null;
+                return;
+            }
+            if (!quantizer.isTrained()) {
+                List<float[]> sample = new ArrayList<>();
+                int stepSize = Math.max(1, ordinals.size() / 10000);
+                int i = 0;
+                for (int ordinal : ordinals.values()) {
+                    if (i++ % stepSize == 0) {
+                        sample.add(store.get(ordinal));
+                    }
+                }
+                quantizer.train(sample);
+            }
+            codes = new byte[Math.max(16, nodes.size()) * quantizer.getCodeSize()];
+            decoded = new float[dimension];
+            for (int ordinal = 0; ordinal < nodes.size(); ordinal++) {
+                encode(ordinal, store.get(ordinal));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isQuantized() {
+        lock.readLock().lock();
+        try {
+            return quantizer != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live (searchable) vectors.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stored vector for a live id, or null.
+     */
+    public float[] getVector(String id) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            return ordinal == null ? null : store.get(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stored vector by ordinal (including tombstoned nodes).
+     */
+    public float[] vectorAt(int ordinal) {
+        lock.readLock().lock();
+        try {
+            return store.get(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or replace the vector for an id.
+     */
+    public void add(String id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + ", got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.remove(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            insert(id, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                markDeleted(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate k nearest neighbors, best first.
+     */
+    public List<Neighbor> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            List<Neighbor> results = new ArrayList<>();
+            if (entryPoint < 0 || ordinals.isEmpty()) {
+                return results;
+            }
+
+            OrdinalScorer scorer = scorer(query);
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(scorer, current, level);
+            }
+
+            int ef = Math.max(efSearch, k);
+            // Tombstones take result slots during the walk; widen to compensate
+            if (deletedCount > 0) {
+                ef = Math.min(nodes.size(), ef + deletedCount);
+            }
+            PriorityQueue<Candidate> found = searchLayer(scorer, current, ef, 0);
+
+            List<Candidate> ordered = new ArrayList<>(found.size());
+            if (quantizer != null) {
+                // Exact rescore of the ef best approximate candidates
+                for (Candidate c : found) {
+                    ordered.add(new Candidate(c.ordinal, store.dot(c.ordinal, query)));
+                }
+            } else {
+                ordered.addAll(found);
+            }
+            ordered.sort(Candidate.BEST_FIRST);
+            for (Candidate c : ordered) {
+                if (nodes.get(c.ordinal).deleted) {
+                    continue;
+                }
+                results.add(new Neighbor(store.idAt(c.ordinal), c.similarity));
+                if (results.size() >= k) {
+                    break;
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== Construction =====
+
+    private void insert(String id, float[] vector) {
+        int ordinal = store.append(id, vector);
+        link(id, ordinal, vector);
+    }
+
+    /**
+     * Add the graph node for a row already in the store.
+     */
+    private void link(String id, int ordinal, float[] vector) {
+        int level = (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        Node node = new Node(level);
+
+        nodes.add(node);
+        ordinals.put(id, ordinal);
+        if (quantizer != null) {
+            encode(ordinal, vector);
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = ordinal;
+            maxLevel = level;
+            return;
+        }
+
+        // Same scores as search: codes when quantized, so inserts never touch the mapped rows
+        OrdinalScorer scorer = scorer(vector);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(scorer, current, l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> found = searchLayer(scorer, current, efConstruction, l);
+            List<Candidate> candidates = new ArrayList<>(found);
+            candidates.sort(Candidate.BEST_FIRST);
+
+            int[] selected = selectNeighbors(candidates, m);
+            for (int neighbor : selected) {
+                node.addLink(l, neighbor);
+                connect(neighbor, ordinal, l);
+            }
+            current = candidates.get(0).ordinal;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = ordinal;
+        }
+    }
+
+    /**
+     * Add a back-link, pruning the neighbor's list with the selection heuristic on overflow.
+     */
+    private void connect(int from, int to, int level) {
+        Node node = nodes.get(from);
+        int limit = level == 0 ? maxM0 : m;
+        if (node.linkCount(level) < limit) {
+            node.addLink(level, to);
+            return;
+        }
+
+        float[] base = buildVector(from);
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(new Candidate(to, buildDot(to, base)));
+        for (int i = 0; i < node.linkCount(level); i++) {
+            int neighbor = node.links[level][i];
+            candidates.add(new Candidate(neighbor, buildDot(neighbor, base)));
+        }
+        candidates.sort(Candidate.BEST_FIRST);
+        node.setLinks(level, selectNeighbors(candidates, limit));
+    }
+
+    /**
+     * HNSW neighbor heuristic: keep a candidate only if it is closer to the base
+     * than to every neighbor already kept, which preserves links across clusters.
+     * Candidates must be sorted best first.
+     */
+    private int[] selectNeighbors(List<Candidate> candidates, int limit) {
+        int[] selected = new int[Math.min(limit, candidates.size())];
+        int count = 0;
+        for (Candidate candidate : candidates) {
+            if (count >= selected.length) {
+                break;
+            }
+            float[] vector = buildVector(candidate.ordinal);
+            boolean keep = true;
+            for (int i = 0; i < count; i++) {
+                if (buildDot(selected[i], vector) > candidate.similarity) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate.ordinal;
+            }
+        }
+        // Fill remaining slots with the closest skipped candidates
+        if (count < selected.length) {
+            for (Candidate candidate : candidates) {
+                if (count >= selected.length) {
+                    break;
+                }
+                boolean present = false;
+                for (int i = 0; i < count; i++) {
+                    if (selected[i] == candidate.ordinal) {
+                        present = true;
+                        break;
+                    }
+                }
+                if (!present) {
+                    selected[count++] = candidate.ordinal;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private void markDeleted(int ordinal) {
+        nodes.get(ordinal).deleted = true;
+        store.markDeleted(ordinal);
+        deletedCount++;
+    }
+
+    /**
+     * Whether tombstones dominate the graph, so compactIfNeeded() would rebuild.
+     */
+    public boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            return deletedCount >= 32 && deletedCount > ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild from live nodes once tombstones dominate the graph. Holds the
+     * write lock for the whole rebuild, so callers run it in the background
+     * rather than inside add() or remove().
+     */
+    public void compactIfNeeded() {
+        lock.writeLock().lock();
+        try {
+            if (deletedCount >= 32 && deletedCount > ordinals.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vector used for graph construction: decoded from its code when
+     * quantized, otherwise the stored row.
+     */
+    private float[] buildVector(int ordinal) {
+        if (quantizer == null) {
+            return store.get(ordinal);
+        }
+        float[] vector = new float[dimension];
+        quantizer.decode(codes, ordinal * quantizer.getCodeSize(), vector);
+        return vector;
+    }
+
+    private float buildDot(int ordinal, float[] vector) {
+        if (quantizer == null) {
+            return store.dot(ordinal, vector);
+        }
+        quantizer.decode(codes, ordinal * quantizer.getCodeSize(), decoded);
+        return VectorMath.dot(decoded, vector);
+    }
+
+    private void compact() {
+        List<String> liveIds = new ArrayList<>();
+        List<float[]> liveVectors = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (!nodes.get(i).deleted) {
+                liveIds.add(store.idAt(i));
+                liveVectors.add(store.get(i));
+            }
+        }
+        store.clear();
+        resetGraph();
+        for (int i = 0; i < liveIds.size(); i++) {
+            insert(liveIds.get(i), liveVectors.get(i));
+        }
+    }
+
+    private void resetGraph() {
+        nodes.clear();
+        ordinals.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        deletedCount = 0;
+    }
+
+    /**
+     * Rebuild the graph from the rows already in the store (no re-embedding).
+     * Used when the persisted graph is missing or out of step with the store.
+     * If an id appears more than once, its latest row wins.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            resetGraph();
+            for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+                String id = store.idAt(ordinal);
+                Integer previous = ordinals.remove(id);
+                if (previous != null) {
+                    markDeleted(previous);
+                }
+                if (store.isDeleted(ordinal)) {
+                    nodes.add(tombstone());
+                    deletedCount++;
+                    continue;
+                }
+                link(id, ordinal, store.get(ordinal));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Node tombstone() {
+        Node node = new Node(0);
+        node.deleted = true;
+        return node;
+    }
+
+    // ===== Search =====
+
+    private OrdinalScorer scorer(float[] query) {
+        if (quantizer == null) {
+            return exactScorer(query);
+        }
+        VectorQuantizer.Scorer approximate = quantizer.scorer(query);
+        int codeSize = quantizer.getCodeSize();
+        byte[] codeArray = codes;
+        return ordinal -> approximate.score(codeArray, ordinal * codeSize);
+    }
+
+    private OrdinalScorer exactScorer(float[] query) {
+        return ordinal -> store.dot(ordinal, query);
+    }
+
+    private void encode(int ordinal, float[] vector) {
+        int codeSize = quantizer.getCodeSize();
+        int needed = (ordinal + 1) * codeSize;
+        if (needed > codes.length) {
+            codes = Arrays.copyOf(codes, Math.max(needed, codes.length * 2));
+        }
+        quantizer.encode(vector, codes, ordinal * codeSize);
+    }
+
+    private int greedyClosest(OrdinalScorer scorer, int start, int level) {
+        int current = start;
+        float best = scorer.score(current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            for (int i = 0; i < node.linkCount(level); i++) {
+                int neighbor = node.links[level][i];
+                float similarity = scorer.score(neighbor);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer. Returns up to ef nodes as a worst-first heap.
+     */
+    private PriorityQueue<Candidate> searchLayer(OrdinalScorer scorer, int entry, int ef, int level) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Candidate> toVisit = new PriorityQueue<>(Candidate.BEST_FIRST);
+        PriorityQueue<Candidate> found = new PriorityQueue<>(Candidate.BEST_FIRST.reversed());
+
+        Candidate start = new Candidate(entry, scorer.score(entry));
+        visited.set(entry);
+        toVisit.add(start);
+        found.add(start);
+
+        while (!toVisit.isEmpty()) {
+            Candidate current = toVisit.poll();
+            if (found.size() >= ef && current.similarity < found.peek().similarity) {
+                break;
+            }
+            Node node = nodes.get(current.ordinal);
+            for (int i = 0; i < node.linkCount(level); i++) {
+                int neighbor = node.links[level][i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float similarity = scorer.score(neighbor);
+                if (found.size() < ef || similarity > found.peek().similarity) {
+                    Candidate candidate = new Candidate(neighbor, similarity);
+                    toVisit.add(candidate);
+                    found.add(candidate);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // ===== Persistence =====
+
+    /**
+     * Write the graph (links only; vectors are persisted by the store).
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(efSearch);
+            out.writeInt(nodes.size());
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (Node node : nodes) {
+                out.writeBoolean(node.deleted);
+                out.writeInt(node.level);
+                for (int l = 0; l <= node.level; l++) {
+                    out.writeInt(node.linkCount(l));
+                    for (int j = 0; j < node.linkCount(l); j++) {
+                        out.writeInt(node.links[l][j]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read a graph written by writeTo over the given store.
+     * Throws if the graph does not cover exactly the store's rows.
+     */
+    public static HnswIndex readFrom(DataInputStream in, OffHeapVectorStore store) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported HNSW index format: " + version);
+        }
+        HnswIndex index = new HnswIndex(store, in.readInt(), in.readInt(), in.readInt());
+        int count = in.readInt();
+        if (count != store.size()) {
+            throw new IOException("HNSW graph has " + count + " nodes, store has " + store.size());
+        }
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        for (int i = 0; i < count; i++) {
+            boolean deleted = in.readBoolean();
+            Node node = new Node(in.readInt());
+            node.deleted = deleted || store.isDeleted(i);
+            for (int l = 0; l <= node.level; l++) {
+                int linkCount = in.readInt();
+                int[] links = new int[linkCount];
+                for (int j = 0; j < linkCount; j++) {
+                    links[j] = in.readInt();
+                }
+                node.setLinks(l, links);
+            }
+            index.nodes.add(node);
+            if (node.deleted) {
+                index.deletedCount++;
+            } else {
+                index.ordinals.put(store.idAt(i), i);
+            }
+        }
+        return index;
+    }
+
+    // ===== Types =====
+
+    private interface OrdinalScorer {
+        float score(int ordinal);
+    }
+
+    private static class Node {
+        final int level;
+        final int[][] links;
+        final int[] counts;
+        boolean deleted;
+
+        Node(int level) {
+            this.level = level;
+            this.links = new int[level + 1][];
+            this.counts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[4];
+            }
+        }
+
+        int linkCount(int level) {
+            return level <= this.level ? counts[level] : 0;
+        }
+
+        void addLink(int level, int target) {
+            if (counts[level] == links[level].length) {
+                links[level] = Arrays.copyOf(links[level], links[level].length * 2);
+            }
+            links[level][counts[level]++] = target;
+        }
+
+        void setLinks(int level, int[] targets) {
+            links[level] = targets.length == 0 ? new int[4] : targets.clone();
+            counts[level] = targets.length;
+        }
+    }
+
+    private static class Candidate {
+        static final Comparator<Candidate> BEST_FIRST = (a, b) -> {
+            int cmp = Float.compare(b.similarity, a.similarity);
+            return cmp != 0 ? cmp : Integer.compare(a.ordinal, b.ordinal);
+        };
+
+        final int ordinal;
+        final float similarity;
+
+        Candidate(int ordinal, float similarity) {
+            this.ordinal = ordinal;
+            this.similarity = similarity;
+        }
+    }
+}
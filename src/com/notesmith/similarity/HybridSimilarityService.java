@@ -4,9 +4,14 @@ import com.notesmith.ai.SmartLinkingService;
 import com.notesmith.ai.models.RelatedNote;
 import com.notesmith.config.AppConfig;
 import com.notesmith.model.Note;
+import com.notesmith.persistence.NoteChangeListener;
+import com.notesmith.persistence.NoteSketchRepository;
 import com.notesmith.util.Logger;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -14,25 +19,84 @@ import java.util.stream.Collectors;
  * 
  * Strategy:
  * 1. Use local SimilarityEngine for fast, offline similarity detection
- * 2. Optionally enhance with AI for semantic understanding
- * 3. Merge and re-rank results
+ * 2. Add semantic signal from the local embedding index, if available
+ * 3. Add the AI signal on top, if an AI service was given (opt-in)
+ * 4. Blend the signals once per note and re-rank
+ *
+ * Result lists are cached per target note and invalidated selectively
+ * through the NoteChangeListener callbacks. On large corpora the local
+ * engine only sees the notes in the target's nearest topic clusters, plus
+ * the notes edited around the same time, found through a TemporalIndex.
+ *
+ * Searches may come from several threads (a cancelled search keeps scoring
+ * until it finishes), but the local engine's per-note caches are not
+ * thread-safe, so local scoring runs one search at a time. The embedding
+ * and AI steps run outside that lock. Prefilter calibration runs queued by
+ * budgeted searches happen afterwards on a background thread, under the
+ * same lock.
  */
-public class HybridSimilarityService {
+public class HybridSimilarityService implements NoteChangeListener {
     
     private static final Logger logger = Logger.getLogger(HybridSimilarityService.class);
     
-    private final SimilarityEngine localEngine;
-    private final SmartLinkingService aiService;
+    private final OptimizedSimilarityEngine localEngine;
+    private final SemanticIndex semanticIndex; // null = no embedding signal
+    private final SmartLinkingService aiService; // null = no AI signal
     private final boolean aiEnabled;
+    private final SimilarityResultCache resultCache;
+    private final TopicClusterer topicClusterer; // null = always search all notes
+    private final TemporalIndex temporalIndex = new TemporalIndex();
+    private final Object engineLock = new Object(); // serializes localEngine searches
+    private final ExecutorService calibrationExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "prefilter-calibration");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
     
-    // Weights for hybrid scoring
+    // Relative weights for hybrid scoring, normalized over the signals in use
     private static final double LOCAL_WEIGHT = 0.7;  // Local algorithms
     private static final double AI_WEIGHT = 0.3;     // AI enhancement
+    private static final double SEMANTIC_WEIGHT = 0.3; // Embedding similarity
+    
+    // Cache partitions: the budgeted path never uses AI, so lists differ
+    private static final String MODE_FULL = "full";
+    private static final String MODE_BUDGETED = "budgeted";
+    
+    // Notes edited this close to the target get the full temporal score
+    private static final Duration TEMPORAL_WINDOW = Duration.ofHours(1);
+    private static final int MAX_TEMPORAL_NEIGHBORS = 50;
     
     public HybridSimilarityService() {
-        this.localEngine = new OptimizedSimilarityEngine(); // Use optimized version
-        this.aiEnabled = AppConfig.isAIEnabled();
-        this.aiService = aiEnabled ? new SmartLinkingService() : null;
+        this(null);
+    }
+    
+    public HybridSimilarityService(SemanticIndex semanticIndex) {
+        this(semanticIndex, null);
+    }
+    
+    public HybridSimilarityService(SemanticIndex semanticIndex, NoteSketchRepository sketchRepository) {
+        this(semanticIndex, sketchRepository, null);
+    }
+    
+    public HybridSimilarityService(SemanticIndex semanticIndex, NoteSketchRepository sketchRepository,
+                                   TopicClusterer topicClusterer) {
+        this(semanticIndex, sketchRepository, topicClusterer,
+            semanticIndex == null && AppConfig.isAIEnabled() ? new SmartLinkingService() : null);
+    }
+    
+    /**
+     * @param aiService AI signal merged on top of the local and semantic ones
+     *                  by the unbudgeted findSimilarNotes; null to stay offline
+     */
+    public HybridSimilarityService(SemanticIndex semanticIndex, NoteSketchRepository sketchRepository,
+                                   TopicClusterer topicClusterer, SmartLinkingService aiService) {
+        this.localEngine = new OptimizedSimilarityEngine(sketchRepository); // Use optimized version
+        this.semanticIndex = semanticIndex;
+        this.aiService = aiService;
+        this.aiEnabled = aiService != null;
+        this.resultCache = new SimilarityResultCache(AppConfig.getSimilarityCacheMaxKb() * 1024L);
+        this.topicClusterer = topicClusterer;
     }
     
     /**
@@ -44,37 +108,172 @@ public class HybridSimilarityService {
      * @return List of similar notes with scores and explanations
      */
     public List<SimilarityResult> findSimilarNotes(Note targetNote, List<Note> allNotes, int topN) {
+        List<SimilarityResult> cached = resultCache.get(MODE_FULL, targetNote, allNotes.size(), topN);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long corpusVersion = resultCache.getCorpusVersion();
+        List<SimilarityResult> results = computeSimilarNotes(targetNote, allNotes, topN);
+        resultCache.put(MODE_FULL, targetNote, allNotes.size(), topN, results, corpusVersion);
+        return results;
+    }
+    
+    private List<SimilarityResult> computeSimilarNotes(Note targetNote, List<Note> allNotes, int topN) {
         logger.info("Finding similar notes for: " + targetNote.getTitle());
         
         // Step 1: Get local similarity results (fast, always available)
-        List<SimilarityResult> localResults = localEngine.findSimilarNotes(targetNote, allNotes, topN * 2);
+        List<Note> candidates = searchSpace(targetNote, allNotes);
+        List<SimilarityResult> localResults;
+        synchronized (engineLock) {
+            localResults = localEngine.findSimilarNotes(targetNote, candidates, topN * 2);
+        }
         logger.info("Local engine found " + localResults.size() + " candidates");
         
-        // Step 2: If AI is enabled, enhance with semantic understanding
-        if (aiEnabled && aiService != null) {
+        Map<String, Signals> signals = localSignals(localResults);
+        
+        // Step 2: Semantic signal from the embedding index (no network)
+        boolean semantic = semanticIndex != null;
+        if (semantic) {
+            addSemantic(targetNote, signals, allNotes, topN * 2);
+        }
+        
+        // Step 3: If AI is enabled, enhance with semantic understanding
+        boolean ai = false;
+        if (aiEnabled) {
             try {
-                List<SimilarityResult> enhancedResults = enhanceWithAI(targetNote, localResults, allNotes);
+                addAI(targetNote, signals, allNotes, semantic);
+                ai = true;
                 logger.info("AI enhancement complete");
-                return enhancedResults.stream().limit(topN).collect(Collectors.toList());
             } catch (Exception e) {
                 logger.error("AI enhancement failed, falling back to local results", e);
-                return localResults.stream().limit(topN).collect(Collectors.toList());
             }
         }
         
-        // Step 3: Return local results if AI is disabled
-        return localResults.stream().limit(topN).collect(Collectors.toList());
+        return blend(signals.values(), semantic, ai).stream().limit(topN).collect(Collectors.toList());
+    }
+    
+    /**
+     * Time-budgeted variant for interactive use.
+     * The local engine returns its best ranking when the budget runs out; the
+     * AI service is never consulted here because it cannot honour a deadline.
+     */
+    public SimilaritySearchResult findSimilarNotes(Note targetNote, List<Note> allNotes,
+                                                   int topN, long budgetMillis) {
+        List<SimilarityResult> cached = resultCache.get(MODE_BUDGETED, targetNote, allNotes.size(), topN);
+        if (cached != null) {
+            return new SimilaritySearchResult(cached, true, 1.0);
+        }
+        
+        long corpusVersion = resultCache.getCorpusVersion();
+        long start = System.currentTimeMillis();
+        List<Note> candidates = searchSpace(targetNote, allNotes);
+        SimilaritySearchResult local;
+        boolean calibrate;
+        synchronized (engineLock) {
+            // Time spent waiting for another search counts against the budget
+            long remaining = Math.max(0, budgetMillis - (System.currentTimeMillis() - start));
+            local = localEngine.findSimilarNotes(targetNote, candidates, topN * 2, remaining);
+            calibrate = localEngine.hasPendingCalibration();
+        }
+        if (calibrate) {
+            calibrationExecutor.execute(this::runPendingCalibration);
+        }
+        if (!local.isComplete()) {
+            logger.info(String.format("Similarity budget of %dms exhausted (%.0f%% of candidates scored)",
+                budgetMillis, local.getCompleteness() * 100));
+        }
+        
+        Map<String, Signals> signals = localSignals(local.getResults());
+        boolean semantic = semanticIndex != null;
+        if (semantic) {
+            addSemantic(targetNote, signals, allNotes, topN * 2);
+        }
+        List<SimilarityResult> results = blend(signals.values(), semantic, false).stream()
+            .limit(topN).collect(Collectors.toList());
+        if (local.isComplete()) {
+            // Partial rankings are not cached so the next call can improve on them
+            resultCache.put(MODE_BUDGETED, targetNote, allNotes.size(), topN, results, corpusVersion);
+        }
+        return new SimilaritySearchResult(results, local.isComplete(), local.getCompleteness());
+    }
+    
+    /**
+     * Notes the local engine should score: everything on small corpora,
+     * otherwise the members of the target's nearest topic clusters and the
+     * notes edited within the temporal window of the target.
+     */
+    private List<Note> searchSpace(Note targetNote, List<Note> allNotes) {
+        if (topicClusterer == null || allNotes.size() < AppConfig.getClusterSearchMinNotes()) {
+            return allNotes;
+        }
+        topicClusterer.sync(allNotes);
+        List<Note> restricted = topicClusterer.restrictToNearestClusters(
+            targetNote, allNotes, AppConfig.getClusterSearchProbes());
+        if (restricted.size() == allNotes.size()) {
+            return allNotes; // Clusters could not narrow it down
+        }
+        
+        temporalIndex.sync(allNotes);
+        Set<String> included = new HashSet<>();
+        for (Note note : restricted) {
+            included.add(note.getId());
+        }
+        for (Note note : temporalIndex.findEditedNear(targetNote, TEMPORAL_WINDOW, MAX_TEMPORAL_NEIGHBORS)) {
+            if (included.add(note.getId())) {
+                restricted.add(note);
+            }
+        }
+        logger.info("Topic clusters and edit times narrowed search to " + restricted.size() + " of " + allNotes.size() + " notes");
+        return restricted;
+    }
+    
+    private static Map<String, Signals> localSignals(List<SimilarityResult> localResults) {
+        Map<String, Signals> signals = new LinkedHashMap<>();
+        for (SimilarityResult localResult : localResults) {
+            Signals entry = new Signals(localResult.getNote(), localResult.getReasonBreakdown());
+            entry.local = localResult.getScore();
+            signals.put(localResult.getNote().getId(), entry);
+        }
+        return signals;
+    }
+    
+    /**
+     * Add embedding similarity to every candidate, plus the ANN neighbors
+     * the local engine filtered out.
+     */
+    private void addSemantic(Note targetNote, Map<String, Signals> signals,
+                             List<Note> allNotes, int annCandidates) {
+        semanticIndex.sync(allNotes);
+        
+        for (Signals entry : signals.values()) {
+            entry.setSemantic(semanticIndex.similarity(targetNote.getId(), entry.note.getId()));
+        }
+        
+        Map<String, Note> notesById = new HashMap<>();
+        for (Note note : allNotes) {
+            notesById.put(note.getId(), note);
+        }
+        for (Neighbor neighbor : semanticIndex.findSimilar(targetNote, annCandidates)) {
+            Note note = notesById.get(neighbor.getId());
+            if (note == null || neighbor.getSimilarity() < 0.1 || signals.containsKey(neighbor.getId())) {
+                continue;
+            }
+            Signals entry = new Signals(note, Collections.emptyMap());
+            entry.setSemantic(neighbor.getSimilarity());
+            signals.put(neighbor.getId(), entry);
+        }
     }
     
     /**
-     * Enhance local results with AI semantic understanding.
+     * Add the AI score of the best local (and embedding) candidates, plus
+     * any related notes the AI found among them that were not candidates.
      */
-    private List<SimilarityResult> enhanceWithAI(Note targetNote, List<SimilarityResult> localResults, List<Note> allNotes) {
-        // OPTIMIZATION: Only send top local candidates to AI (not all notes!)
-        // Extract notes from local results + a few extras
-        List<Note> candidatesForAI = localResults.stream()
+    private void addAI(Note targetNote, Map<String, Signals> signals, List<Note> allNotes, boolean semantic) {
+        // OPTIMIZATION: Only send top candidates to AI (not all notes!)
+        List<Note> candidatesForAI = blend(signals.values(), semantic, false).stream()
             .map(SimilarityResult::getNote)
-            .limit(15) // Only top 15 local results
+            .limit(15) // Only top 15 candidates
             .collect(Collectors.toList());
         
         logger.info("Sending " + candidatesForAI.size() + " candidates to AI (not all " + allNotes.size() + " notes)");
@@ -82,63 +281,38 @@ public class HybridSimilarityService {
         // Get AI's perspective on these candidates only
         List<RelatedNote> aiResults = aiService.findRelatedNotes(targetNote, candidatesForAI);
         
-        // Create a map of note ID to AI score
-        Map<String, Double> aiScores = new HashMap<>();
-        Map<String, String> aiReasons = new HashMap<>();
-        
         for (RelatedNote relatedNote : aiResults) {
-            aiScores.put(relatedNote.getNote().getId(), relatedNote.getSimilarityScore());
-            aiReasons.put(relatedNote.getNote().getId(), relatedNote.getReason());
-        }
-        
-        // Merge local and AI scores
-        List<SimilarityResult> mergedResults = new ArrayList<>();
-        
-        for (SimilarityResult localResult : localResults) {
-            String noteId = localResult.getNote().getId();
-            double localScore = localResult.getScore();
-            double aiScore = aiScores.getOrDefault(noteId, 0.0);
-            
-            // Hybrid score: weighted combination
-            double hybridScore = (LOCAL_WEIGHT * localScore) + (AI_WEIGHT * aiScore);
-            
-            // Add AI reason to breakdown
-            Map<String, Double> enhancedBreakdown = new LinkedHashMap<>(localResult.getReasonBreakdown());
-            if (aiScore > 0) {
-                enhancedBreakdown.put("AI Semantic", aiScore);
-                enhancedBreakdown.put("AI Reason", 0.0); // Placeholder for display
-            }
-            
-            mergedResults.add(new SimilarityResult(
-                localResult.getNote(),
-                hybridScore,
-                enhancedBreakdown
-            ));
-        }
-        
-        // Also add any AI-discovered notes that local engine missed
-        for (RelatedNote aiResult : aiResults) {
-            String noteId = aiResult.getNote().getId();
-            boolean alreadyIncluded = mergedResults.stream()
-                .anyMatch(r -> r.getNote().getId().equals(noteId));
-            
-            if (!alreadyIncluded) {
-                Map<String, Double> breakdown = new LinkedHashMap<>();
-                breakdown.put("AI Semantic", aiResult.getSimilarityScore());
-                breakdown.put("AI Reason", 0.0);
-                
-                mergedResults.add(new SimilarityResult(
-                    aiResult.getNote(),
-                    AI_WEIGHT * aiResult.getSimilarityScore(), // Only AI score
-                    breakdown
-                ));
+            Note note = relatedNote.getNote();
+            Signals entry = signals.get(note.getId());
+            if (entry == null) {
+                entry = new Signals(note, Collections.emptyMap());
+                if (semantic) {
+                    entry.setSemantic(semanticIndex.similarity(targetNote.getId(), note.getId()));
+                }
+                signals.put(note.getId(), entry);
             }
+            entry.setAI(relatedNote.getSimilarityScore());
         }
+    }
+    
+    /**
+     * Weighted sum of each note's signals, best first. The weights of the
+     * signals in use are scaled to sum to 1, so a note missing one signal
+     * (e.g. an AI-only find) is scored on the same scale as the others.
+     */
+    private static List<SimilarityResult> blend(Collection<Signals> signals, boolean semantic, boolean ai) {
+        double semanticWeight = semantic ? SEMANTIC_WEIGHT : 0.0;
+        double aiWeight = ai ? AI_WEIGHT : 0.0;
+        double total = LOCAL_WEIGHT + semanticWeight + aiWeight;
         
-        // Re-sort by hybrid score
-        mergedResults.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
-        
-        return mergedResults;
+        List<SimilarityResult> results = new ArrayList<>(signals.size());
+        for (Signals entry : signals) {
+            double score = (LOCAL_WEIGHT * entry.local + semanticWeight * entry.semantic
+                + aiWeight * entry.ai) / total;
+            results.add(new SimilarityResult(entry.note, score, entry.breakdown));
+        }
+        results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return results;
     }
     
     /**
@@ -160,10 +334,89 @@ public class HybridSimilarityService {
         return explanation.toString();
     }
     
+    @Override
+    public void onNoteSaved(Note note) {
+        resultCache.invalidate(note.getId());
+        temporalIndex.invalidate();
+        if (aiService != null) {
+            aiService.onNoteSaved(note);
+        }
+        if (semanticIndex != null) {
+            semanticIndex.onNoteSaved(note);
+        }
+        if (topicClusterer != null) {
+            topicClusterer.onNoteSaved(note);
+        }
+    }
+    
+    @Override
+    public void onNoteDeleted(String noteId) {
+        resultCache.invalidate(noteId);
+        temporalIndex.invalidate();
+        localEngine.forgetNote(noteId);
+        if (aiService != null) {
+            aiService.onNoteDeleted(noteId);
+        }
+        if (semanticIndex != null) {
+            semanticIndex.onNoteDeleted(noteId);
+        }
+        if (topicClusterer != null) {
+            topicClusterer.onNoteDeleted(noteId);
+        }
+    }
+    
+    private void runPendingCalibration() {
+        try {
+            synchronized (engineLock) {
+                localEngine.runPendingCalibration();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Prefilter calibration failed", e);
+        }
+    }
+    
+    /**
+     * See OptimizedSimilarityEngine.setCalibrationInterval.
+     */
+    public void setPrefilterCalibrationInterval(int interval) {
+        synchronized (engineLock) {
+            localEngine.setCalibrationInterval(interval);
+        }
+    }
+    
     /**
      * Check if AI enhancement is available.
      */
     public boolean isAIEnabled() {
         return aiEnabled;
     }
+    
+    /**
+     * Scores of one candidate note from each source, before blending.
+     */
+    private static class Signals {
+        final Note note;
+        final Map<String, Double> breakdown;
+        double local;
+        double semantic;
+        double ai;
+        
+        Signals(Note note, Map<String, Double> localBreakdown) {
+            this.note = note;
+            this.breakdown = new LinkedHashMap<>(localBreakdown);
+        }
+        
+        void setSemantic(double score) {
+            semantic = score;
+            breakdown.put("Semantic", score);
+        }
+        
+        void setAI(double score) {
+            ai = score;
+            if (score > 0) {
+                breakdown.put("AI Semantic", score);
+                breakdown.put("AI Reason", 0.0); // Placeholder for display
+            }
+        }
+    }
 }
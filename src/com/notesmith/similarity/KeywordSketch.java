@@ -0,0 +1,80 @@
+package com.notesmith.similarity;
+
+/**
+ * 1024-bit Bloom filter over a note's keywords.
+ *
+ * Two sketches that share fewer than HASHES set bits cannot have a keyword
+ * in common. Otherwise the Jaccard of the underlying sets is estimated from
+ * the fill of each filter and of their union (Swamidass-Baldi estimator).
+ * Bits are derived from String.hashCode, so persisted sketches stay valid
+ * across runs.
+ */
+public final class KeywordSketch {
+
+    static final int WORDS = 16;
+    private static final int BITS = WORDS * 64;
+    private static final int HASHES = 3;
+
+    private KeywordSketch() {}
+
+    public static long[] build(int[] termIds) {
+        long[] sketch = new long[WORDS];
+        for (int termId : termIds) {
+            int h = TermDictionary.termOf(termId).hashCode();
+            int h1 = mix(h);
+            int h2 = mix(h1 ^ 0x5bd1e995) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (h1 + i * h2) & (BITS - 1);
+                sketch[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * False only if the two keyword sets are certainly disjoint.
+     */
+    public static boolean mayShare(long[] a, long[] b) {
+        int common = 0;
+        for (int i = 0; i < WORDS; i++) {
+            common += Long.bitCount(a[i] & b[i]);
+        }
+        return common >= HASHES;
+    }
+
+    /**
+     * Estimated Jaccard similarity of the keyword sets behind two sketches.
+     */
+    public static double estimateJaccard(long[] a, long[] b) {
+        int bitsA = 0;
+        int bitsB = 0;
+        int bitsUnion = 0;
+        for (int i = 0; i < WORDS; i++) {
+            bitsA += Long.bitCount(a[i]);
+            bitsB += Long.bitCount(b[i]);
+            bitsUnion += Long.bitCount(a[i] | b[i]);
+        }
+        double union = cardinality(bitsUnion);
+        if (union <= 0) {
+            return 0.0;
+        }
+        double intersection = cardinality(bitsA) + cardinality(bitsB) - union;
+        return Math.max(0.0, Math.min(1.0, intersection / union));
+    }
+
+    private static double cardinality(int setBits) {
+        if (setBits >= BITS) {
+            setBits = BITS - 1; // saturated filter
+        }
+        return -((double) BITS / HASHES) * Math.log(1.0 - (double) setBits / BITS);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
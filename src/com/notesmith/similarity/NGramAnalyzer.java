@@ -2,70 +2,126 @@ package com.notesmith.similarity;
 
 import com.notesmith.model.Note;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 /**
  * N-gram analyzer for finding similar phrases between notes.
  * Uses bigrams (2-word) and trigrams (3-word) sequences.
+ * N-gram sets are cached per note version as sorted 64-bit hashes of the
+ * word ids, so comparing two notes is a merge over primitive arrays.
  */
 public class NGramAnalyzer {
     
+    private final Map<String, NGrams> cache = new HashMap<>();
+    
     public double calculate(Note note1, Note note2) {
-        Set<String> bigrams1 = extractNGrams(note1.getContent(), 2);
-        Set<String> bigrams2 = extractNGrams(note2.getContent(), 2);
-        
-        Set<String> trigrams1 = extractNGrams(note1.getContent(), 3);
-        Set<String> trigrams2 = extractNGrams(note2.getContent(), 3);
+        NGrams ngrams1 = getNGrams(note1);
+        NGrams ngrams2 = getNGrams(note2);
         
-        double bigramSim = jaccardSimilarity(bigrams1, bigrams2);
-        double trigramSim = jaccardSimilarity(trigrams1, trigrams2);
+        double bigramSim = jaccardSimilarity(ngrams1.bigrams, ngrams2.bigrams);
+        double trigramSim = jaccardSimilarity(ngrams1.trigrams, ngrams2.trigrams);
         
         // Weight trigrams higher (more specific)
         return (0.4 * bigramSim) + (0.6 * trigramSim);
     }
     
     /**
-     * Extract n-grams from text.
+     * Upper bound on calculate() from set sizes alone:
+     * Jaccard can never exceed min(|A|, |B|) / max(|A|, |B|).
      */
-    private Set<String> extractNGrams(String text, int n) {
-        Set<String> ngrams = new HashSet<>();
-        
-        if (text == null || text.isEmpty()) {
-            return ngrams;
+    public double upperBound(Note note1, Note note2) {
+        NGrams ngrams1 = getNGrams(note1);
+        NGrams ngrams2 = getNGrams(note2);
+        return (0.4 * sizeRatio(ngrams1.bigrams.length, ngrams2.bigrams.length)) +
+               (0.6 * sizeRatio(ngrams1.trigrams.length, ngrams2.trigrams.length));
+    }
+    
+    private static double sizeRatio(int size1, int size2) {
+        if (size1 == 0 || size2 == 0) {
+            return 0.0;
+        }
+        return (double) Math.min(size1, size2) / Math.max(size1, size2);
+    }
+    
+    private NGrams getNGrams(Note note) {
+        NGrams cached = cache.get(note.getId());
+        if (cached != null && cached.version.equals(note.getUpdatedAt())) {
+            return cached;
+        }
+        NGrams ngrams = new NGrams(note.getUpdatedAt(),
+            extractNGrams(note.getContent(), 2), extractNGrams(note.getContent(), 3));
+        cache.put(note.getId(), ngrams);
+        return ngrams;
+    }
+    
+    /**
+     * Extract n-grams from text as sorted, distinct hashes.
+     */
+    private long[] extractNGrams(String text, int n) {
+        int[] words = Tokenizer.termIds(text, 1, null);
+        if (words.length < n) {
+            return new long[0];
         }
         
-        String[] words = text.toLowerCase().split("\\W+");
-        
+        long[] ngrams = new long[words.length - n + 1];
+        int count = 0;
         for (int i = 0; i <= words.length - n; i++) {
-            StringBuilder ngram = new StringBuilder();
+            long hash = 0;
+            int chars = n - 1; // separating spaces
             for (int j = 0; j < n; j++) {
-                if (j > 0) ngram.append(" ");
-                ngram.append(words[i + j]);
+                hash = hash * 0x9E3779B97F4A7C15L + words[i + j] + 1;
+                chars += TermDictionary.termOf(words[i + j]).length();
             }
-            
-            String ngramStr = ngram.toString();
-            if (ngramStr.length() > n * 2) { // Filter very short n-grams
-                ngrams.add(ngramStr);
+            if (chars > n * 2) { // Filter very short n-grams
+                ngrams[count++] = hash;
             }
         }
         
-        return ngrams;
+        Arrays.sort(ngrams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ngrams[i] != ngrams[i - 1]) {
+                ngrams[distinct++] = ngrams[i];
+            }
+        }
+        return Arrays.copyOf(ngrams, distinct);
     }
     
     /**
-     * Jaccard similarity between two sets.
+     * Jaccard similarity between two sorted, distinct arrays.
      */
-    private double jaccardSimilarity(Set<String> set1, Set<String> set2) {
-        if (set1.isEmpty() || set2.isEmpty()) {
+    private double jaccardSimilarity(long[] set1, long[] set2) {
+        if (set1.length == 0 || set2.length == 0) {
             return 0.0;
         }
         
-        Set<String> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
+        int intersection = 0;
+        int i = 0, j = 0;
+        while (i < set1.length && j < set2.length) {
+            if (set1[i] == set2[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (set1[i] < set2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
         
-        Set<String> union = new HashSet<>(set1);
-        union.addAll(set2);
+        return (double) intersection / (set1.length + set2.length - intersection);
+    }
+    
+    private static class NGrams {
+        final LocalDateTime version;
+        final long[] bigrams;
+        final long[] trigrams;
         
-        return (double) intersection.size() / union.size();
+        NGrams(LocalDateTime version, long[] bigrams, long[] trigrams) {
+            this.version = version;
+            this.bigrams = bigrams;
+            this.trigrams = trigrams;
+        }
     }
 }
@@ -0,0 +1,22 @@
+package com.notesmith.similarity;
+
+/**
+ * Vector search hit: note id and cosine similarity.
+ */
+public class Neighbor {
+    private final String id;
+    private final double similarity;
+
+    public Neighbor(String id, double similarity) {
+        this.id = id;
+        this.similarity = similarity;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+}
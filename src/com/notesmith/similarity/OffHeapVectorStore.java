@@ -0,0 +1,406 @@
+package com.notesmith.similarity;
+
+import com.notesmith.util.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Fixed-stride vector rows kept outside the Java heap.
+ *
+ * Rows are addressed by dense ordinals (append order) and live in a
+ * memory-mapped file, so a restart maps the existing vectors instead of
+ * re-embedding, and the OS page cache rather than the GC holds them.
+ * Rows are float32, or int8 with a per-row scale (4x smaller, ~1% error).
+ * Note ids are kept in a small sidecar file next to the rows.
+ *
+ * Row layout: [int flags][float scale][dimension values].
+ */
+public class OffHeapVectorStore implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(OffHeapVectorStore.class);
+
+    public enum Encoding { FLOAT32, INT8 }
+
+    private static final int MAGIC = 0x4E535643; // "NSVC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ROW_HEADER_BYTES = 8;
+    private static final int FLAG_DELETED = 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int dimension;
+    private final Encoding encoding;
+    private final int stride;
+    private final File file;    // null = direct buffer, not persisted
+    private final File idsFile;
+    private FileChannel channel;
+
+    private volatile ByteBuffer buffer;
+    private volatile FloatBuffer floats; // float view of buffer (FLOAT32 rows)
+    private volatile int count;
+    private int capacity;
+    private final List<String> ids = new ArrayList<>(); // by ordinal, guarded by this
+
+    // Per-thread row scratch so kernels run over plain arrays
+    private final ThreadLocal<float[]> floatScratch;
+    private final ThreadLocal<byte[]> byteScratch;
+
+    private OffHeapVectorStore(int dimension, Encoding encoding, File file) {
+        this.dimension = dimension;
+        this.encoding = encoding;
+        this.stride = ROW_HEADER_BYTES + align4(encoding == Encoding.INT8 ? dimension : dimension * 4);
+        this.file = file;
+        this.idsFile = file == null ? null : new File(file.getPath() + ".ids");
+        this.floatScratch = ThreadLocal.withInitial(() -> new float[dimension]);
+        this.byteScratch = ThreadLocal.withInitial(() -> new byte[dimension]);
+    }
+
+    /**
+     * Store backed by a direct buffer; contents are lost on exit.
+     */
+    public static OffHeapVectorStore inMemory(int dimension, Encoding encoding) {
+        OffHeapVectorStore store = new OffHeapVectorStore(dimension, encoding, null);
+        store.capacity = INITIAL_CAPACITY;
+        store.setBuffer(ByteBuffer.allocateDirect(HEADER_BYTES + store.capacity * store.stride));
+        store.writeHeader();
+        return store;
+    }
+
+    /**
+     * Map an existing store, or create an empty one if the file is missing or
+     * was written with a different dimension/encoding.
+     */
+    public static OffHeapVectorStore open(File file, int dimension, Encoding encoding) throws IOException {
+        OffHeapVectorStore store = new OffHeapVectorStore(dimension, encoding, file);
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        store.channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = store.channel.size();
+        if (size >= HEADER_BYTES && store.mapExisting(size)) {
+            logger.info("Mapped " + store.count + " vectors from " + file.getName());
+            return store;
+        }
+
+        store.channel.truncate(0);
+        store.capacity = INITIAL_CAPACITY;
+        store.map();
+        store.count = 0;
+        store.writeHeader();
+        return store;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Number of rows, including deleted ones (ordinals are never reused until clear()).
+     */
+    public int size() {
+        return count;
+    }
+
+    public synchronized String idAt(int ordinal) {
+        return ids.get(ordinal);
+    }
+
+    public boolean isDeleted(int ordinal) {
+        return (buffer.getInt(rowOffset(ordinal)) & FLAG_DELETED) != 0;
+    }
+
+    /**
+     * Append a row and return its ordinal.
+     */
+    public synchronized int append(String id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + ", got " + vector.length);
+        }
+        if (count == capacity) {
+            grow();
+        }
+        int ordinal = count;
+        writeRow(buffer, rowOffset(ordinal), vector);
+        ids.add(id);
+        count = ordinal + 1;
+        buffer.putInt(16, count);
+        return ordinal;
+    }
+
+    public synchronized void markDeleted(int ordinal) {
+        int offset = rowOffset(ordinal);
+        buffer.putInt(offset, buffer.getInt(offset) | FLAG_DELETED);
+    }
+
+    /**
+     * Drop all rows (keeps the mapping for reuse).
+     */
+    public synchronized void clear() {
+        ids.clear();
+        count = 0;
+        buffer.putInt(16, 0);
+    }
+
+    /**
+     * Copy of the row as floats (dequantized for int8).
+     */
+    public float[] get(int ordinal) {
+        float[] out = new float[dimension];
+        read(ordinal, out);
+        return out;
+    }
+
+    public void read(int ordinal, float[] out) {
+        int offset = rowOffset(ordinal);
+        int data = offset + ROW_HEADER_BYTES;
+        if (encoding == Encoding.FLOAT32) {
+            floats.get(data / 4, out, 0, dimension);
+        } else {
+            ByteBuffer buf = buffer;
+            byte[] bytes = byteScratch.get();
+            buf.get(data, bytes, 0, dimension);
+            float scale = buf.getFloat(offset + 4);
+            for (int i = 0; i < dimension; i++) {
+                out[i] = bytes[i] * scale;
+            }
+        }
+    }
+
+    /**
+     * Dot product of a stored row with a query vector.
+     */
+    public float dot(int ordinal, float[] query) {
+        int offset = rowOffset(ordinal);
+        int data = offset + ROW_HEADER_BYTES;
+        if (encoding == Encoding.FLOAT32) {
+            float[] row = floatScratch.get();
+            floats.get(data / 4, row, 0, dimension);
+            return VectorMath.dot(row, query);
+        }
+        ByteBuffer buf = buffer;
+        byte[] bytes = byteScratch.get();
+        buf.get(data, bytes, 0, dimension);
+        return VectorMath.dot(bytes, 0, query, dimension) * buf.getFloat(offset + 4);
+    }
+
+    /**
+     * Exact top-k over all live rows.
+     */
+    public List<Neighbor> scan(float[] query, int k) {
+        return scanBatch(new float[][] {query}, k).get(0);
+    }
+
+    /**
+     * Exact top-k for several queries in one pass over the rows,
+     * so each row is read from memory once rather than once per query.
+     */
+    public List<List<Neighbor>> scanBatch(float[][] queries, int k) {
+        int n = count;
+        List<PriorityQueue<Neighbor>> heaps = new ArrayList<>();
+        for (int q = 0; q < queries.length; q++) {
+            heaps.add(new PriorityQueue<>(Comparator.comparingDouble(Neighbor::getSimilarity)));
+        }
+
+        // Rows are read in blocks and scored against every query while in cache
+        int block = Math.max(1, 16384 / dimension);
+        float[] rows = new float[block * dimension];
+        float[] scores = new float[block];
+        boolean[] deleted = new boolean[block];
+        for (int start = 0; start < n; start += block) {
+            int rowCount = Math.min(block, n - start);
+            for (int r = 0; r < rowCount; r++) {
+                deleted[r] = isDeleted(start + r);
+                if (!deleted[r]) {
+                    readInto(start + r, rows, r * dimension);
+                }
+            }
+            for (int q = 0; q < queries.length; q++) {
+                VectorMath.dotMany(queries[q], rows, rowCount, scores);
+                PriorityQueue<Neighbor> heap = heaps.get(q);
+                for (int r = 0; r < rowCount; r++) {
+                    if (deleted[r]) {
+                        continue;
+                    }
+                    offer(heap, k, start + r, scores[r]);
+                }
+            }
+        }
+
+        List<List<Neighbor>> results = new ArrayList<>();
+        for (PriorityQueue<Neighbor> heap : heaps) {
+            List<Neighbor> sorted = new ArrayList<>(heap);
+            sorted.sort((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()));
+            results.add(sorted);
+        }
+        return results;
+    }
+
+    private void offer(PriorityQueue<Neighbor> heap, int k, int ordinal, float score) {
+        if (heap.size() < k) {
+            heap.add(new Neighbor(idAt(ordinal), score));
+        } else if (score > heap.peek().getSimilarity()) {
+            heap.poll();
+            heap.add(new Neighbor(idAt(ordinal), score));
+        }
+    }
+
+    private void readInto(int ordinal, float[] out, int outOffset) {
+        if (encoding == Encoding.FLOAT32) {
+            floats.get((rowOffset(ordinal) + ROW_HEADER_BYTES) / 4, out, outOffset, dimension);
+            return;
+        }
+        float[] row = floatScratch.get();
+        read(ordinal, row);
+        System.arraycopy(row, 0, out, outOffset, dimension);
+    }
+
+    /**
+     * Write mapped rows and the id sidecar to disk.
+     */
+    public synchronized void flush() throws IOException {
+        if (file == null) {
+            return;
+        }
+        ((java.nio.MappedByteBuffer) buffer).force();
+        File tmp = new File(idsFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeUTF(ids.get(i));
+            }
+        }
+        Files.move(tmp.toPath(), idsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // ===== Internals =====
+
+    private boolean mapExisting(long size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION
+                || header.getInt(8) != encoding.ordinal() || header.getInt(12) != dimension) {
+            logger.info("Vector store format changed, starting empty: " + file.getName());
+            return false;
+        }
+        capacity = (int) ((size - HEADER_BYTES) / stride);
+        int storedCount = Math.min(header.getInt(16), capacity);
+        if (capacity == 0) {
+            return false;
+        }
+        map();
+
+        // Rows beyond the last flushed id list are unaddressable; drop them
+        List<String> storedIds = readIds();
+        count = Math.min(storedCount, storedIds.size());
+        ids.addAll(storedIds.subList(0, count));
+        buffer.putInt(16, count);
+        return true;
+    }
+
+    private List<String> readIds() {
+        List<String> result = new ArrayList<>();
+        if (!idsFile.exists()) {
+            return result;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(idsFile)))) {
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                result.add(in.readUTF());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read vector ids: " + e.getMessage());
+            result.clear();
+        }
+        return result;
+    }
+
+    private void map() throws IOException {
+        setBuffer(channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * stride));
+    }
+
+    private void setBuffer(ByteBuffer newBuffer) {
+        newBuffer.clear();
+        newBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        floats = newBuffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        buffer = newBuffer;
+    }
+
+    private void grow() {
+        int newCapacity = capacity * 2;
+        if (file == null) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(HEADER_BYTES + newCapacity * stride);
+            ByteBuffer old = buffer.duplicate();
+            old.clear();
+            bigger.put(old);
+            capacity = newCapacity;
+            setBuffer(bigger);
+            return;
+        }
+        try {
+            capacity = newCapacity;
+            map(); // mapping past EOF extends the file; the old mapping stays valid for readers
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow vector store", e);
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(8, encoding.ordinal());
+        buffer.putInt(12, dimension);
+        buffer.putInt(16, count);
+    }
+
+    private void writeRow(ByteBuffer buf, int offset, float[] vector) {
+        buf.putInt(offset, 0);
+        int data = offset + ROW_HEADER_BYTES;
+        if (encoding == Encoding.FLOAT32) {
+            buf.putFloat(offset + 4, 1f);
+            for (int i = 0; i < dimension; i++) {
+                buf.putFloat(data + 4 * i, vector[i]);
+            }
+            return;
+        }
+        float max = 0f;
+        for (float v : vector) {
+            max = Math.max(max, Math.abs(v));
+        }
+        float scale = max == 0f ? 1f : max / 127f;
+        buf.putFloat(offset + 4, scale);
+        for (int i = 0; i < dimension; i++) {
+            buf.put(data + i, (byte) Math.round(vector[i] / scale));
+        }
+    }
+
+    private int rowOffset(int ordinal) {
+        return HEADER_BYTES + ordinal * stride;
+    }
+
+    private static int align4(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+}
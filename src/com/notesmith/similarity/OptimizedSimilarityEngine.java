@@ -1,10 +1,14 @@
 package com.notesmith.similarity;
 
+import com.notesmith.config.AppConfig;
+import com.notesmith.exception.PersistenceException;
 import com.notesmith.model.Note;
+import com.notesmith.model.NoteSketch;
+import com.notesmith.persistence.NoteSketchRepository;
 import com.notesmith.util.Logger;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Optimized similarity engine with two-stage filtering.
@@ -13,16 +17,53 @@ import java.util.stream.Collectors;
  * Stage 2: Deep analysis on top candidates only
  * 
  * This dramatically reduces computation and API costs.
+ *
+ * Keyword overlap in stage 1 is screened with per-note Bloom sketches, which
+ * are built once per note version and persisted when a repository is given.
+ * Keyword sets are only materialized for pairs the sketches cannot reject.
+ *
+ * The number of stage-1 candidates adapts per search: it is the knee of the
+ * sorted quick-score curve, but at least the depth that recent exact runs
+ * showed is needed to reach the target recall. Every Nth search also runs
+ * stage 2 over all notes to measure that depth; see getPrefilterStats().
+ * Budgeted searches count towards N too, but cannot afford the exact run:
+ * they queue it for runPendingCalibration() instead.
  */
 public class OptimizedSimilarityEngine extends SimilarityEngine {
     
     private static final Logger logger = Logger.getLogger(OptimizedSimilarityEngine.class);
     
-    // Stage 1: How many candidates to keep for deep analysis
-    private static final int PREFILTER_CANDIDATES = 20;
+    // Stage 1: Depth assumed before the first exact run (the old fixed candidate count)
+    private static final int INITIAL_DEPTH = 20;
     
-    // Stage 1: Minimum score to even consider (filters obvious non-matches)
-    private static final double PREFILTER_THRESHOLD = 0.05;
+    // Weight of the newest exact run in the learned depth
+    private static final double DEPTH_SMOOTHING = 0.3;
+    
+    // Estimated keyword Jaccard below which a pair counts as no overlap
+    private static final double SKETCH_REJECT_JACCARD = 0.01;
+    
+    private final NoteSketchRepository sketchRepository; // null = keep sketches in memory only
+    private final Map<String, KeywordEntry> keywordCache = new HashMap<>();
+    private final List<NoteSketch> unsavedSketches = new ArrayList<>();
+    private Map<String, NoteSketch> storedSketches;
+    
+    private final double prefilterThreshold = AppConfig.getPrefilterThreshold();
+    private final int minCandidates = AppConfig.getPrefilterMinCandidates();
+    private final int maxCandidates = AppConfig.getPrefilterMaxCandidates();
+    private final double targetRecall = AppConfig.getPrefilterTargetRecall();
+    private int calibrationInterval = AppConfig.getPrefilterCalibrationInterval();
+    private final PrefilterStats prefilterStats = new PrefilterStats();
+    private double learnedDepth = INITIAL_DEPTH;
+    private long searchCount;
+    private PendingCalibration pendingCalibration; // queued by a budgeted search
+    
+    public OptimizedSimilarityEngine() {
+        this(null);
+    }
+    
+    public OptimizedSimilarityEngine(NoteSketchRepository sketchRepository) {
+        this.sketchRepository = sketchRepository;
+    }
     
     @Override
     public List<SimilarityResult> findSimilarNotes(Note targetNote, List<Note> allNotes, int topN) {
@@ -30,21 +71,176 @@ public class OptimizedSimilarityEngine extends SimilarityEngine {
         logger.info("Total notes to search: " + allNotes.size());
         
         // Stage 1: Fast pre-filtering
-        List<Note> candidates = prefilterCandidates(targetNote, allNotes);
+        long start = System.nanoTime();
+        List<CandidateScore> ranked = prefilterCandidates(targetNote, allNotes);
+        List<Note> candidates = topCandidates(ranked, candidateCount(ranked, topN));
+        long stage1 = System.nanoTime() - start;
         logger.info("Pre-filter reduced to " + candidates.size() + " candidates");
         
         // Stage 2: Deep analysis on candidates only
         List<SimilarityResult> results = super.findSimilarNotes(targetNote, candidates, topN);
+        prefilterStats.recordSearch(candidates.size(), stage1, System.nanoTime() - start - stage1);
         logger.info("Final results: " + results.size());
         
+        if (calibrationDue()) {
+            pendingCalibration = null; // superseded by this run
+            return calibrate(targetNote, allNotes, ranked, candidates.size(), topN);
+        }
         return results;
     }
     
+    @Override
+    public SimilaritySearchResult findSimilarNotes(Note targetNote, List<Note> allNotes,
+                                                   int topN, long budgetMillis) {
+        long start = System.nanoTime();
+        List<CandidateScore> ranked = prefilterCandidates(targetNote, allNotes);
+        List<Note> candidates = topCandidates(ranked, candidateCount(ranked, topN));
+        long stage1 = System.nanoTime() - start;
+        long remaining = Math.max(0, budgetMillis - stage1 / 1_000_000);
+        SimilaritySearchResult result = super.findSimilarNotes(targetNote, candidates, topN, remaining);
+        prefilterStats.recordSearch(candidates.size(), stage1, System.nanoTime() - start - stage1);
+        
+        if (calibrationDue()) {
+            // The note list may change once the caller has its result
+            pendingCalibration = new PendingCalibration(targetNote, new ArrayList<>(allNotes),
+                ranked, candidates.size(), topN);
+        }
+        return result;
+    }
+    
+    /**
+     * Whether a budgeted search has queued a calibration run.
+     */
+    public boolean hasPendingCalibration() {
+        return pendingCalibration != null;
+    }
+    
+    /**
+     * Run the exact calibration search queued by the latest budgeted search,
+     * outside its budget. Does nothing if none is queued.
+     */
+    public void runPendingCalibration() {
+        PendingCalibration pending = pendingCalibration;
+        if (pending == null) {
+            return;
+        }
+        pendingCalibration = null;
+        calibrate(pending.targetNote, pending.allNotes, pending.ranked, pending.used, pending.topN);
+    }
+    
+    private boolean calibrationDue() {
+        return calibrationInterval > 0 && searchCount++ % calibrationInterval == 0;
+    }
+    
+    /**
+     * Run an exact calibration search every interval-th search (0 = never).
+     * Offline measurements turn it off so every query is a plain prefiltered
+     * search; the candidate depth then stays at what was learned so far.
+     */
+    public void setCalibrationInterval(int interval) {
+        this.calibrationInterval = Math.max(0, interval);
+    }
+    
+    /**
+     * Recall and latency of the prefilter so far.
+     */
+    public PrefilterStats getPrefilterStats() {
+        return prefilterStats;
+    }
+    
+    /**
+     * How many ranked candidates go to stage 2: the knee of the score curve,
+     * raised to the learned depth and to topN, capped by the configured
+     * maximum and by the number of candidates above the threshold.
+     */
+    private int candidateCount(List<CandidateScore> ranked, int topN) {
+        int limit = Math.min(ranked.size(), maxCandidates);
+        int count = Math.max(kneeIndex(ranked, limit) + 1, (int) Math.ceil(learnedDepth));
+        count = Math.max(count, Math.max(minCandidates, topN));
+        return Math.min(count, limit);
+    }
+    
+    /**
+     * Knee of the descending score curve over the first limit entries: the
+     * point farthest below the straight line from the first score to the last.
+     */
+    private static int kneeIndex(List<CandidateScore> ranked, int limit) {
+        if (limit < 3) {
+            return limit - 1;
+        }
+        double first = ranked.get(0).score;
+        double last = ranked.get(limit - 1).score;
+        double range = first - last;
+        if (range <= 0) {
+            return limit - 1; // Flat curve: no knee, keep everything
+        }
+        int knee = 0;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < limit; i++) {
+            double x = i / (double) (limit - 1);
+            double y = (ranked.get(i).score - last) / range;
+            double gap = (1.0 - x) - y;
+            if (gap > best) {
+                best = gap;
+                knee = i;
+            }
+        }
+        return knee;
+    }
+    
+    /**
+     * Exact run: stage 2 over every note. Measures the recall the chosen
+     * candidate count achieved and the depth that would have met the target,
+     * which feeds the learned depth. Returns the exact results.
+     */
+    private List<SimilarityResult> calibrate(Note targetNote, List<Note> allNotes,
+                                             List<CandidateScore> ranked, int used, int topN) {
+        long start = System.nanoTime();
+        List<SimilarityResult> exact = super.findSimilarNotes(targetNote, allNotes, topN);
+        long exactNanos = System.nanoTime() - start;
+        if (exact.isEmpty()) {
+            return exact;
+        }
+        
+        Map<String, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ranked.size(); i++) {
+            rank.put(ranked.get(i).note.getId(), i);
+        }
+        int[] depths = new int[exact.size()];
+        int found = 0;
+        for (int i = 0; i < exact.size(); i++) {
+            // Below the threshold counts as out of reach
+            depths[i] = rank.getOrDefault(exact.get(i).getNote().getId(), Integer.MAX_VALUE);
+            if (depths[i] < used) {
+                found++;
+            }
+        }
+        Arrays.sort(depths);
+        int needed = Math.max(1, (int) Math.ceil(targetRecall * exact.size()));
+        int depth = depths[needed - 1] == Integer.MAX_VALUE ? maxCandidates : depths[needed - 1] + 1;
+        depth = Math.min(depth, maxCandidates);
+        
+        learnedDepth = (1 - DEPTH_SMOOTHING) * learnedDepth + DEPTH_SMOOTHING * depth;
+        prefilterStats.recordCalibration(found / (double) exact.size(), depth, exactNanos);
+        logger.info(String.format("Prefilter calibration: recall %.2f with %d candidates, %d needed; %s",
+            found / (double) exact.size(), used, depth, prefilterStats.getStats()));
+        return exact;
+    }
+    
+    private static List<Note> topCandidates(List<CandidateScore> ranked, int count) {
+        List<Note> notes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            notes.add(ranked.get(i).note);
+        }
+        return notes;
+    }
+    
     /**
      * Stage 1: Fast pre-filtering using cheap algorithms.
-     * Returns top candidates worth analyzing deeply.
+     * Returns every candidate above the threshold, best quick score first.
      */
-    private List<Note> prefilterCandidates(Note targetNote, List<Note> allNotes) {
+    private List<CandidateScore> prefilterCandidates(Note targetNote, List<Note> allNotes) {
+        loadStoredSketches();
         List<CandidateScore> scored = new ArrayList<>();
         
         for (Note candidate : allNotes) {
@@ -55,18 +251,16 @@ public class OptimizedSimilarityEngine extends SimilarityEngine {
             
             double score = quickScore(targetNote, candidate);
             
-            if (score > PREFILTER_THRESHOLD) {
+            if (score > prefilterThreshold) {
                 scored.add(new CandidateScore(candidate, score));
             }
         }
         
-        // Sort by quick score and take top N
-        scored.sort((a, b) -> Double.compare(b.score, a.score));
+        saveNewSketches();
         
-        return scored.stream()
-            .limit(PREFILTER_CANDIDATES)
-            .map(cs -> cs.note)
-            .collect(Collectors.toList());
+        // Sort by quick score; candidateCount() decides how many go on
+        scored.sort((a, b) -> Double.compare(b.score, a.score));
+        return scored;
     }
     
     /**
@@ -97,20 +291,7 @@ public class OptimizedSimilarityEngine extends SimilarityEngine {
     }
     
     private double quickTagSimilarity(Note note1, Note note2) {
-        Set<String> tags1 = new HashSet<>(note1.getTags());
-        Set<String> tags2 = new HashSet<>(note2.getTags());
-        
-        if (tags1.isEmpty() || tags2.isEmpty()) {
-            return 0.0;
-        }
-        
-        Set<String> intersection = new HashSet<>(tags1);
-        intersection.retainAll(tags2);
-        
-        Set<String> union = new HashSet<>(tags1);
-        union.addAll(tags2);
-        
-        return (double) intersection.size() / union.size();
+        return calculateTagSimilarity(note1, note2);
     }
     
     private double quickTitleSimilarity(Note note1, Note note2) {
@@ -133,46 +314,91 @@ public class OptimizedSimilarityEngine extends SimilarityEngine {
     }
     
     private double quickKeywordOverlap(Note note1, Note note2) {
-        // Extract only important words (> 4 chars, not too common)
-        Set<String> keywords1 = extractKeywords(note1.getContent());
-        Set<String> keywords2 = extractKeywords(note2.getContent());
+        KeywordEntry keywords1 = keywordsOf(note1);
+        KeywordEntry keywords2 = keywordsOf(note2);
         
-        if (keywords1.isEmpty() || keywords2.isEmpty()) {
+        // Cheap rejection on the sketches before touching the keyword sets
+        if (!KeywordSketch.mayShare(keywords1.sketch, keywords2.sketch) ||
+            KeywordSketch.estimateJaccard(keywords1.sketch, keywords2.sketch) < SKETCH_REJECT_JACCARD) {
             return 0.0;
         }
         
-        Set<String> intersection = new HashSet<>(keywords1);
-        intersection.retainAll(keywords2);
-        
         // Jaccard similarity
-        Set<String> union = new HashSet<>(keywords1);
-        union.addAll(keywords2);
-        
-        return (double) intersection.size() / union.size();
+        return VectorMath.jaccard(keywords1.keywords(note1), keywords2.keywords(note2));
     }
     
-    private Set<String> extractKeywords(String text) {
-        if (text == null || text.isEmpty()) {
-            return Collections.emptySet();
+    /**
+     * Keyword sketch for the note's current version: from the cache, from the
+     * repository, or built (and queued for saving) on first use.
+     */
+    private KeywordEntry keywordsOf(Note note) {
+        KeywordEntry entry = keywordCache.get(note.getId());
+        if (entry != null && entry.version.equals(note.getUpdatedAt())) {
+            return entry;
         }
         
-        return Arrays.stream(text.toLowerCase().split("\\W+"))
-            .filter(word -> word.length() > 4) // Only longer words
-            .filter(word -> !isCommonWord(word)) // Filter common words
-            .limit(50) // Only top 50 words to keep it fast
-            .collect(Collectors.toSet());
+        NoteSketch stored = storedSketches == null ? null : storedSketches.remove(note.getId());
+        if (stored != null && stored.isCurrentFor(note)) {
+            entry = new KeywordEntry(note.getUpdatedAt(), stored.getKeywordBloom(), null);
+        } else {
+            int[] keywords = extractKeywords(note.getContent());
+            entry = new KeywordEntry(note.getUpdatedAt(), KeywordSketch.build(keywords), keywords);
+            if (sketchRepository != null) {
+                unsavedSketches.add(new NoteSketch(note.getId(), entry.sketch, note.getUpdatedAt()));
+            }
+        }
+        keywordCache.put(note.getId(), entry);
+        return entry;
     }
     
-    private static final Set<String> COMMON_WORDS = new HashSet<>(Arrays.asList(
+    private void loadStoredSketches() {
+        if (sketchRepository == null || storedSketches != null) {
+            return;
+        }
+        storedSketches = new HashMap<>();
+        try {
+            for (NoteSketch sketch : sketchRepository.findAll()) {
+                storedSketches.put(sketch.getNoteId(), sketch);
+            }
+            logger.info("Loaded " + storedSketches.size() + " keyword sketches");
+        } catch (PersistenceException e) {
+            logger.warn("Could not load keyword sketches, rebuilding: " + e.getMessage());
+        }
+    }
+    
+    private void saveNewSketches() {
+        if (unsavedSketches.isEmpty()) {
+            return;
+        }
+        try {
+            sketchRepository.saveAll(unsavedSketches);
+        } catch (PersistenceException e) {
+            logger.warn("Could not save keyword sketches: " + e.getMessage());
+        }
+        unsavedSketches.clear();
+    }
+    
+    /**
+     * Sorted, distinct term ids of the note's keywords.
+     */
+    private static int[] extractKeywords(String text) {
+        int[] keywords = Tokenizer.termIds(text, 5, COMMON_WORDS); // Only longer, uncommon words
+        Arrays.sort(keywords);
+        int n = 0;
+        for (int i = 0; i < keywords.length; i++) {
+            if (i == 0 || keywords[i] != keywords[i - 1]) {
+                keywords[n++] = keywords[i];
+            }
+        }
+        return Arrays.copyOf(keywords, n);
+    }
+    
+    private static final StopWords COMMON_WORDS = StopWords.of(
         "about", "after", "before", "being", "could", "every", "first",
         "found", "great", "having", "might", "never", "other", "should",
         "their", "there", "these", "thing", "think", "those", "under",
         "where", "which", "while", "would", "write"
-    ));
-    
-    private boolean isCommonWord(String word) {
-        return COMMON_WORDS.contains(word);
-    }
+    );
     
     private double quickTemporalScore(Note note1, Note note2) {
         long diff = Math.abs(
@@ -192,6 +418,49 @@ public class OptimizedSimilarityEngine extends SimilarityEngine {
         }
     }
     
+    /**
+     * Keyword sketch of one note version; the keyword set itself is only
+     * extracted once a comparison gets past the sketch.
+     */
+    private static class KeywordEntry {
+        final LocalDateTime version;
+        final long[] sketch;
+        private int[] keywords;
+        
+        KeywordEntry(LocalDateTime version, long[] sketch, int[] keywords) {
+            this.version = version;
+            this.sketch = sketch;
+            this.keywords = keywords;
+        }
+        
+        int[] keywords(Note note) {
+            if (keywords == null) {
+                keywords = extractKeywords(note.getContent());
+            }
+            return keywords;
+        }
+    }
+    
+    /**
+     * Inputs of a calibration run deferred by a budgeted search.
+     */
+    private static class PendingCalibration {
+        final Note targetNote;
+        final List<Note> allNotes;
+        final List<CandidateScore> ranked;
+        final int used;
+        final int topN;
+        
+        PendingCalibration(Note targetNote, List<Note> allNotes, List<CandidateScore> ranked,
+                           int used, int topN) {
+            this.targetNote = targetNote;
+            this.allNotes = allNotes;
+            this.ranked = ranked;
+            this.used = used;
+            this.topN = topN;
+        }
+    }
+    
     /**
      * Helper class for pre-filtering stage.
      */
@@ -0,0 +1,77 @@
+package com.notesmith.similarity;
+
+/**
+ * Running statistics of the stage-1 prefilter: how many candidates it passed
+ * on, how long each stage took and, from the periodic exact runs, how much
+ * of the exact top N the candidates actually contained.
+ */
+public class PrefilterStats {
+
+    private long searches;
+    private long candidates;
+    private long stage1Nanos;
+    private long stage2Nanos;
+    private long calibrations;
+    private double recallSum;
+    private long depthSum;
+    private long exactNanos;
+
+    synchronized void recordSearch(int candidateCount, long stage1, long stage2) {
+        searches++;
+        candidates += candidateCount;
+        stage1Nanos += stage1;
+        stage2Nanos += stage2;
+    }
+
+    synchronized void recordCalibration(double recall, int depthNeeded, long exactRunNanos) {
+        calibrations++;
+        recallSum += recall;
+        depthSum += depthNeeded;
+        exactNanos += exactRunNanos;
+    }
+
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    public synchronized double getMeanCandidates() {
+        return searches == 0 ? 0.0 : candidates / (double) searches;
+    }
+
+    public synchronized double getMeanStage1Millis() {
+        return searches == 0 ? 0.0 : stage1Nanos / 1e6 / searches;
+    }
+
+    public synchronized double getMeanStage2Millis() {
+        return searches == 0 ? 0.0 : stage2Nanos / 1e6 / searches;
+    }
+
+    public synchronized long getCalibrations() {
+        return calibrations;
+    }
+
+    /**
+     * Mean fraction of the exact top N found among the candidates.
+     */
+    public synchronized double getMeanRecall() {
+        return calibrations == 0 ? 0.0 : recallSum / calibrations;
+    }
+
+    /**
+     * Mean candidate count that would have reached the target recall.
+     */
+    public synchronized double getMeanDepthNeeded() {
+        return calibrations == 0 ? 0.0 : depthSum / (double) calibrations;
+    }
+
+    public synchronized double getMeanExactMillis() {
+        return calibrations == 0 ? 0.0 : exactNanos / 1e6 / calibrations;
+    }
+
+    public synchronized String getStats() {
+        return String.format("%d searches, %.1f candidates, stage 1 %.1f ms, stage 2 %.1f ms; " +
+                "%d exact runs, recall %.3f, depth needed %.1f, exact %.1f ms",
+            searches, getMeanCandidates(), getMeanStage1Millis(), getMeanStage2Millis(),
+            calibrations, getMeanRecall(), getMeanDepthNeeded(), getMeanExactMillis());
+    }
+}
@@ -0,0 +1,161 @@
+package com.notesmith.similarity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Product quantization: the vector is split into subspaces and each slice is
+ * replaced by the id of its nearest centroid (one byte per subspace).
+ * With 256 dimensions and 32 subspaces a vector shrinks from 1 KB to 32 bytes.
+ *
+ * Scoring uses asymmetric distance computation: per query, the dot product of
+ * each query slice with every centroid is tabulated once, and scoring a code
+ * is one table lookup per subspace.
+ */
+public class ProductQuantizer implements VectorQuantizer {
+
+    private static final int CENTROIDS = 256;
+    private static final int ITERATIONS = 8;
+    private static final int MAX_TRAINING_VECTORS = 4096;
+
+    private final int dimension;
+    private final int subspaces;
+    private final int[] starts; // first dimension of each subspace (plus end sentinel)
+    private float[][] centroids; // [subspace][centroid * subDim + d]
+    private int centroidCount;
+
+    public ProductQuantizer(int dimension, int subspaces) {
+        this.dimension = dimension;
+        this.subspaces = Math.max(1, Math.min(subspaces, dimension));
+        this.starts = new int[this.subspaces + 1];
+        for (int m = 0; m <= this.subspaces; m++) {
+            starts[m] = m * dimension / this.subspaces;
+        }
+    }
+
+    @Override
+    public void train(List<float[]> sample) {
+        List<float[]> training = new ArrayList<>(sample);
+        Random random = new Random(42);
+        Collections.shuffle(training, random);
+        if (training.size() > MAX_TRAINING_VECTORS) {
+            training = training.subList(0, MAX_TRAINING_VECTORS);
+        }
+        centroidCount = Math.max(1, Math.min(CENTROIDS, training.size()));
+        centroids = new float[subspaces][];
+        for (int m = 0; m < subspaces; m++) {
+            centroids[m] = kMeans(training, starts[m], starts[m + 1] - starts[m]);
+        }
+    }
+
+    @Override
+    public boolean isTrained() {
+        return centroids != null;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return subspaces;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes, int offset) {
+        for (int m = 0; m < subspaces; m++) {
+            codes[offset + m] = (byte) nearest(centroids[m], vector, starts[m], starts[m + 1] - starts[m]);
+        }
+    }
+
+    @Override
+    public void decode(byte[] codes, int offset, float[] out) {
+        for (int m = 0; m < subspaces; m++) {
+            int subDim = starts[m + 1] - starts[m];
+            int centroid = codes[offset + m] & 0xFF;
+            System.arraycopy(centroids[m], centroid * subDim, out, starts[m], subDim);
+        }
+    }
+
+    @Override
+    public Scorer scorer(float[] query) {
+        float[] table = new float[subspaces * CENTROIDS];
+        for (int m = 0; m < subspaces; m++) {
+            int start = starts[m];
+            int subDim = starts[m + 1] - start;
+            for (int c = 0; c < centroidCount; c++) {
+                table[m * CENTROIDS + c] = VectorMath.dot(centroids[m], c * subDim, query, start, subDim);
+            }
+        }
+        return (codes, offset) -> {
+            float sum = 0f;
+            for (int m = 0; m < subspaces; m++) {
+                sum += table[m * CENTROIDS + (codes[offset + m] & 0xFF)];
+            }
+            return sum;
+        };
+    }
+
+    /**
+     * Lloyd's k-means on one subspace, seeded with distinct sample points.
+     */
+    private float[] kMeans(List<float[]> training, int start, int subDim) {
+        int k = centroidCount;
+        float[] result = new float[k * subDim];
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(training.get(c), start, result, c * subDim, subDim);
+        }
+
+        int[] assignment = new int[training.size()];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int i = 0; i < training.size(); i++) {
+                int c = nearest(result, training.get(i), start, subDim);
+                if (c != assignment[i] || iteration == 0) {
+                    changed = true;
+                }
+                assignment[i] = c;
+            }
+            if (!changed) {
+                break;
+            }
+
+            float[] sums = new float[k * subDim];
+            int[] counts = new int[k];
+            for (int i = 0; i < training.size(); i++) {
+                int c = assignment[i];
+                counts[c]++;
+                float[] vector = training.get(i);
+                for (int d = 0; d < subDim; d++) {
+                    sums[c * subDim + d] += vector[start + d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    continue; // keep the old centroid for empty clusters
+                }
+                for (int d = 0; d < subDim; d++) {
+                    result[c * subDim + d] = sums[c * subDim + d] / counts[c];
+                }
+            }
+        }
+        return result;
+    }
+
+    private int nearest(float[] subCentroids, float[] vector, int start, int subDim) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < centroidCount; c++) {
+            float distance = 0f;
+            int base = c * subDim;
+            for (int d = 0; d < subDim; d++) {
+                float diff = subCentroids[base + d] - vector[start + d];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
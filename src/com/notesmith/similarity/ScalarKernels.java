@@ -0,0 +1,58 @@
+package com.notesmith.similarity;
+
+/**
+ * Plain Java kernels, used when the Vector API is not available.
+ *
+ * Four independent accumulators shorten the dependency chain of the sum,
+ * but the loops stay scalar: C2 does not auto-vectorize float reductions,
+ * whose order it must preserve.
+ */
+final class ScalarKernels implements DenseKernels {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(byte[] a, int aOffset, float[] b, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[i];
+            s1 += a[aOffset + i + 1] * b[i + 1];
+            s2 += a[aOffset + i + 2] * b[i + 2];
+            s3 += a[aOffset + i + 3] * b[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public void dotMany(float[] query, float[] rows, int rowCount, float[] out) {
+        int dimension = query.length;
+        for (int r = 0; r < rowCount; r++) {
+            out[r] = dot(rows, r * dimension, query, 0, dimension);
+        }
+    }
+}
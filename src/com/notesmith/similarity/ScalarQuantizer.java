@@ -0,0 +1,99 @@
+package com.notesmith.similarity;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * int8 scalar quantization with a per-dimension offset and scale.
+ *
+ * Each dimension's trained [min, max] range is mapped onto 0..255, so a
+ * vector takes one byte per dimension (4x smaller than float32). Scoring
+ * folds the scale into the query: q.v = sum(q[i]*offset[i]) + sum(q[i]*scale[i]*code[i]).
+ */
+public class ScalarQuantizer implements VectorQuantizer {
+
+    private final int dimension;
+    private final float[] offsets;
+    private final float[] scales;
+    private boolean trained;
+
+    public ScalarQuantizer(int dimension) {
+        this.dimension = dimension;
+        this.offsets = new float[dimension];
+        this.scales = new float[dimension];
+    }
+
+    @Override
+    public void train(List<float[]> sample) {
+        float[] min = new float[dimension];
+        float[] max = new float[dimension];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (float[] vector : sample) {
+            for (int i = 0; i < dimension; i++) {
+                min[i] = Math.min(min[i], vector[i]);
+                max[i] = Math.max(max[i], vector[i]);
+            }
+        }
+        for (int i = 0; i < dimension; i++) {
+            if (min[i] > max[i]) { // empty sample
+                min[i] = -1f;
+                max[i] = 1f;
+            }
+            offsets[i] = min[i];
+            scales[i] = max[i] > min[i] ? (max[i] - min[i]) / 255f : 1f;
+        }
+        trained = true;
+    }
+
+    @Override
+    public boolean isTrained() {
+        return trained;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return dimension;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes, int offset) {
+        for (int i = 0; i < dimension; i++) {
+            int code = Math.round((vector[i] - offsets[i]) / scales[i]);
+            codes[offset + i] = (byte) Math.max(0, Math.min(255, code));
+        }
+    }
+
+    @Override
+    public void decode(byte[] codes, int offset, float[] out) {
+        for (int i = 0; i < dimension; i++) {
+            out[i] = offsets[i] + scales[i] * (codes[offset + i] & 0xFF);
+        }
+    }
+
+    @Override
+    public Scorer scorer(float[] query) {
+        float[] scaled = new float[dimension];
+        float bias = 0f;
+        for (int i = 0; i < dimension; i++) {
+            scaled[i] = query[i] * scales[i];
+            bias += query[i] * offsets[i];
+        }
+        float base = bias;
+        return (codes, offset) -> {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            int bound = dimension & ~3;
+            for (; i < bound; i += 4) {
+                s0 += scaled[i] * (codes[offset + i] & 0xFF);
+                s1 += scaled[i + 1] * (codes[offset + i + 1] & 0xFF);
+                s2 += scaled[i + 2] * (codes[offset + i + 2] & 0xFF);
+                s3 += scaled[i + 3] * (codes[offset + i + 3] & 0xFF);
+            }
+            for (; i < dimension; i++) {
+                s0 += scaled[i] * (codes[offset + i] & 0xFF);
+            }
+            return base + (s0 + s1) + (s2 + s3);
+        };
+    }
+}
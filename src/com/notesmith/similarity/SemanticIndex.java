@@ -0,0 +1,346 @@
+package com.notesmith.similarity;
+
+import com.notesmith.config.AppConfig;
+import com.notesmith.model.Note;
+import com.notesmith.persistence.NoteChangeListener;
+import com.notesmith.util.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Note embeddings kept in a persisted HNSW index.
+ *
+ * Each note is embedded once per version (updated_at) and the index is
+ * updated on save/delete, so a semantic lookup is an in-memory ANN query.
+ * Save/delete callbacks only queue the work: embedding, graph compaction and
+ * writing the graph and note versions to ~/.notesmith all run on the index's
+ * background thread. Vectors live off-heap in a memory-mapped store.
+ */
+public class SemanticIndex implements NoteChangeListener {
+
+    private static final Logger logger = Logger.getLogger(SemanticIndex.class);
+    private static final int FILE_MAGIC = 0x4E53454D; // "NSEM"
+
+    private final EmbeddingProvider provider;
+    private final File file;       // graph + versions; null = in-memory only
+    private final File vectorFile; // mapped vector rows
+    private final OffHeapVectorStore.Encoding encoding;
+    private final Map<String, Long> versions = new HashMap<>(); // guarded by this
+    private HnswIndex index;
+    private boolean loaded;
+
+    // Updates, compaction and saves, in submission order
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "semantic-index");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    public SemanticIndex(EmbeddingProvider provider, File file) {
+        this(provider, file, OffHeapVectorStore.Encoding.FLOAT32);
+    }
+
+    public SemanticIndex(EmbeddingProvider provider, File file, OffHeapVectorStore.Encoding encoding) {
+        this.provider = provider;
+        this.file = file;
+        this.vectorFile = file == null ? null : new File(file.getPath() + ".vec");
+        this.encoding = encoding;
+    }
+
+    /**
+     * Index for one user, persisted next to the other NoteSmith data.
+     */
+    public static SemanticIndex forUser(int userId) {
+        File dir = new File(System.getProperty("user.home"), ".notesmith");
+        return new SemanticIndex(
+            new HashingEmbeddingProvider(AppConfig.getEmbeddingDimension()),
+            new File(dir, "embeddings_user_" + userId + ".idx"),
+            OffHeapVectorStore.Encoding.valueOf(AppConfig.getVectorEncoding().toUpperCase()));
+    }
+
+    /**
+     * Bring the index in line with the given notes: embed new or changed notes,
+     * drop notes that no longer exist.
+     */
+    public synchronized void sync(List<Note> notes) {
+        load();
+        boolean changed = false;
+        Set<String> live = new HashSet<>();
+        for (Note note : notes) {
+            live.add(note.getId());
+            if (!isCurrent(note)) {
+                put(note);
+                changed = true;
+            }
+        }
+        Iterator<String> it = versions.keySet().iterator();
+        while (it.hasNext()) {
+            String id = it.next();
+            if (!live.contains(id)) {
+                index.remove(id);
+                it.remove();
+                changed = true;
+            }
+        }
+        if (changed) {
+            scheduleCompaction();
+            scheduleSave();
+        }
+        maybeQuantize();
+    }
+
+    @Override
+    public void onNoteSaved(Note note) {
+        worker.execute(() -> {
+            synchronized (this) {
+                load();
+                if (isCurrent(note)) {
+                    return;
+                }
+                put(note);
+            }
+            compact();
+            scheduleSave();
+        });
+    }
+
+    @Override
+    public void onNoteDeleted(String noteId) {
+        worker.execute(() -> {
+            synchronized (this) {
+                load();
+                if (versions.remove(noteId) == null) {
+                    return;
+                }
+                index.remove(noteId);
+            }
+            compact();
+            scheduleSave();
+        });
+    }
+
+    /**
+     * Nearest notes to the given one by embedding, excluding itself.
+     */
+    public List<Neighbor> findSimilar(Note note, int k) {
+        float[] query;
+        HnswIndex current;
+        synchronized (this) {
+            load();
+            query = isCurrent(note) ? index.getVector(note.getId()) : provider.embed(note);
+            current = index;
+        }
+
+        List<Neighbor> results = new ArrayList<>();
+        for (Neighbor neighbor : current.search(query, k + 1)) {
+            if (!neighbor.getId().equals(note.getId()) && results.size() < k) {
+                results.add(neighbor);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Exact cosine similarity between two indexed notes, or 0 if either is missing.
+     */
+    public double similarity(String noteId1, String noteId2) {
+        HnswIndex current;
+        synchronized (this) {
+            load();
+            current = index;
+        }
+        float[] v1 = current.getVector(noteId1);
+        float[] v2 = current.getVector(noteId2);
+        if (v1 == null || v2 == null) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int i = 0; i < v1.length; i++) {
+            sum += v1[i] * v2[i];
+        }
+        return Math.max(0.0, sum);
+    }
+
+    public synchronized int size() {
+        load();
+        return index.size();
+    }
+
+    // ===== Internals =====
+
+    private HnswIndex newIndex(OffHeapVectorStore store) {
+        return new HnswIndex(store, AppConfig.getHnswM(),
+            AppConfig.getHnswEfConstruction(), AppConfig.getHnswEfSearch());
+    }
+
+    private OffHeapVectorStore openStore() {
+        if (vectorFile != null) {
+            try {
+                return OffHeapVectorStore.open(vectorFile, provider.getDimension(), encoding);
+            } catch (IOException e) {
+                logger.warn("Could not map vector store, keeping vectors in memory: " + e.getMessage());
+            }
+        }
+        return OffHeapVectorStore.inMemory(provider.getDimension(), encoding);
+    }
+
+    private boolean isCurrent(Note note) {
+        Long version = versions.get(note.getId());
+        return version != null && version == versionOf(note);
+    }
+
+    private void put(Note note) {
+        index.add(note.getId(), provider.embed(note));
+        versions.put(note.getId(), versionOf(note));
+    }
+
+    private static long versionOf(Note note) {
+        return note.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Map the vector store and load the graph once. Vectors are never re-embedded
+     * on startup: a missing or stale graph is rebuilt from the mapped rows, and
+     * only a different embedding model (name or dimension) starts from scratch.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        OffHeapVectorStore store = openStore();
+        index = newIndex(store);
+        if (file == null || !file.exists()) {
+            if (store.size() > 0) {
+                store.clear(); // rows without versions cannot be trusted
+            }
+            return;
+        }
+
+        Map<String, Long> storedVersions = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC
+                    || !in.readUTF().equals(provider.getName())
+                    || in.readInt() != provider.getDimension()) {
+                logger.info("Embedding model changed, rebuilding semantic index");
+                store.clear();
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                storedVersions.put(in.readUTF(), in.readLong());
+            }
+            try {
+                index = HnswIndex.readFrom(in, store);
+                index.setEfSearch(AppConfig.getHnswEfSearch());
+            } catch (IOException e) {
+                logger.info("Rebuilding semantic graph from stored vectors: " + e.getMessage());
+                index.rebuild();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read semantic index, rebuilding: " + e.getMessage());
+            store.clear();
+            index = newIndex(store);
+            return;
+        }
+
+        // Only trust versions for notes that actually have a vector
+        for (Map.Entry<String, Long> entry : storedVersions.entrySet()) {
+            if (index.contains(entry.getKey())) {
+                versions.put(entry.getKey(), entry.getValue());
+            }
+        }
+        logger.info("Loaded semantic index with " + index.size() + " notes");
+    }
+
+    /**
+     * Switch graph search to compact codes once the index is large enough for
+     * vector memory to matter (codes are retrained after each restart).
+     */
+    private void maybeQuantize() {
+        String mode = AppConfig.getVectorQuantization().toLowerCase();
+        if (mode.equals("none") || index.isQuantized() || index.size() < AppConfig.getQuantizationMinVectors()) {
+            return;
+        }
+        VectorQuantizer quantizer = mode.equals("pq")
+            ? new ProductQuantizer(provider.getDimension(), AppConfig.getPQSubspaces())
+            : new ScalarQuantizer(provider.getDimension());
+        index.setQuantizer(quantizer);
+        logger.info("Semantic index quantized (" + mode + ", " + quantizer.getCodeSize() + " bytes per note)");
+    }
+
+    private void scheduleCompaction() {
+        HnswIndex current;
+        synchronized (this) {
+            current = index;
+        }
+        if (current.needsCompaction()) {
+            worker.execute(this::compact);
+        }
+    }
+
+    /**
+     * Runs on the worker thread; searches wait on the index lock meanwhile.
+     */
+    private void compact() {
+        HnswIndex current;
+        synchronized (this) {
+            current = index;
+        }
+        current.compactIfNeeded();
+    }
+
+    private void scheduleSave() {
+        if (file == null || !saveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        worker.execute(() -> {
+            saveScheduled.set(false);
+            try {
+                save();
+            } catch (IOException e) {
+                logger.error("Failed to save semantic index", e);
+            }
+        });
+    }
+
+    /**
+     * Write to a temp file and move it into place so a crash never leaves a torn index.
+     */
+    private void save() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        HnswIndex current;
+        synchronized (this) {
+            current = index;
+        }
+        current.getStore().flush();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            synchronized (this) {
+                out.writeInt(FILE_MAGIC);
+                out.writeUTF(provider.getName());
+                out.writeInt(provider.getDimension());
+                out.writeInt(versions.size());
+                for (Map.Entry<String, Long> entry : versions.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                index.writeTo(out);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
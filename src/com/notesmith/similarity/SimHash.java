@@ -0,0 +1,90 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit SimHash over a note's weighted terms.
+ *
+ * Each distinct term votes on every bit with weight 1 + ln(tf); title terms
+ * count twice. Near-identical notes end up a few bits apart, so duplicates
+ * can be found by Hamming distance. Term hashes are FNV-1a over the term's
+ * characters, so stored fingerprints stay valid across runs.
+ */
+public final class SimHash {
+
+    private static final int MIN_TERM_LENGTH = 3;
+
+    /**
+     * Fingerprint of a note without any term of MIN_TERM_LENGTH or more
+     * characters (no votes, so no bits set). Such notes carry no evidence
+     * of duplication and all share this value.
+     */
+    public static final long EMPTY = 0L;
+
+    private SimHash() {}
+
+    /**
+     * Fingerprint of the note, computed on first use and cached on the note.
+     */
+    public static long of(Note note) {
+        Long cached = note.getSimHash();
+        if (cached != null) {
+            return cached;
+        }
+        long simHash = compute(note.getTitle(), note.getContent());
+        note.setSimHash(simHash);
+        return simHash;
+    }
+
+    public static long compute(String title, String content) {
+        int[] contentTerms = Tokenizer.termIds(content == null ? "" : content, MIN_TERM_LENGTH, null);
+        int[] titleTerms = Tokenizer.termIds(title == null ? "" : title, MIN_TERM_LENGTH, null);
+        int[] terms = Arrays.copyOf(contentTerms, contentTerms.length + 2 * titleTerms.length);
+        System.arraycopy(titleTerms, 0, terms, contentTerms.length, titleTerms.length);
+        System.arraycopy(titleTerms, 0, terms, contentTerms.length + titleTerms.length, titleTerms.length);
+        Arrays.sort(terms);
+
+        double[] votes = new double[64];
+        for (int i = 0; i < terms.length; ) {
+            int run = i;
+            while (run < terms.length && terms[run] == terms[i]) {
+                run++;
+            }
+            double weight = 1.0 + Math.log(run - i);
+            long hash = hash(TermDictionary.termOf(terms[i]));
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += ((hash >>> bit) & 1L) != 0 ? weight : -weight;
+            }
+            i = run;
+        }
+
+        long simHash = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    static long hash(String term) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < term.length(); i++) {
+            h ^= term.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        // FNV leaves the high bits weakly mixed; finish with a 64-bit avalanche
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,220 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Finds notes whose SimHash lies within k bits of each other.
+ *
+ * The 64 bits are split into k + 1 blocks; two fingerprints within k bits
+ * agree exactly on at least one block. For every block there is a table of
+ * the distinct fingerprints, rotated so that block leads and sorted, so the
+ * candidates for a block are one binary-searched range. A lookup costs
+ * k + 1 binary searches plus the few candidates that share a block.
+ *
+ * Notes without terms (SimHash.EMPTY) are not indexed: they would all
+ * match each other.
+ */
+public class SimHashIndex {
+
+    private final int maxDistance;
+    private final int[] blockStart;
+    private final int[] blockLength;
+    private long[][] tables = new long[0][];
+    private long[] fingerprints = new long[0];
+    private final Map<Long, List<Note>> notesByHash = new HashMap<>();
+
+    public SimHashIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 31) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and 31: " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+        int blocks = maxDistance + 1;
+        blockStart = new int[blocks];
+        blockLength = new int[blocks];
+        for (int b = 0, start = 0; b < blocks; b++) {
+            blockLength[b] = 64 / blocks + (b < 64 % blocks ? 1 : 0);
+            blockStart[b] = start;
+            start += blockLength[b];
+        }
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    public synchronized void rebuild(List<Note> allNotes) {
+        notesByHash.clear();
+        for (Note note : allNotes) {
+            long fingerprint = SimHash.of(note);
+            if (fingerprint != SimHash.EMPTY) {
+                notesByHash.computeIfAbsent(fingerprint, h -> new ArrayList<>(1)).add(note);
+            }
+        }
+        fingerprints = new long[notesByHash.size()];
+        int n = 0;
+        for (long fingerprint : notesByHash.keySet()) {
+            fingerprints[n++] = fingerprint;
+        }
+
+        tables = new long[blockStart.length][];
+        for (int b = 0; b < tables.length; b++) {
+            long[] table = new long[fingerprints.length];
+            for (int i = 0; i < fingerprints.length; i++) {
+                // Sign flip makes the signed sort an unsigned one
+                table[i] = Long.rotateLeft(fingerprints[i], blockStart[b]) ^ Long.MIN_VALUE;
+            }
+            Arrays.sort(table);
+            tables[b] = table;
+        }
+    }
+
+    /**
+     * Other notes within maxDistance bits of the note, nearest first.
+     */
+    public synchronized List<Note> findNear(Note note) {
+        long query = SimHash.of(note);
+        if (query == SimHash.EMPTY) {
+            return new ArrayList<>();
+        }
+        List<Long> near = new ArrayList<>();
+        forEachNear(query, near::add);
+        near.sort(Comparator.comparingInt(h -> SimHash.distance(query, h)));
+
+        List<Note> result = new ArrayList<>();
+        for (long fingerprint : near) {
+            for (Note candidate : notesByHash.get(fingerprint)) {
+                if (!candidate.getId().equals(note.getId())) {
+                    result.add(candidate);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Groups of near-duplicate notes (two or more notes each), largest first.
+     * Each group is built around its keeper, the most recently edited note:
+     * every other member is within maxDistance bits of the keeper itself,
+     * not just of some other member. Notes of a connected cluster that are
+     * too far from the keeper form further groups around the next keeper.
+     */
+    public synchronized List<DuplicateGroup> findDuplicateGroups() {
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < fingerprints.length; i++) {
+            position.put(fingerprints[i], i);
+        }
+        int[] parent = new int[fingerprints.length];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < fingerprints.length; i++) {
+            int from = i;
+            forEachNear(fingerprints[i], h -> union(parent, from, position.get(h)));
+        }
+
+        Map<Integer, List<Note>> components = new HashMap<>();
+        for (int i = 0; i < fingerprints.length; i++) {
+            components.computeIfAbsent(find(parent, i), r -> new ArrayList<>())
+                .addAll(notesByHash.get(fingerprints[i]));
+        }
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (List<Note> component : components.values()) {
+            if (component.size() > 1) {
+                groupAroundKeepers(component, groups);
+            }
+        }
+        groups.sort((a, b) -> Integer.compare(b.getNotes().size(), a.getNotes().size()));
+        return groups;
+    }
+
+    /**
+     * Split a connected cluster into groups whose members are all within
+     * maxDistance of the group's newest note.
+     */
+    private void groupAroundKeepers(List<Note> component, List<DuplicateGroup> groups) {
+        List<Note> remaining = new ArrayList<>(component);
+        remaining.sort(Comparator.comparing(Note::getUpdatedAt).reversed());
+        while (remaining.size() > 1) {
+            long keeper = SimHash.of(remaining.get(0));
+            List<Note> members = new ArrayList<>();
+            Iterator<Note> it = remaining.iterator();
+            while (it.hasNext()) {
+                Note note = it.next();
+                if (SimHash.distance(keeper, SimHash.of(note)) <= maxDistance) {
+                    members.add(note);
+                    it.remove();
+                }
+            }
+            if (members.size() > 1) {
+                groups.add(new DuplicateGroup(members));
+            }
+        }
+    }
+
+    /**
+     * Reports each distinct fingerprint within maxDistance of the query once,
+     * including the query itself if it is indexed.
+     */
+    private void forEachNear(long query, LongConsumer consumer) {
+        for (int b = 0; b < tables.length; b++) {
+            int shift = 64 - blockLength[b];
+            long rotated = Long.rotateLeft(query, blockStart[b]);
+            long low = (rotated >>> shift) << shift;
+            long high = low | (shift == 0 ? 0L : -1L >>> blockLength[b]);
+
+            long[] table = tables[b];
+            for (int i = lowerBound(table, low ^ Long.MIN_VALUE);
+                 i < table.length && table[i] <= (high ^ Long.MIN_VALUE); i++) {
+                long candidate = Long.rotateRight(table[i] ^ Long.MIN_VALUE, blockStart[b]);
+                if (SimHash.distance(query, candidate) <= maxDistance
+                        && firstMatchingBlock(query, candidate) == b) {
+                    consumer.accept(candidate);
+                }
+            }
+        }
+    }
+
+    private int firstMatchingBlock(long a, long b) {
+        long diff = a ^ b;
+        for (int block = 0; block < blockStart.length; block++) {
+            int shift = 64 - blockLength[block];
+            if ((Long.rotateLeft(diff, blockStart[block]) >>> shift) == 0) {
+                return block;
+            }
+        }
+        return -1;
+    }
+
+    private static int lowerBound(long[] table, long key) {
+        int lo = 0;
+        int hi = table.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (table[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[rootB] = rootA;
+        }
+    }
+}
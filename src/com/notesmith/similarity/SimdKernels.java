@@ -0,0 +1,80 @@
+package com.notesmith.similarity;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels on the Vector API (jdk.incubator.vector), using the widest float
+ * vectors the CPU supports (8 lanes on AVX2, 16 on AVX-512) and fused
+ * multiply-add, with one horizontal sum per dot product.
+ *
+ * Only VectorMath loads this class, and only when the module is present, so
+ * a JVM started without --add-modules jdk.incubator.vector never links it.
+ */
+final class SimdKernels implements DenseKernels {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    // Same lane count as FLOATS, so each byte lane widens into one float lane
+    private static final VectorSpecies<Byte> BYTES =
+        VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.length() * Byte.SIZE));
+
+    @Override
+    public String getName() {
+        return "simd-" + FLOATS.length() + "x32";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        int lanes = FLOATS.length();
+        FloatVector acc0 = FloatVector.zero(FLOATS);
+        FloatVector acc1 = FloatVector.zero(FLOATS);
+        int i = 0;
+        // Two accumulators hide the FMA latency
+        int bound2 = length - 2 * lanes;
+        for (; i <= bound2; i += 2 * lanes) {
+            acc0 = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), acc0);
+            acc1 = FloatVector.fromArray(FLOATS, a, aOffset + i + lanes)
+                .fma(FloatVector.fromArray(FLOATS, b, bOffset + i + lanes), acc1);
+        }
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += lanes) {
+            acc0 = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), acc0);
+        }
+        float sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(byte[] a, int aOffset, float[] b, int length) {
+        int lanes = FLOATS.length();
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += lanes) {
+            FloatVector row = (FloatVector) ByteVector.fromArray(BYTES, a, aOffset + i)
+                .convertShape(VectorOperators.B2F, FLOATS, 0);
+            acc = row.fma(FloatVector.fromArray(FLOATS, b, i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void dotMany(float[] query, float[] rows, int rowCount, float[] out) {
+        int dimension = query.length;
+        for (int r = 0; r < rowCount; r++) {
+            out[r] = dot(rows, r * dimension, query, 0, dimension);
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.notesmith.similarity;
 import com.notesmith.model.Note;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Hybrid similarity engine combining multiple algorithms.
@@ -33,97 +33,278 @@ public class SimilarityEngine {
         this.coherenceAnalyzer = new ContentCoherenceAnalyzer();
     }
     
+    /**
+     * A note was deleted: drop its cached style fingerprint.
+     */
+    public void forgetNote(String noteId) {
+        coherenceAnalyzer.forget(noteId);
+    }
+    
+    // Signal slots, in the order they are summed into the final score
+    private static final int TFIDF = 0;
+    private static final int JACCARD = 1;
+    private static final int COSINE = 2;
+    private static final int NGRAM = 3;
+    private static final int TAG = 4;
+    private static final int TEMPORAL = 5;
+    private static final int TITLE = 6;
+    private static final int COHERENCE = 7;
+    
+    private static final double[] WEIGHTS = {
+        WEIGHT_TFIDF, WEIGHT_JACCARD, WEIGHT_COSINE, WEIGHT_NGRAM,
+        WEIGHT_TAG, WEIGHT_TEMPORAL, WEIGHT_TITLE, WEIGHT_COHERENCE
+    };
+    private static final String[] SIGNAL_NAMES = {
+        "TF-IDF", "Jaccard", "Cosine", "N-gram", "Tags", "Temporal", "Title", "Thought/Theme"
+    };
+    
+    private static final double NOISE_THRESHOLD = 0.1;
+    // Slack for rounding differences between the bound and the final sum
+    private static final double EPSILON = 1e-9;
+    
+    // Lowest score first; on equal scores the later candidate is the one to evict
+    private static final Comparator<ScoredCandidate> WORST_FIRST =
+        Comparator.comparingDouble((ScoredCandidate c) -> c.score)
+            .thenComparing(c -> -c.position);
+    
+    // Expensive signals, in increasing cost order
+    private static final int[] REFINEMENT_ORDER = {TITLE, JACCARD, NGRAM, COHERENCE};
+    
+    // How often the cheap pass looks at the clock
+    private static final int DEADLINE_CHECK_INTERVAL = 32;
+    
+    private final Map<String, WordSet> wordCache = new HashMap<>();
+    private final TagDictionary tagDictionary = new TagDictionary();
+    
     /**
      * Find similar notes using hybrid algorithm.
      * Returns list of notes sorted by similarity score (highest first).
+     *
+     * Candidates are pruned max-score style: cheap signals are computed first,
+     * expensive ones are replaced by upper bounds, and a candidate is dropped as
+     * soon as its optimistic score cannot reach the current Nth-best result.
+     * The returned list is identical to scoring every candidate in full.
      */
     public List<SimilarityResult> findSimilarNotes(Note targetNote, List<Note> allNotes, int topN) {
-        List<SimilarityResult> results = new ArrayList<>();
-        
         // Preprocess all notes for TF-IDF
         tfidfCalculator.buildCorpus(allNotes);
         
-        for (Note candidate : allNotes) {
+        if (topN <= 0) {
+            return new ArrayList<>();
+        }
+        
+        PriorityQueue<ScoredCandidate> top = new PriorityQueue<>(topN + 1, WORST_FIRST);
+        for (int i = 0; i < allNotes.size(); i++) {
+            Note candidate = allNotes.get(i);
             // Skip self
             if (candidate.getId().equals(targetNote.getId())) {
                 continue;
             }
             
-            double score = calculateSimilarity(targetNote, candidate);
-            
-            if (score > 0.1) { // Threshold to filter noise
-                results.add(new SimilarityResult(candidate, score, getReasonBreakdown(targetNote, candidate)));
+            PartialScore partial = scoreCheapSignals(targetNote, candidate);
+            if (refineIfCompetitive(targetNote, candidate, partial, top, topN)) {
+                offer(top, topN, new ScoredCandidate(i, candidate, partial));
             }
         }
         
-        // Sort by score descending
-        results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
-        
-        // Return top N
-        return results.stream().limit(topN).collect(Collectors.toList());
+        return toResults(top);
     }
     
     /**
-     * Calculate overall similarity score between two notes.
+     * Anytime variant of findSimilarNotes bounded by a time budget.
+     *
+     * First the cheap signals are computed for every candidate; then candidates
+     * are fully scored in order of their optimistic score until either no
+     * remaining candidate can reach the top N (the result is exact) or the
+     * deadline passes. In that case candidates that were not fully scored are
+     * ranked by the part of their score already known, and the result is
+     * flagged as incomplete.
      */
-    private double calculateSimilarity(Note note1, Note note2) {
-        double tfidfScore = tfidfCalculator.calculate(note1, note2);
-        double jaccardScore = calculateJaccardSimilarity(note1, note2);
-        double cosineScore = cosineSimilarity.calculate(note1, note2);
-        double ngramScore = ngramAnalyzer.calculate(note1, note2);
-        double tagScore = calculateTagSimilarity(note1, note2);
-        double temporalScore = calculateTemporalProximity(note1, note2);
-        double titleScore = calculateTitleSimilarity(note1, note2);
-        double coherenceScore = coherenceAnalyzer.calculateThoughtSimilarity(note1, note2);
-        
-        return (WEIGHT_TFIDF * tfidfScore) +
-               (WEIGHT_JACCARD * jaccardScore) +
-               (WEIGHT_COSINE * cosineScore) +
-               (WEIGHT_NGRAM * ngramScore) +
-               (WEIGHT_TAG * tagScore) +
-               (WEIGHT_TEMPORAL * temporalScore) +
-               (WEIGHT_TITLE * titleScore) +
-               (WEIGHT_COHERENCE * coherenceScore);
+    public SimilaritySearchResult findSimilarNotes(Note targetNote, List<Note> allNotes,
+                                                   int topN, long budgetMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        
+        // Preprocess all notes for TF-IDF
+        tfidfCalculator.buildCorpus(allNotes);
+        
+        if (topN <= 0) {
+            return new SimilaritySearchResult(new ArrayList<>(), true, 1.0);
+        }
+        
+        // Pass 1: cheap signals and upper bounds for every candidate
+        List<ScoredCandidate> scanned = new ArrayList<>();
+        int total = 0;
+        boolean timedOut = false;
+        for (int i = 0; i < allNotes.size(); i++) {
+            Note candidate = allNotes.get(i);
+            if (candidate.getId().equals(targetNote.getId())) {
+                continue;
+            }
+            total++;
+            if (!timedOut && total % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+            }
+            if (!timedOut) {
+                scanned.add(new ScoredCandidate(i, candidate, scoreCheapSignals(targetNote, candidate)));
+            }
+        }
+        
+        // Pass 2: refine the most promising candidates first
+        scanned.sort(Comparator.comparingDouble((ScoredCandidate c) -> -c.partial.upperBound())
+            .thenComparingInt(c -> c.position));
+        
+        PriorityQueue<ScoredCandidate> top = new PriorityQueue<>(topN + 1, WORST_FIRST);
+        int resolved = 0;
+        int next = 0;
+        while (!timedOut && next < scanned.size()) {
+            ScoredCandidate scored = scanned.get(next);
+            if (cannotCompete(scored.partial.upperBound(), top, topN)) {
+                // Bounds are sorted, so nothing after this can compete either
+                resolved += scanned.size() - next;
+                next = scanned.size();
+                break;
+            }
+            if (System.nanoTime() > deadline) {
+                timedOut = true;
+                break;
+            }
+            if (refineIfCompetitive(targetNote, scored.note, scored.partial, top, topN)) {
+                offer(top, topN, scored.rescored());
+            }
+            resolved++;
+            next++;
+        }
+        
+        if (timedOut) {
+            // Best guess for the rest: the lower bound from the signals already computed
+            for (int i = next; i < scanned.size(); i++) {
+                ScoredCandidate pending = scanned.get(i);
+                if (pending.score > NOISE_THRESHOLD) {
+                    offer(top, topN, pending);
+                }
+            }
+        }
+        
+        double completeness = total == 0 ? 1.0 : (double) resolved / total;
+        return new SimilaritySearchResult(toResults(top), !timedOut, timedOut ? completeness : 1.0);
     }
     
     /**
-     * Jaccard similarity: intersection / union of word sets.
+     * Exact cheap signals (set sizes, timestamps, cached sparse vectors) plus
+     * optimistic stand-ins for the expensive ones.
      */
-    private double calculateJaccardSimilarity(Note note1, Note note2) {
-        Set<String> words1 = tokenize(note1.getContent());
-        Set<String> words2 = tokenize(note2.getContent());
+    private PartialScore scoreCheapSignals(Note target, Note candidate) {
+        PartialScore partial = new PartialScore();
+        partial.set(TAG, calculateTagSimilarity(target, candidate));
+        partial.set(TEMPORAL, calculateTemporalProximity(target, candidate));
+        partial.set(TFIDF, tfidfCalculator.calculate(target, candidate));
+        partial.set(COSINE, cosineSimilarity.calculate(target, candidate));
         
-        if (words1.isEmpty() || words2.isEmpty()) {
-            return 0.0;
+        partial.bound(JACCARD, sizeRatio(getWords(target).words.length, getWords(candidate).words.length));
+        partial.bound(NGRAM, ngramAnalyzer.upperBound(target, candidate));
+        partial.bound(TITLE, titleUpperBound(target, candidate));
+        partial.bound(COHERENCE, 1.0);
+        return partial;
+    }
+    
+    /**
+     * Compute the remaining signals, cheapest first, stopping as soon as the
+     * upper bound shows the candidate cannot make the top N.
+     *
+     * @return true if the candidate was fully scored and is above the noise threshold
+     */
+    private boolean refineIfCompetitive(Note target, Note candidate, PartialScore partial,
+                                        PriorityQueue<ScoredCandidate> top, int topN) {
+        for (int signal : REFINEMENT_ORDER) {
+            if (cannotCompete(partial.upperBound(), top, topN)) {
+                return false;
+            }
+            switch (signal) {
+                case TITLE:
+                    partial.set(TITLE, calculateTitleSimilarity(target, candidate));
+                    break;
+                case JACCARD:
+                    partial.set(JACCARD, VectorMath.jaccard(getWords(target).words, getWords(candidate).words));
+                    break;
+                case NGRAM:
+                    partial.set(NGRAM, ngramAnalyzer.calculate(target, candidate));
+                    break;
+                default:
+                    partial.set(COHERENCE, coherenceAnalyzer.calculateThoughtSimilarity(target, candidate));
+                    break;
+            }
+        }
+        return combine(partial.signals) > NOISE_THRESHOLD;
+    }
+    
+    private static boolean cannotCompete(double upperBound, PriorityQueue<ScoredCandidate> top, int topN) {
+        if (upperBound + EPSILON <= NOISE_THRESHOLD) {
+            return true;
+        }
+        return top.size() >= topN && upperBound + EPSILON < top.peek().score;
+    }
+    
+    private static void offer(PriorityQueue<ScoredCandidate> top, int topN, ScoredCandidate scored) {
+        if (top.size() < topN) {
+            top.add(scored);
+        } else if (WORST_FIRST.compare(scored, top.peek()) > 0) {
+            top.poll();
+            top.add(scored);
         }
-        
-        Set<String> intersection = new HashSet<>(words1);
-        intersection.retainAll(words2);
-        
-        Set<String> union = new HashSet<>(words1);
-        union.addAll(words2);
-        
-        return (double) intersection.size() / union.size();
     }
     
     /**
-     * Tag-based similarity: percentage of shared tags.
+     * Sort by score descending, ties in input order.
      */
-    private double calculateTagSimilarity(Note note1, Note note2) {
-        Set<String> tags1 = new HashSet<>(note1.getTags());
-        Set<String> tags2 = new HashSet<>(note2.getTags());
+    private static List<SimilarityResult> toResults(PriorityQueue<ScoredCandidate> top) {
+        List<ScoredCandidate> ranked = new ArrayList<>(top);
+        ranked.sort(WORST_FIRST.reversed());
         
-        if (tags1.isEmpty() || tags2.isEmpty()) {
+        List<SimilarityResult> results = new ArrayList<>(ranked.size());
+        for (ScoredCandidate scored : ranked) {
+            results.add(new SimilarityResult(scored.note, scored.score, getReasonBreakdown(scored.partial)));
+        }
+        return results;
+    }
+    
+    /**
+     * Weighted sum of the signals, in the same order as the original formula
+     * so that scores are bit-for-bit reproducible.
+     */
+    private static double combine(double[] signals) {
+        double score = 0.0;
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            score += WEIGHTS[i] * signals[i];
+        }
+        return score;
+    }
+    
+    /**
+     * Jaccard can never exceed min(|A|, |B|) / max(|A|, |B|).
+     */
+    private static double sizeRatio(int size1, int size2) {
+        if (size1 == 0 || size2 == 0) {
             return 0.0;
         }
-        
-        Set<String> intersection = new HashSet<>(tags1);
-        intersection.retainAll(tags2);
-        
-        Set<String> union = new HashSet<>(tags1);
-        union.addAll(tags2);
-        
-        return (double) intersection.size() / union.size();
+        return (double) Math.min(size1, size2) / Math.max(size1, size2);
+    }
+    
+    private WordSet getWords(Note note) {
+        WordSet cached = wordCache.get(note.getId());
+        if (cached != null && cached.version.equals(note.getUpdatedAt())) {
+            return cached;
+        }
+        // Word set for Jaccard: distinct words longer than two characters
+        WordSet words = new WordSet(note.getUpdatedAt(), Tokenizer.distinctTermIds(note.getContent(), 3, null));
+        wordCache.put(note.getId(), words);
+        return words;
+    }
+    
+    /**
+     * Tag-based similarity: percentage of shared tags.
+     */
+    protected double calculateTagSimilarity(Note note1, Note note2) {
+        return TagDictionary.jaccard(tagDictionary.tagsOf(note1), tagDictionary.tagsOf(note2));
     }
     
     /**
@@ -165,6 +346,19 @@ public class SimilarityEngine {
         return 1.0 - ((double) distance / maxLen);
     }
     
+    /**
+     * Edit distance is at least the length difference, which bounds title similarity.
+     */
+    private double titleUpperBound(Note note1, Note note2) {
+        int len1 = note1.getTitle().length();
+        int len2 = note2.getTitle().length();
+        int maxLen = Math.max(len1, len2);
+        if (maxLen == 0) {
+            return 0.0;
+        }
+        return 1.0 - ((double) Math.abs(len1 - len2) / maxLen);
+    }
+    
     /**
      * Levenshtein distance (edit distance) between two strings.
      */
@@ -194,29 +388,86 @@ public class SimilarityEngine {
     /**
      * Get breakdown of why notes are similar.
      */
-    private Map<String, Double> getReasonBreakdown(Note note1, Note note2) {
+    private static Map<String, Double> getReasonBreakdown(PartialScore partial) {
         Map<String, Double> breakdown = new LinkedHashMap<>();
-        breakdown.put("TF-IDF", tfidfCalculator.calculate(note1, note2));
-        breakdown.put("Jaccard", calculateJaccardSimilarity(note1, note2));
-        breakdown.put("Cosine", cosineSimilarity.calculate(note1, note2));
-        breakdown.put("N-gram", ngramAnalyzer.calculate(note1, note2));
-        breakdown.put("Tags", calculateTagSimilarity(note1, note2));
-        breakdown.put("Temporal", calculateTemporalProximity(note1, note2));
-        breakdown.put("Title", calculateTitleSimilarity(note1, note2));
-        breakdown.put("Thought/Theme", coherenceAnalyzer.calculateThoughtSimilarity(note1, note2));
+        for (int i = 0; i < SIGNAL_NAMES.length; i++) {
+            if (partial.computed[i]) {
+                breakdown.put(SIGNAL_NAMES[i], partial.signals[i]);
+            }
+        }
         return breakdown;
     }
     
     /**
-     * Tokenize text into words (lowercase, alphanumeric only).
+     * Signals computed so far for one candidate, plus upper bounds for the rest.
      */
-    private Set<String> tokenize(String text) {
-        if (text == null || text.isEmpty()) {
-            return Collections.emptySet();
+    private static class PartialScore {
+        final double[] signals = new double[WEIGHTS.length];
+        final double[] bounds = new double[WEIGHTS.length];
+        final boolean[] computed = new boolean[WEIGHTS.length];
+        double known;
+        double remaining;
+        
+        void set(int signal, double value) {
+            if (!computed[signal]) {
+                remaining -= WEIGHTS[signal] * bounds[signal];
+            }
+            signals[signal] = value;
+            computed[signal] = true;
+            known += WEIGHTS[signal] * value;
+        }
+        
+        void bound(int signal, double value) {
+            bounds[signal] = value;
+            remaining += WEIGHTS[signal] * value;
+        }
+        
+        boolean isExact() {
+            for (boolean c : computed) {
+                if (!c) {
+                    return false;
+                }
+            }
+            return true;
         }
         
-        return Arrays.stream(text.toLowerCase().split("\\W+"))
-            .filter(word -> word.length() > 2) // Filter short words
-            .collect(Collectors.toSet());
+        double upperBound() {
+            return known + remaining;
+        }
+        
+        /**
+         * Exact score once every signal is in, otherwise the known lower bound.
+         */
+        double score() {
+            return isExact() ? combine(signals) : known;
+        }
+    }
+    
+    private static class ScoredCandidate {
+        final int position;
+        final Note note;
+        final PartialScore partial;
+        final double score;
+        
+        ScoredCandidate(int position, Note note, PartialScore partial) {
+            this.position = position;
+            this.note = note;
+            this.partial = partial;
+            this.score = partial.score();
+        }
+        
+        ScoredCandidate rescored() {
+            return new ScoredCandidate(position, note, partial);
+        }
+    }
+    
+    private static class WordSet {
+        final java.time.LocalDateTime version;
+        final int[] words; // sorted term ids
+        
+        WordSet(java.time.LocalDateTime version, int[] words) {
+            this.version = version;
+            this.words = words;
+        }
     }
 }
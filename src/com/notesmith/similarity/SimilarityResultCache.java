@@ -0,0 +1,147 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * LRU cache of similarity result lists with a memory bound.
+ *
+ * Entries are keyed by target note and remember the target's version and the
+ * corpus size they were computed against. Invalidation is selective: a change
+ * to note X drops only the lists whose target is X or that contain X. Creating
+ * or deleting a note changes the corpus size, so every list misses until it is
+ * recomputed. The corpus version counter increases on every mutation; a result
+ * computed while a mutation happened is not stored.
+ */
+public class SimilarityResultCache {
+
+    // Rough heap cost of the objects an entry keeps alive
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    private static final int RESULT_OVERHEAD_BYTES = 64;
+    private static final int BREAKDOWN_ENTRY_BYTES = 72;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long corpusVersion;
+    private long hits;
+    private long misses;
+
+    public SimilarityResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Corpus version to pass back to put() once a computation finishes.
+     */
+    public synchronized long getCorpusVersion() {
+        return corpusVersion;
+    }
+
+    /**
+     * Cached results for the target, or null if there is no valid entry
+     * holding at least topN results.
+     */
+    public synchronized List<SimilarityResult> get(String mode, Note target, int corpusSize, int topN) {
+        Entry entry = entries.get(key(mode, target.getId()));
+        if (entry == null || !entry.targetVersion.equals(target.getUpdatedAt())
+                || entry.corpusSize != corpusSize || entry.topN < topN) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.results.subList(0, Math.min(topN, entry.results.size())));
+    }
+
+    /**
+     * Store results computed when the corpus was at computedAtVersion.
+     * Ignored if the repository changed in the meantime.
+     */
+    public synchronized void put(String mode, Note target, int corpusSize, int topN,
+                                 List<SimilarityResult> results, long computedAtVersion) {
+        if (computedAtVersion != corpusVersion) {
+            return; // Possibly stale: a note changed while this was computed
+        }
+        Entry entry = new Entry(target.getId(), target.getUpdatedAt(), corpusSize, topN,
+            new ArrayList<>(results));
+        Entry previous = entries.put(key(mode, target.getId()), entry);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += entry.bytes;
+        evictToBound();
+    }
+
+    /**
+     * Note saved or deleted: drop the lists it can affect.
+     */
+    public synchronized void invalidate(String noteId) {
+        corpusVersion++;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.targetId.equals(noteId) || entry.contains(noteId)) {
+                usedBytes -= entry.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        corpusVersion++;
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized String getStats() {
+        return String.format("%d entries, %d KB, %d hits, %d misses",
+            entries.size(), usedBytes / 1024, hits, misses);
+    }
+
+    private void evictToBound() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            usedBytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    private static String key(String mode, String targetId) {
+        return mode + ":" + targetId;
+    }
+
+    private static class Entry {
+        final String targetId;
+        final LocalDateTime targetVersion;
+        final int corpusSize;
+        final int topN;
+        final List<SimilarityResult> results;
+        final long bytes;
+
+        Entry(String targetId, LocalDateTime targetVersion, int corpusSize, int topN,
+              List<SimilarityResult> results) {
+            this.targetId = targetId;
+            this.targetVersion = targetVersion;
+            this.corpusSize = corpusSize;
+            this.topN = topN;
+            this.results = results;
+
+            long size = ENTRY_OVERHEAD_BYTES + 2L * targetId.length();
+            for (SimilarityResult result : results) {
+                size += RESULT_OVERHEAD_BYTES + (long) BREAKDOWN_ENTRY_BYTES * result.getReasonBreakdown().size();
+            }
+            this.bytes = size;
+        }
+
+        boolean contains(String noteId) {
+            for (SimilarityResult result : results) {
+                if (result.getNote().getId().equals(noteId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.notesmith.similarity;
+
+import java.util.List;
+
+/**
+ * Ranked results of a time-budgeted similarity search.
+ * If the budget ran out first, the ranking is the best one available at the
+ * deadline and isComplete() returns false.
+ */
+public class SimilaritySearchResult {
+    private final List<SimilarityResult> results;
+    private final boolean complete;
+    private final double completeness;
+    
+    public SimilaritySearchResult(List<SimilarityResult> results, boolean complete, double completeness) {
+        this.results = results;
+        this.complete = complete;
+        this.completeness = completeness;
+    }
+    
+    public List<SimilarityResult> getResults() {
+        return results;
+    }
+    
+    /**
+     * True if the ranking equals what an unbounded search would return.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    /**
+     * Fraction of candidates that were fully scored or ruled out (0.0 - 1.0).
+     */
+    public double getCompleteness() {
+        return completeness;
+    }
+}
@@ -0,0 +1,189 @@
+package com.notesmith.similarity;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable sparse term vector: sorted term ids with weights and a precomputed norm.
+ */
+public final class SparseVector {
+
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new double[0]);
+
+    private final int[] indices;
+    private final double[] values;
+    private final double norm;
+
+    private SparseVector(int[] indices, double[] values) {
+        this.indices = indices;
+        this.values = values;
+        double sum = 0.0;
+        for (double v : values) {
+            sum += v * v;
+        }
+        this.norm = Math.sqrt(sum);
+    }
+
+    /**
+     * Build from term weights; terms are mapped through the TermDictionary.
+     */
+    public static SparseVector of(Map<String, ? extends Number> weights) {
+        if (weights.isEmpty()) {
+            return EMPTY;
+        }
+        long[] packed = new long[weights.size()];
+        double[] raw = new double[weights.size()];
+        int n = 0;
+        for (Map.Entry<String, ? extends Number> entry : weights.entrySet()) {
+            double value = entry.getValue().doubleValue();
+            if (value == 0.0) {
+                continue;
+            }
+            raw[n] = value;
+            // Sort by term id while remembering where the value is
+            packed[n] = ((long) TermDictionary.idOf(entry.getKey()) << 32) | n;
+            n++;
+        }
+        Arrays.sort(packed, 0, n);
+
+        int[] indices = new int[n];
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = (int) (packed[i] >>> 32);
+            values[i] = raw[(int) packed[i]];
+        }
+        return new SparseVector(indices, values);
+    }
+
+    /**
+     * Build from term ids already in ascending order; zero weights are dropped.
+     */
+    static SparseVector ofSorted(int[] indices, double[] values, int length) {
+        int n = 0;
+        int[] keptIndices = new int[length];
+        double[] keptValues = new double[length];
+        for (int i = 0; i < length; i++) {
+            if (values[i] != 0.0) {
+                keptIndices[n] = indices[i];
+                keptValues[n] = values[i];
+                n++;
+            }
+        }
+        if (n == 0) {
+            return EMPTY;
+        }
+        return new SparseVector(Arrays.copyOf(keptIndices, n), Arrays.copyOf(keptValues, n));
+    }
+    
+    public int size() {
+        return indices.length;
+    }
+
+    public double norm() {
+        return norm;
+    }
+
+    public double dot(SparseVector other) {
+        return VectorMath.sparseDot(indices, values, indices.length,
+            other.indices, other.values, other.indices.length);
+    }
+
+    public double cosine(SparseVector other) {
+        if (norm == 0.0 || other.norm == 0.0) {
+            return 0.0;
+        }
+        return dot(other) / (norm * other.norm);
+    }
+
+    /**
+     * Dot product with a dense vector indexed by term id.
+     */
+    double dot(double[] dense) {
+        double sum = 0.0;
+        for (int i = 0; i < indices.length; i++) {
+            sum += values[i] * dense[indices[i]];
+        }
+        return sum;
+    }
+
+    /**
+     * Write this vector's weights into a dense array (which must be long
+     * enough for every term id), or zero them again with clear = true.
+     */
+    void scatter(double[] dense, boolean clear) {
+        for (int i = 0; i < indices.length; i++) {
+            dense[indices[i]] = clear ? 0.0 : values[i];
+        }
+    }
+
+    /**
+     * This vector scaled to unit length (EMPTY stays EMPTY).
+     */
+    SparseVector normalized() {
+        if (norm == 0.0 || norm == 1.0) {
+            return this;
+        }
+        double[] scaled = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            scaled[i] = values[i] / norm;
+        }
+        return new SparseVector(indices, scaled);
+    }
+
+    /**
+     * wa * a + wb * b, keeping only the maxTerms largest weights once the sum
+     * grows past twice that (so repeated sums stay bounded without sorting
+     * on every call).
+     */
+    static SparseVector weightedSum(SparseVector a, double wa, SparseVector b, double wb, int maxTerms) {
+        int[] indices = new int[a.indices.length + b.indices.length];
+        double[] values = new double[indices.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.indices.length || j < b.indices.length) {
+            int ai = i < a.indices.length ? a.indices[i] : Integer.MAX_VALUE;
+            int bj = j < b.indices.length ? b.indices[j] : Integer.MAX_VALUE;
+            if (ai == bj) {
+                indices[n] = ai;
+                values[n++] = wa * a.values[i++] + wb * b.values[j++];
+            } else if (ai < bj) {
+                indices[n] = ai;
+                values[n++] = wa * a.values[i++];
+            } else {
+                indices[n] = bj;
+                values[n++] = wb * b.values[j++];
+            }
+        }
+        if (n > 2 * maxTerms) {
+            double[] magnitudes = new double[n];
+            for (int k = 0; k < n; k++) {
+                magnitudes[k] = Math.abs(values[k]);
+            }
+            Arrays.sort(magnitudes);
+            double cutoff = magnitudes[n - maxTerms];
+            for (int k = 0; k < n; k++) {
+                if (Math.abs(values[k]) < cutoff) {
+                    values[k] = 0.0; // dropped by ofSorted
+                }
+            }
+        }
+        return ofSorted(indices, values, n);
+    }
+
+    /**
+     * Term ids of the largest weights, largest first.
+     */
+    int[] topTerms(int count) {
+        Integer[] order = new Integer[indices.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(values[y], values[x]));
+        int[] terms = new int[Math.min(count, order.length)];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = indices[order[i]];
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,68 @@
+package com.notesmith.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable stop-word set backed by a perfect hash: a multiplier is searched
+ * at construction so every word gets its own slot, and a lookup is one hash
+ * plus at most one string comparison.
+ */
+public final class StopWords {
+
+    private final String[] table;
+    private final int multiplier;
+    private final int shift;
+
+    private StopWords(String[] table, int multiplier, int shift) {
+        this.table = table;
+        this.multiplier = multiplier;
+        this.shift = shift;
+    }
+
+    public static StopWords of(String... words) {
+        return of(Arrays.asList(words));
+    }
+
+    public static StopWords of(Collection<String> words) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, words.size() * 2 - 1));
+        while (true) {
+            int shift = 32 - bits;
+            String[] table = new String[1 << bits];
+            // Odd multipliers from a fixed sequence, so the layout is deterministic
+            for (int attempt = 0, multiplier = 0x9E3779B9; attempt < 10_000;
+                 attempt++, multiplier += 0x6A09E668) {
+                if (place(words, table, multiplier | 1, shift)) {
+                    return new StopWords(table, multiplier | 1, shift);
+                }
+            }
+            bits++; // Too crowded; retry with a bigger table
+        }
+    }
+
+    private static boolean place(Collection<String> words, String[] table, int multiplier, int shift) {
+        Arrays.fill(table, null);
+        for (String word : words) {
+            int slot = (word.hashCode() * multiplier) >>> shift;
+            if (table[slot] != null && !table[slot].equals(word)) {
+                return false;
+            }
+            table[slot] = word;
+        }
+        return true;
+    }
+
+    public boolean contains(String word) {
+        String candidate = table[(word.hashCode() * multiplier) >>> shift];
+        return candidate != null && candidate.equals(word);
+    }
+
+    /**
+     * Lookup straight from a tokenizer buffer, without creating a String.
+     */
+    public boolean contains(char[] chars, int length, int hash) {
+        String candidate = table[(hash * multiplier) >>> shift];
+        return candidate != null && candidate.hashCode() == hash
+            && TermDictionary.matches(candidate, chars, length);
+    }
+}
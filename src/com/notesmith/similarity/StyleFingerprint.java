@@ -0,0 +1,275 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputed stylometric features of one note's content.
+ *
+ * Everything ContentCoherenceAnalyzer needs from a single note is extracted
+ * once here. Repeated words are kept as a fixed 256-bit set of term hashes,
+ * so comparing two notes is a handful of arithmetic operations and popcounts
+ * whatever their length. The encoded form is cached on the note and stored
+ * with it; term hashes are FNV-1a (as in SimHash), so it stays valid across
+ * runs.
+ */
+public final class StyleFingerprint {
+
+    private static final int REPEATED_WORDS = 4; // 64-bit words, 256 bits
+    private static final byte ENCODING_VERSION = 1;
+    private static final int ENCODED_LENGTH = 1 + 3 * Integer.BYTES + 6 * Double.BYTES
+        + REPEATED_WORDS * Long.BYTES + 1;
+
+    private static final Set<String> TRANSITION_WORDS = new HashSet<>(Arrays.asList(
+        "however", "therefore", "thus", "hence", "moreover", "furthermore",
+        "additionally", "consequently", "meanwhile", "nevertheless", "nonetheless",
+        "although", "though", "whereas", "while", "because", "since", "if",
+        "then", "so", "yet", "still", "also", "besides", "indeed", "in fact"
+    ));
+
+    // Sentence patterns
+    final int sentenceCount;
+    final double avgSentenceLength;
+    final double questionRatio;
+    // Conceptual density
+    final int totalWords;
+    final double diversity;
+    final long[] repeatedTerms; // bitset of hashed repeated words
+    // Semantic flow
+    final int transitions;
+    final double topicContinuity;
+    // Writing style
+    final double punctuationDensity;
+    final double capitalRatio;
+    final boolean hasList;
+
+    private StyleFingerprint(String content) {
+        String text = content == null ? "" : content;
+        List<String> sentences = extractSentences(text);
+
+        sentenceCount = sentences.size();
+        avgSentenceLength = sentences.stream().mapToInt(String::length).average().orElse(0);
+        questionRatio = sentences.isEmpty() ? 0.0 : countQuestions(sentences) / (double) sentences.size();
+
+        totalWords = countWords(text);
+        int[] words = Tokenizer.termIds(text, 3, null);
+        Arrays.sort(words);
+        int unique = 0;
+        repeatedTerms = new long[REPEATED_WORDS];
+        for (int i = 0; i < words.length; ) {
+            int run = i;
+            while (run < words.length && words[run] == words[i]) {
+                run++;
+            }
+            unique++;
+            if (run - i > 1) {
+                int bit = (int) (SimHash.hash(TermDictionary.termOf(words[i])) >>> 56); // 0..255
+                repeatedTerms[bit >>> 6] |= 1L << bit;
+            }
+            i = run;
+        }
+        diversity = totalWords == 0 ? 0.0 : unique / (double) totalWords;
+
+        transitions = countTransitions(sentences);
+        topicContinuity = calculateTopicContinuity(sentences);
+
+        punctuationDensity = countPunctuation(text) / (double) Math.max(1, text.length());
+        capitalRatio = countCapitalLetters(text) / (double) Math.max(1, text.length());
+        hasList = text.contains("- ") || text.contains("* ") || text.contains("1.");
+    }
+
+    private StyleFingerprint(ByteBuffer in) {
+        sentenceCount = in.getInt();
+        avgSentenceLength = in.getDouble();
+        questionRatio = in.getDouble();
+        totalWords = in.getInt();
+        diversity = in.getDouble();
+        repeatedTerms = new long[REPEATED_WORDS];
+        for (int i = 0; i < REPEATED_WORDS; i++) {
+            repeatedTerms[i] = in.getLong();
+        }
+        transitions = in.getInt();
+        topicContinuity = in.getDouble();
+        punctuationDensity = in.getDouble();
+        capitalRatio = in.getDouble();
+        hasList = in.get() != 0;
+    }
+
+    public static StyleFingerprint of(String content) {
+        return new StyleFingerprint(content);
+    }
+
+    /**
+     * Fingerprint of the note's content, decoded from the copy cached on the
+     * note or computed (and cached there) on first use.
+     */
+    public static StyleFingerprint of(Note note) {
+        StyleFingerprint decoded = decode(note.getStyleFingerprint());
+        if (decoded != null) {
+            return decoded;
+        }
+        StyleFingerprint fingerprint = new StyleFingerprint(note.getContent());
+        note.setStyleFingerprint(fingerprint.encode());
+        return fingerprint;
+    }
+
+    /**
+     * Compact binary form, as stored in notes.style_fingerprint.
+     */
+    public byte[] encode() {
+        ByteBuffer out = ByteBuffer.allocate(ENCODED_LENGTH);
+        out.put(ENCODING_VERSION);
+        out.putInt(sentenceCount);
+        out.putDouble(avgSentenceLength);
+        out.putDouble(questionRatio);
+        out.putInt(totalWords);
+        out.putDouble(diversity);
+        for (long word : repeatedTerms) {
+            out.putLong(word);
+        }
+        out.putInt(transitions);
+        out.putDouble(topicContinuity);
+        out.putDouble(punctuationDensity);
+        out.putDouble(capitalRatio);
+        out.put((byte) (hasList ? 1 : 0));
+        return out.array();
+    }
+
+    /**
+     * Inverse of encode(); null for a missing value or one from another encoding version.
+     */
+    public static StyleFingerprint decode(byte[] encoded) {
+        if (encoded == null || encoded.length != ENCODED_LENGTH || encoded[0] != ENCODING_VERSION) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        in.get();
+        return new StyleFingerprint(in);
+    }
+
+    /**
+     * Sentence structure: average length, count and question ratio.
+     */
+    double sentencePatternSimilarity(StyleFingerprint other) {
+        if (sentenceCount == 0 || other.sentenceCount == 0) {
+            return 0.0;
+        }
+        double lengthSimilarity = 1.0 - Math.min(1.0,
+            Math.abs(avgSentenceLength - other.avgSentenceLength) /
+            Math.max(avgSentenceLength, other.avgSentenceLength));
+        double countRatio = Math.min(sentenceCount, other.sentenceCount) /
+                           (double) Math.max(sentenceCount, other.sentenceCount);
+        double questionSimilarity = 1.0 - Math.abs(questionRatio - other.questionRatio);
+        return (0.4 * lengthSimilarity) + (0.3 * countRatio) + (0.3 * questionSimilarity);
+    }
+
+    /**
+     * Vocabulary diversity and overlap of repeated words.
+     */
+    double conceptualDensitySimilarity(StyleFingerprint other) {
+        if (totalWords == 0 || other.totalWords == 0) {
+            return 0.0;
+        }
+        double diversitySimilarity = 1.0 - Math.abs(diversity - other.diversity);
+        return (0.6 * diversitySimilarity) + (0.4 * repetitionSimilarity(other));
+    }
+
+    private double repetitionSimilarity(StyleFingerprint other) {
+        int intersection = 0;
+        int union = 0;
+        for (int i = 0; i < REPEATED_WORDS; i++) {
+            intersection += Long.bitCount(repeatedTerms[i] & other.repeatedTerms[i]);
+            union += Long.bitCount(repeatedTerms[i] | other.repeatedTerms[i]);
+        }
+        return union == 0 ? 0.0 : intersection / (double) union;
+    }
+
+    /**
+     * Transition word usage and topic continuity between sentences.
+     */
+    double semanticFlowSimilarity(StyleFingerprint other) {
+        if (sentenceCount < 2 || other.sentenceCount < 2) {
+            return 0.0;
+        }
+        double transitionScore;
+        if (transitions == 0 && other.transitions == 0) {
+            transitionScore = 1.0; // Both have no transitions
+        } else {
+            transitionScore = Math.min(transitions, other.transitions) /
+                             (double) Math.max(transitions, other.transitions);
+        }
+        double continuitySimilarity = 1.0 - Math.abs(topicContinuity - other.topicContinuity);
+        return (0.5 * transitionScore) + (0.5 * continuitySimilarity);
+    }
+
+    /**
+     * Punctuation density, capitalization and list usage.
+     */
+    double writingStyleSimilarity(StyleFingerprint other) {
+        double punctSimilarity = 1.0 - Math.abs(punctuationDensity - other.punctuationDensity) * 100;
+        double capSimilarity = 1.0 - Math.abs(capitalRatio - other.capitalRatio) * 10;
+        double listSimilarity = (hasList == other.hasList) ? 1.0 : 0.3;
+        return (0.4 * punctSimilarity) + (0.3 * capSimilarity) + (0.3 * listSimilarity);
+    }
+
+    // ===== Extraction =====
+
+    private static List<String> extractSentences(String text) {
+        if (text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(text.split("[.!?]+"))
+            .map(String::trim)
+            .filter(s -> s.length() > 10) // Filter very short fragments
+            .collect(Collectors.toList());
+    }
+
+    private static int countQuestions(List<String> sentences) {
+        return (int) sentences.stream()
+            .filter(s -> s.trim().endsWith("?"))
+            .count();
+    }
+
+    private static int countWords(String text) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        return text.split("\\s+").length;
+    }
+
+    private static int countTransitions(List<String> sentences) {
+        return (int) sentences.stream()
+            .flatMap(s -> Arrays.stream(s.toLowerCase().split("\\s+")))
+            .filter(TRANSITION_WORDS::contains)
+            .count();
+    }
+
+    private static double calculateTopicContinuity(List<String> sentences) {
+        if (sentences.size() < 2) {
+            return 0.0;
+        }
+
+        double totalContinuity = 0.0;
+        for (int i = 0; i < sentences.size() - 1; i++) {
+            int[] words1 = Tokenizer.distinctTermIds(sentences.get(i), 3, null);
+            int[] words2 = Tokenizer.distinctTermIds(sentences.get(i + 1), 3, null);
+            totalContinuity += VectorMath.jaccard(words1, words2);
+        }
+        return totalContinuity / (sentences.size() - 1);
+    }
+
+    private static int countPunctuation(String text) {
+        return (int) text.chars()
+            .filter(c -> ".,;:!?-()[]{}\"'".indexOf(c) >= 0)
+            .count();
+    }
+
+    private static int countCapitalLetters(String text) {
+        return (int) text.chars()
+            .filter(Character::isUpperCase)
+            .count();
+    }
+}
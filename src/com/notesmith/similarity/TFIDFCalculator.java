@@ -2,8 +2,8 @@ package com.notesmith.similarity;
 
 import com.notesmith.model.Note;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * TF-IDF (Term Frequency-Inverse Document Frequency) calculator.
@@ -11,142 +11,136 @@ import java.util.stream.Collectors;
  */
 public class TFIDFCalculator {
     
-    private Map<String, Integer> documentFrequency;
+    // Common English stop words to filter out
+    private static final StopWords STOP_WORDS = StopWords.of(
+        "the", "and", "for", "are", "but", "not", "you", "all", "can", "her",
+        "was", "one", "our", "out", "day", "get", "has", "him", "his", "how",
+        "man", "new", "now", "old", "see", "two", "way", "who", "boy", "did",
+        "its", "let", "put", "say", "she", "too", "use", "this", "that", "with",
+        "have", "from", "they", "will", "what", "been", "more", "when", "your",
+        "said", "each", "tell", "does", "very", "just", "than", "into", "them"
+    );
+    
+    private int[] documentFrequency; // by term id
     private int totalDocuments;
-    private Set<String> stopWords;
+    // TF-IDF vectors for the current corpus, by note id (cleared on rebuild)
+    private final Map<String, SparseVector> vectorCache;
+    // Note versions the statistics were built from
+    private final Map<String, LocalDateTime> corpusVersions;
     
     public TFIDFCalculator() {
-        this.documentFrequency = new HashMap<>();
-        this.stopWords = createStopWords();
+        this.documentFrequency = new int[0];
+        this.vectorCache = new HashMap<>();
+        this.corpusVersions = new HashMap<>();
     }
     
     /**
      * Build corpus statistics from all notes.
+     * A no-op when the same note versions were already indexed.
      */
     public void buildCorpus(List<Note> notes) {
-        documentFrequency.clear();
+        if (isCurrentCorpus(notes)) {
+            return;
+        }
+        
+        documentFrequency = new int[TermDictionary.size()];
+        vectorCache.clear();
+        corpusVersions.clear();
         totalDocuments = notes.size();
         
         for (Note note : notes) {
-            Set<String> uniqueWords = tokenize(note.getContent());
-            for (String word : uniqueWords) {
-                documentFrequency.put(word, documentFrequency.getOrDefault(word, 0) + 1);
+            corpusVersions.put(note.getId(), note.getUpdatedAt());
+            for (int termId : tokenize(note.getContent(), true)) {
+                if (termId >= documentFrequency.length) {
+                    documentFrequency = Arrays.copyOf(documentFrequency,
+                        Math.max(termId + 1, documentFrequency.length * 2));
+                }
+                documentFrequency[termId]++;
+            }
+        }
+    }
+    
+    private boolean isCurrentCorpus(List<Note> notes) {
+        if (notes.size() != totalDocuments || corpusVersions.size() != notes.size()) {
+            return false;
+        }
+        for (Note note : notes) {
+            if (!note.getUpdatedAt().equals(corpusVersions.get(note.getId()))) {
+                return false;
             }
         }
+        return true;
     }
     
     /**
      * Calculate TF-IDF similarity between two notes.
      */
     public double calculate(Note note1, Note note2) {
-        Map<String, Double> vector1 = getTFIDFVector(note1);
-        Map<String, Double> vector2 = getTFIDFVector(note2);
-        
-        return cosineSimilarity(vector1, vector2);
+        return getVector(note1).cosine(getVector(note2));
     }
     
     /**
-     * Get TF-IDF vector for a note.
+     * TF-IDF vector for a note, computed once per corpus build.
      */
-    private Map<String, Double> getTFIDFVector(Note note) {
-        Map<String, Double> vector = new HashMap<>();
-        List<String> words = tokenizeList(note.getContent());
-        
-        // Calculate term frequency
-        Map<String, Integer> termFreq = new HashMap<>();
-        for (String word : words) {
-            termFreq.put(word, termFreq.getOrDefault(word, 0) + 1);
+    private SparseVector getVector(Note note) {
+        SparseVector vector = vectorCache.get(note.getId());
+        if (vector == null) {
+            vector = getTFIDFVector(note);
+            vectorCache.put(note.getId(), vector);
         }
-        
-        // Calculate TF-IDF for each term
-        for (Map.Entry<String, Integer> entry : termFreq.entrySet()) {
-            String term = entry.getKey();
-            int tf = entry.getValue();
-            
-            double idf = calculateIDF(term);
-            double tfidf = tf * idf;
-            
-            vector.put(term, tfidf);
-        }
-        
         return vector;
     }
     
     /**
-     * Calculate Inverse Document Frequency for a term.
+     * TF-IDF vector for the note's current content against the current
+     * corpus statistics, bypassing the per-build cache.
      */
-    private double calculateIDF(String term) {
-        int df = documentFrequency.getOrDefault(term, 0);
-        if (df == 0) {
-            return 0.0;
-        }
-        return Math.log((double) totalDocuments / df);
+    SparseVector vectorOf(Note note) {
+        return getTFIDFVector(note);
     }
     
     /**
-     * Calculate cosine similarity between two TF-IDF vectors.
+     * Get TF-IDF vector for a note.
      */
-    private double cosineSimilarity(Map<String, Double> v1, Map<String, Double> v2) {
-        if (v1.isEmpty() || v2.isEmpty()) {
-            return 0.0;
-        }
-        
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-        
-        Set<String> allTerms = new HashSet<>();
-        allTerms.addAll(v1.keySet());
-        allTerms.addAll(v2.keySet());
+    private SparseVector getTFIDFVector(Note note) {
+        // Sorted term ids: equal terms are adjacent, so term frequency is the run length
+        int[] terms = tokenize(note.getContent(), false);
+        Arrays.sort(terms);
         
-        for (String term : allTerms) {
-            double val1 = v1.getOrDefault(term, 0.0);
-            double val2 = v2.getOrDefault(term, 0.0);
-            
-            dotProduct += val1 * val2;
-            norm1 += val1 * val1;
-            norm2 += val2 * val2;
-        }
-        
-        if (norm1 == 0.0 || norm2 == 0.0) {
-            return 0.0;
+        int[] indices = new int[terms.length];
+        double[] values = new double[terms.length];
+        int n = 0;
+        for (int i = 0; i < terms.length; ) {
+            int term = terms[i];
+            int tf = 0;
+            while (i < terms.length && terms[i] == term) {
+                tf++;
+                i++;
+            }
+            indices[n] = term;
+            values[n] = tf * calculateIDF(term);
+            n++;
         }
-        
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+        return SparseVector.ofSorted(indices, values, n);
     }
     
     /**
-     * Tokenize text into set of words.
-     */
-    private Set<String> tokenize(String text) {
-        return tokenizeList(text).stream().collect(Collectors.toSet());
-    }
-    
-    /**
-     * Tokenize text into list of words (preserves duplicates).
+     * Calculate Inverse Document Frequency for a term.
      */
-    private List<String> tokenizeList(String text) {
-        if (text == null || text.isEmpty()) {
-            return Collections.emptyList();
+    private double calculateIDF(int termId) {
+        int df = termId < documentFrequency.length ? documentFrequency[termId] : 0;
+        if (df == 0) {
+            return 0.0;
         }
-        
-        return Arrays.stream(text.toLowerCase().split("\\W+"))
-            .filter(word -> word.length() > 2)
-            .filter(word -> !stopWords.contains(word))
-            .collect(Collectors.toList());
+        return Math.log((double) totalDocuments / df);
     }
     
     /**
-     * Common English stop words to filter out.
+     * Term ids of the words in the text (longer than two characters, no stop words).
      */
-    private Set<String> createStopWords() {
-        return new HashSet<>(Arrays.asList(
-            "the", "and", "for", "are", "but", "not", "you", "all", "can", "her",
-            "was", "one", "our", "out", "day", "get", "has", "him", "his", "how",
-            "man", "new", "now", "old", "see", "two", "way", "who", "boy", "did",
-            "its", "let", "put", "say", "she", "too", "use", "this", "that", "with",
-            "have", "from", "they", "will", "what", "been", "more", "when", "your",
-            "said", "each", "tell", "does", "very", "just", "than", "into", "them"
-        ));
+    private int[] tokenize(String text, boolean distinct) {
+        return distinct
+            ? Tokenizer.distinctTermIds(text, 3, STOP_WORDS)
+            : Tokenizer.termIds(text, 3, STOP_WORDS);
     }
 }
@@ -0,0 +1,93 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maps one user's tags to bit positions and keeps each note's tags as a
+ * compact bitset, so tag Jaccard is popcount(and) / popcount(or).
+ * Not thread-safe; owned by one SimilarityEngine like its other caches.
+ */
+public class TagDictionary {
+
+    private final Map<String, Integer> bits = new HashMap<>();
+    private final Map<String, CachedTags> noteTags = new HashMap<>();
+
+    /**
+     * Bit position of a tag, assigned on first use.
+     */
+    public int bitOf(String tag) {
+        Integer bit = bits.get(tag);
+        if (bit == null) {
+            bit = bits.size();
+            bits.put(tag, bit);
+        }
+        return bit;
+    }
+
+    /**
+     * Tag bitset of the note's current version.
+     */
+    public long[] tagsOf(Note note) {
+        CachedTags cached = noteTags.get(note.getId());
+        if (cached != null && cached.version.equals(note.getUpdatedAt())) {
+            return cached.bits;
+        }
+        long[] set = toBitset(note.getTagView());
+        noteTags.put(note.getId(), new CachedTags(note.getUpdatedAt(), set));
+        return set;
+    }
+
+    public long[] toBitset(Collection<String> tags) {
+        long[] set = new long[0];
+        for (String tag : tags) {
+            int bit = bitOf(tag);
+            if ((bit >>> 6) >= set.length) {
+                set = Arrays.copyOf(set, (bit >>> 6) + 1);
+            }
+            set[bit >>> 6] |= 1L << bit;
+        }
+        return set;
+    }
+
+    /**
+     * Jaccard similarity of two bitsets (0 if either is empty).
+     */
+    public static double jaccard(long[] a, long[] b) {
+        int intersection = 0;
+        int union = 0;
+        int common = Math.min(a.length, b.length);
+        int countA = 0;
+        int countB = 0;
+        for (int i = 0; i < common; i++) {
+            intersection += Long.bitCount(a[i] & b[i]);
+            union += Long.bitCount(a[i] | b[i]);
+            countA += Long.bitCount(a[i]);
+            countB += Long.bitCount(b[i]);
+        }
+        for (int i = common; i < a.length; i++) {
+            union += Long.bitCount(a[i]);
+            countA += Long.bitCount(a[i]);
+        }
+        for (int i = common; i < b.length; i++) {
+            union += Long.bitCount(b[i]);
+            countB += Long.bitCount(b[i]);
+        }
+        if (countA == 0 || countB == 0) {
+            return 0.0;
+        }
+        return (double) intersection / union;
+    }
+
+    private static class CachedTags {
+        final LocalDateTime version;
+        final long[] bits;
+
+        CachedTags(LocalDateTime version, long[] bits) {
+            this.version = version;
+            this.bits = bits;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.util.*;
+
+/**
+ * Inverted tag index for filter queries: one bitmap over note positions per
+ * tag, so "notes with all of these tags" is an AND of a few long[] bitmaps.
+ * Rebuilt from the note list whenever it is reloaded.
+ */
+public class TagIndex {
+
+    private List<Note> notes = new ArrayList<>();
+    private final Map<String, long[]> postings = new HashMap<>();
+
+    public synchronized void rebuild(List<Note> allNotes) {
+        notes = new ArrayList<>(allNotes);
+        postings.clear();
+        int words = (notes.size() + 63) >>> 6;
+        for (int i = 0; i < notes.size(); i++) {
+            for (String tag : notes.get(i).getTagView()) {
+                long[] bitmap = postings.computeIfAbsent(tag.toLowerCase(), t -> new long[words]);
+                bitmap[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Notes carrying every one of the given tags (case-insensitive), in list order.
+     */
+    public synchronized List<Note> findWithAllTags(Collection<String> tags) {
+        long[] result = null;
+        for (String tag : tags) {
+            long[] bitmap = postings.get(tag.toLowerCase());
+            if (bitmap == null) {
+                return new ArrayList<>();
+            }
+            if (result == null) {
+                result = bitmap.clone();
+            } else {
+                for (int w = 0; w < result.length; w++) {
+                    result[w] &= bitmap[w];
+                }
+            }
+        }
+        if (result == null) {
+            return new ArrayList<>(notes);
+        }
+
+        List<Note> matches = new ArrayList<>();
+        for (int w = 0; w < result.length; w++) {
+            long word = result[w];
+            while (word != 0) {
+                matches.add(notes.get((w << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,156 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Time index over notes: the notes sorted by updated and by created
+ * timestamp, so time-window queries are a binary search plus a scan of
+ * the matching range instead of a pass over every note.
+ * Rebuilt from the note list whenever it is reloaded.
+ */
+public class TemporalIndex {
+
+    private Timeline updated = new Timeline(new long[0], new Note[0]);
+    private Timeline created = updated;
+    private int indexedSize = -1;
+    private boolean stale = true;
+
+    public synchronized void rebuild(List<Note> allNotes) {
+        updated = Timeline.of(allNotes, true);
+        created = Timeline.of(allNotes, false);
+        indexedSize = allNotes.size();
+        stale = false;
+    }
+
+    /**
+     * Rebuild unless the index already covers this corpus: same size and no
+     * change reported through invalidate() since the last build.
+     */
+    public synchronized void sync(List<Note> allNotes) {
+        if (stale || indexedSize != allNotes.size()) {
+            rebuild(allNotes);
+        }
+    }
+
+    /**
+     * A note was saved or deleted; the next sync() rebuilds.
+     */
+    public synchronized void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Notes last edited within the window before or after the target's last
+     * edit, closest in time first, at most limit of them. The target itself
+     * is not included.
+     */
+    public synchronized List<Note> findEditedNear(Note target, Duration window, int limit) {
+        long center = millis(target.getUpdatedAt());
+        long reach = window.toMillis();
+        Timeline timeline = updated;
+        int right = timeline.lowerBound(center);
+        int left = right - 1;
+
+        List<Note> near = new ArrayList<>();
+        while (near.size() < limit) {
+            long leftGap = left >= 0 ? center - timeline.millis[left] : Long.MAX_VALUE;
+            long rightGap = right < timeline.size() ? timeline.millis[right] - center : Long.MAX_VALUE;
+            if (Math.min(leftGap, rightGap) > reach) {
+                break;
+            }
+            Note note = leftGap <= rightGap ? timeline.notes[left--] : timeline.notes[right++];
+            if (!note.getId().equals(target.getId())) {
+                near.add(note);
+            }
+        }
+        return near;
+    }
+
+    /**
+     * Notes last edited in [from, to), newest first.
+     */
+    public synchronized List<Note> findUpdatedBetween(LocalDateTime from, LocalDateTime to) {
+        return updated.newestFirst(millis(from), millis(to));
+    }
+
+    /**
+     * Notes last edited at or after from, newest first.
+     */
+    public synchronized List<Note> findUpdatedSince(LocalDateTime from) {
+        return updated.newestFirst(millis(from), Long.MAX_VALUE);
+    }
+
+    /**
+     * Notes created in [from, to), newest first.
+     */
+    public synchronized List<Note> findCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return created.newestFirst(millis(from), millis(to));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Notes ordered by one timestamp, with the timestamps in a parallel
+     * array for the binary search.
+     */
+    private static class Timeline {
+        final long[] millis;
+        final Note[] notes;
+
+        Timeline(long[] millis, Note[] notes) {
+            this.millis = millis;
+            this.notes = notes;
+        }
+
+        static Timeline of(List<Note> allNotes, boolean byUpdated) {
+            Note[] sorted = allNotes.toArray(new Note[0]);
+            Comparator<Note> order = byUpdated
+                ? Comparator.comparing(Note::getUpdatedAt)
+                : Comparator.comparing(Note::getCreatedAt);
+            Arrays.sort(sorted, order);
+            long[] millis = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                millis[i] = TemporalIndex.millis(byUpdated ? sorted[i].getUpdatedAt() : sorted[i].getCreatedAt());
+            }
+            return new Timeline(millis, sorted);
+        }
+
+        int size() {
+            return notes.length;
+        }
+
+        /**
+         * First position whose timestamp is at or after the given one.
+         */
+        int lowerBound(long time) {
+            int low = 0;
+            int high = millis.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (millis[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        List<Note> newestFirst(long from, long to) {
+            int start = lowerBound(from);
+            int end = lowerBound(to);
+            List<Note> range = new ArrayList<>(Math.max(0, end - start));
+            for (int i = end - 1; i >= start; i--) {
+                range.add(notes[i]);
+            }
+            return range;
+        }
+    }
+}
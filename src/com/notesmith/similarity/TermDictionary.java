@@ -0,0 +1,187 @@
+package com.notesmith.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Process-wide mapping from terms to dense int ids, so term vectors can be
+ * stored as sorted int arrays instead of string-keyed maps.
+ *
+ * Terms are interned once; the tokenizer looks them up straight from its
+ * character buffer, so a known term costs no allocation. Term hashes are
+ * String.hashCode-compatible.
+ *
+ * Lookups of known terms and termOf() read a volatile snapshot of the table
+ * without locking; only inserting a new term takes the lock. Slots and terms
+ * are append-only, and a new snapshot is published after each insert, so a
+ * reader either finds a published id or falls back to the locked path.
+ *
+ * Ids are never reused, so the dictionary grows with the distinct words the
+ * process has seen (notes, queries and AI text alike) and is only released
+ * on exit. That is about 60 bytes per term; a personal note collection stays
+ * in the tens of thousands of terms. Callers that keep arrays indexed by term
+ * id (TopicClusterer's scratch vector, TagSuggester's counts) grow with it,
+ * at 8 to 12 bytes per term.
+ */
+public final class TermDictionary {
+
+    private static final Object lock = new Object();
+    private static volatile Table table = new Table(new int[1024], new String[512], 0);
+
+    private TermDictionary() {}
+
+    public static int idOf(String term) {
+        int hash = term.hashCode();
+        Table current = table;
+        int mask = current.slots.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = current.slots[i] - 1;
+            if (id < 0 || id >= current.size) {
+                break; // Not published in this snapshot
+            }
+            if (current.terms[id].equals(term)) {
+                return id;
+            }
+        }
+        synchronized (lock) {
+            return lookupOrInsert(term, hash);
+        }
+    }
+
+    /**
+     * Id of the term held in chars[0..length), whose String hash is given.
+     */
+    public static int idOf(char[] chars, int length, int hash) {
+        Table current = table;
+        int mask = current.slots.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = current.slots[i] - 1;
+            if (id < 0 || id >= current.size) {
+                break; // Not published in this snapshot
+            }
+            String term = current.terms[id];
+            if (term.hashCode() == hash && matches(term, chars, length)) {
+                return id;
+            }
+        }
+        synchronized (lock) {
+            return lookupOrInsert(new String(chars, 0, length), hash);
+        }
+    }
+
+    /**
+     * Id of the term held in chars[0..length) if it is already known, else -1.
+     * Never inserts, so text that is only looked up (e.g. half-typed words)
+     * does not grow the dictionary. A term being inserted concurrently may
+     * still read as unknown.
+     */
+    public static int lookup(char[] chars, int length, int hash) {
+        Table current = table;
+        int mask = current.slots.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = current.slots[i] - 1;
+            if (id < 0 || id >= current.size) {
+                return -1;
+            }
+            String term = current.terms[id];
+            if (term.hashCode() == hash && matches(term, chars, length)) {
+                return id;
+            }
+        }
+    }
+
+    public static String termOf(int id) {
+        Table current = table;
+        if (id < current.size) {
+            return current.terms[id];
+        }
+        synchronized (lock) {
+            return table.terms[id];
+        }
+    }
+
+    public static int size() {
+        return table.size;
+    }
+
+    /**
+     * Slow path, with the lock held.
+     */
+    private static int lookupOrInsert(String term, int hash) {
+        Table current = table;
+        int mask = current.slots.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int slot = current.slots[i];
+            if (slot == 0) {
+                return insert(current, i, term);
+            }
+            if (current.terms[slot - 1].equals(term)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    private static int insert(Table current, int slot, String term) {
+        int id = current.size;
+        String[] terms = current.terms;
+        if (id == terms.length) {
+            terms = Arrays.copyOf(terms, terms.length * 2);
+        }
+        terms[id] = term;
+        int[] slots = current.slots;
+        slots[slot] = id + 1;
+        int size = id + 1;
+        if (size * 2 > slots.length) {
+            slots = rehash(terms, size, slots.length * 2);
+        }
+        table = new Table(slots, terms, size); // Publishes terms[id] to lock-free readers
+        return id;
+    }
+
+    private static int[] rehash(String[] terms, int size, int capacity) {
+        int[] grown = new int[capacity];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = mix(terms[id].hashCode()) & mask;
+            while (grown[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            grown[i] = id + 1;
+        }
+        return grown;
+    }
+
+    static boolean matches(String term, char[] chars, int length) {
+        if (term.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (term.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * Open-addressing table (slot = id + 1, 0 = empty) and the terms by id.
+     * Only ids below size are guaranteed visible to readers of this snapshot.
+     */
+    private static final class Table {
+        final int[] slots;
+        final String[] terms;
+        final int size;
+
+        Table(int[] slots, String[] terms, int size) {
+            this.slots = slots;
+            this.terms = terms;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.notesmith.similarity;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Streaming word tokenizer shared by the similarity and AI code.
+ *
+ * Walks the text once, lowercasing into a reused buffer, and reports each
+ * word as a TermDictionary id. A word is a run of Unicode letters, digits,
+ * combining marks or underscores, so accented words stay whole (unlike a
+ * split on \W). Known terms and stop words are resolved without allocating.
+ */
+public final class Tokenizer {
+
+    private static final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[64]);
+
+    private Tokenizer() {}
+
+    /**
+     * Report the term id of every word with at least minLength chars that is
+     * not a stop word (stopWords may be null).
+     */
+    public static void forEachTerm(CharSequence text, int minLength, StopWords stopWords, IntConsumer consumer) {
+        scan(text, minLength, stopWords, true, consumer);
+    }
+
+    /**
+     * Like forEachTerm, but only reports words the TermDictionary already
+     * knows and never adds new ones. For text that is scored rather than
+     * indexed, such as an editor's content on every keystroke.
+     */
+    public static void forEachKnownTerm(CharSequence text, int minLength, StopWords stopWords,
+                                        IntConsumer consumer) {
+        scan(text, minLength, stopWords, false, consumer);
+    }
+
+    private static void scan(CharSequence text, int minLength, StopWords stopWords, boolean intern,
+                             IntConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        char[] buffer = buffers.get();
+        int length = 0;
+        int hash = 0;
+        int i = 0;
+        int end = text.length();
+        while (i <= end) {
+            int cp = i < end ? Character.codePointAt(text, i) : ' ';
+            if (isWordChar(cp)) {
+                int lower = Character.toLowerCase(cp);
+                if (length + 2 > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffers.set(buffer);
+                }
+                if (Character.isBmpCodePoint(lower)) {
+                    buffer[length++] = (char) lower;
+                    hash = 31 * hash + lower;
+                } else {
+                    char high = Character.highSurrogate(lower);
+                    char low = Character.lowSurrogate(lower);
+                    buffer[length++] = high;
+                    buffer[length++] = low;
+                    hash = 31 * (31 * hash + high) + low;
+                }
+            } else if (length > 0) {
+                if (length >= minLength && (stopWords == null || !stopWords.contains(buffer, length, hash))) {
+                    int id = intern ? TermDictionary.idOf(buffer, length, hash)
+                                    : TermDictionary.lookup(buffer, length, hash);
+                    if (id >= 0) {
+                        consumer.accept(id);
+                    }
+                }
+                length = 0;
+                hash = 0;
+            }
+            i += i < end ? Character.charCount(cp) : 1;
+        }
+    }
+
+    /**
+     * Term ids of all matching words, in order.
+     */
+    public static int[] termIds(CharSequence text, int minLength, StopWords stopWords) {
+        IntList ids = new IntList();
+        forEachTerm(text, minLength, stopWords, ids);
+        return ids.toArray();
+    }
+
+    /**
+     * Term ids of the matching words the dictionary already knows, in order.
+     */
+    public static int[] knownTermIds(CharSequence text, int minLength, StopWords stopWords) {
+        IntList ids = new IntList();
+        forEachKnownTerm(text, minLength, stopWords, ids);
+        return ids.toArray();
+    }
+
+    /**
+     * Sorted, distinct term ids of all matching words.
+     */
+    public static int[] distinctTermIds(CharSequence text, int minLength, StopWords stopWords) {
+        int[] ids = termIds(text, minLength, stopWords);
+        Arrays.sort(ids);
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[n++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    private static boolean isWordChar(int cp) {
+        if (cp < 128) {
+            return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9') || cp == '_';
+        }
+        if (Character.isLetterOrDigit(cp)) {
+            return true;
+        }
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static final class IntList implements IntConsumer {
+        private int[] values = new int[32];
+        private int size;
+
+        @Override
+        public void accept(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
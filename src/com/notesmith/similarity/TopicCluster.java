@@ -0,0 +1,41 @@
+package com.notesmith.similarity;
+
+import com.notesmith.model.Note;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One topic cluster: its strongest centroid terms and the notes assigned to it.
+ */
+public class TopicCluster {
+
+    private final int id;
+    private final List<String> topTerms;
+    private final List<Note> notes;
+
+    public TopicCluster(int id, List<String> topTerms, List<Note> notes) {
+        this.id = id;
+        this.topTerms = topTerms;
+        this.notes = notes;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<String> getTopTerms() {
+        return Collections.unmodifiableList(topTerms);
+    }
+
+    public List<Note> getNotes() {
+        return Collections.unmodifiableList(notes);
+    }
+
+    /**
+     * Short label built from the top terms, e.g. "budget, forecast, quarter".
+     */
+    public String getLabel() {
+        return topTerms.isEmpty() ? "(no terms)" : String.join(", ", topTerms);
+    }
+}
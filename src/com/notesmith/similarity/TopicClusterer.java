@@ -0,0 +1,405 @@
+package com.notesmith.similarity;
+
+import com.notesmith.config.AppConfig;
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.Note;
+import com.notesmith.model.NoteCluster;
+import com.notesmith.persistence.NoteChangeListener;
+import com.notesmith.persistence.NoteClusterRepository;
+import com.notesmith.util.Logger;
+
+import java.util.*;
+
+/**
+ * Topic clusters over TF-IDF note vectors (spherical mini-batch k-means).
+ *
+ * A full fit samples up to TRAINING_SAMPLE notes, seeds the centroids with
+ * k-means++ and runs mini-batch updates with a per-centroid learning rate of
+ * 1/count; every note is then assigned to its nearest centroid. After that
+ * centroids move online as new notes arrive. Edited notes are only
+ * reassigned: the centroid already absorbed their old vector, which is not
+ * kept and so cannot be taken out again, and absorbing every version would
+ * pull the centroid towards frequently edited notes. Assignments are
+ * persisted per note version, and on the next start the centroids are
+ * recomputed from them in one pass instead of refitting.
+ *
+ * The centroids double as a coarse quantizer: restrictToNearestClusters()
+ * narrows a similarity search to the notes of the closest few clusters.
+ */
+public class TopicClusterer implements NoteChangeListener {
+
+    private static final Logger logger = Logger.getLogger(TopicClusterer.class);
+
+    private static final int TRAINING_SAMPLE = 5000;
+    private static final int BATCH_SIZE = 128;
+    private static final int MIN_ITERATIONS = 20;
+    private static final int MAX_CENTROID_TERMS = 100;
+    private static final int LABEL_TERMS = 3;
+    // Restore from stored assignments only if they cover most notes
+    private static final double MIN_RESTORE_COVERAGE = 0.9;
+
+    private final NoteClusterRepository repository; // null = in-memory only
+    private final int maxClusters;
+    private final TFIDFCalculator tfidf = new TFIDFCalculator();
+    private final Map<String, NoteCluster> assignments = new HashMap<>(); // guarded by this
+    private final List<NoteCluster> unsaved = new ArrayList<>();
+    private final Random random = new Random(42); // fixed seed: same notes, same clusters
+    private SparseVector[] centroids; // unit length; null = not fitted yet
+    private int[] counts;
+    private double[] scratch = new double[1024]; // dense query for nearest(), all zero between calls; sized to TermDictionary
+    private int fittedSize;
+    private boolean loaded;
+
+    public TopicClusterer(NoteClusterRepository repository) {
+        this(repository, AppConfig.getMaxTopicClusters());
+    }
+
+    public TopicClusterer(NoteClusterRepository repository, int maxClusters) {
+        this.repository = repository;
+        this.maxClusters = Math.max(1, maxClusters);
+    }
+
+    /**
+     * Bring the clusters in line with the given notes: fit (or restore) on
+     * first use or when the corpus has doubled since the last fit, assign new
+     * and changed notes, forget deleted ones.
+     */
+    public synchronized void sync(List<Note> notes) {
+        load();
+        tfidf.buildCorpus(notes);
+        if (centroids == null) {
+            if (!restoreCentroids(notes)) {
+                fit(notes);
+            }
+        } else if (notes.size() > 2 * fittedSize) {
+            fit(notes);
+        }
+
+        Set<String> live = new HashSet<>();
+        for (Note note : notes) {
+            live.add(note.getId());
+            NoteCluster assignment = assignments.get(note.getId());
+            if (assignment == null || !assignment.isCurrentFor(note)) {
+                assign(note, true);
+            }
+        }
+        Iterator<NoteCluster> it = assignments.values().iterator();
+        while (it.hasNext()) {
+            NoteCluster assignment = it.next();
+            if (!live.contains(assignment.getNoteId())) {
+                release(assignment);
+                it.remove();
+            }
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void onNoteSaved(Note note) {
+        if (centroids != null) {
+            assign(note, true); // persisted with the next sync
+        }
+    }
+
+    @Override
+    public synchronized void onNoteDeleted(String noteId) {
+        NoteCluster assignment = assignments.remove(noteId);
+        if (assignment != null) {
+            release(assignment);
+        }
+    }
+
+    /**
+     * The notes in the clusters nearest to the target (plus its own cluster
+     * and any unassigned notes). Returns the list unchanged if there are too
+     * few clusters to narrow it or the target has no indexed terms.
+     */
+    public synchronized List<Note> restrictToNearestClusters(Note target, List<Note> notes, int probes) {
+        if (centroids == null || centroids.length <= probes) {
+            return notes;
+        }
+        SparseVector vector = tfidf.vectorOf(target).normalized();
+        if (vector.size() == 0) {
+            return notes;
+        }
+
+        Integer[] order = new Integer[centroids.length];
+        double[] scores = new double[centroids.length];
+        for (int c = 0; c < centroids.length; c++) {
+            order[c] = c;
+            scores[c] = vector.dot(centroids[c]);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        boolean[] probed = new boolean[centroids.length];
+        for (int i = 0; i < probes; i++) {
+            probed[order[i]] = true;
+        }
+        NoteCluster own = assignments.get(target.getId());
+        if (own != null) {
+            probed[own.getClusterId()] = true;
+        }
+
+        List<Note> restricted = new ArrayList<>();
+        for (Note note : notes) {
+            NoteCluster assignment = assignments.get(note.getId());
+            if (assignment == null || probed[assignment.getClusterId()]) {
+                restricted.add(note);
+            }
+        }
+        return restricted;
+    }
+
+    /**
+     * Notes grouped by cluster, largest cluster first. Call sync() first.
+     */
+    public synchronized List<TopicCluster> getClusters(List<Note> notes) {
+        if (centroids == null) {
+            return Collections.emptyList();
+        }
+        Map<Integer, List<Note>> members = new HashMap<>();
+        for (Note note : notes) {
+            NoteCluster assignment = assignments.get(note.getId());
+            if (assignment != null) {
+                members.computeIfAbsent(assignment.getClusterId(), c -> new ArrayList<>()).add(note);
+            }
+        }
+        List<TopicCluster> clusters = new ArrayList<>();
+        for (Map.Entry<Integer, List<Note>> entry : members.entrySet()) {
+            List<String> terms = new ArrayList<>();
+            for (int termId : centroids[entry.getKey()].topTerms(LABEL_TERMS)) {
+                terms.add(TermDictionary.termOf(termId));
+            }
+            clusters.add(new TopicCluster(entry.getKey(), terms, entry.getValue()));
+        }
+        clusters.sort((a, b) -> Integer.compare(b.getNotes().size(), a.getNotes().size()));
+        return clusters;
+    }
+
+    // ===== Internals =====
+
+    private void fit(List<Note> notes) {
+        long start = System.currentTimeMillis();
+        List<SparseVector> sample = new ArrayList<>();
+        for (Note note : sample(notes, TRAINING_SAMPLE)) {
+            SparseVector vector = tfidf.vectorOf(note).normalized();
+            if (vector.size() > 0) {
+                sample.add(vector);
+            }
+        }
+        int k = Math.min(clusterCount(notes.size()), sample.size());
+        centroids = seed(sample, Math.max(k, 1));
+        counts = new int[centroids.length];
+
+        int iterations = Math.max(MIN_ITERATIONS, 3 * sample.size() / BATCH_SIZE);
+        int[] batch = new int[Math.min(BATCH_SIZE, sample.size())];
+        int[] nearest = new int[batch.length];
+        for (int iteration = 0; iteration < iterations && !sample.isEmpty(); iteration++) {
+            // Assign the whole batch against fixed centroids, then move them
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = random.nextInt(sample.size());
+                nearest[i] = nearest(sample.get(batch[i]));
+            }
+            for (int i = 0; i < batch.length; i++) {
+                moveCentroid(nearest[i], sample.get(batch[i]));
+            }
+        }
+
+        // Reassign everything against the final centroids; later online
+        // updates continue with learning rates from the member counts
+        assignments.clear();
+        Arrays.fill(counts, 0);
+        for (Note note : notes) {
+            assign(note, false);
+        }
+        fittedSize = notes.size();
+        logger.info(String.format("Clustered %d notes into %d topics in %dms",
+            notes.size(), centroids.length, System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Centroids as the normalized sums of their stored members' vectors.
+     */
+    private boolean restoreCentroids(List<Note> notes) {
+        if (notes.isEmpty()) {
+            return false;
+        }
+        Map<String, NoteCluster> current = new HashMap<>();
+        int k = 0;
+        for (Note note : notes) {
+            NoteCluster assignment = assignments.get(note.getId());
+            if (assignment != null && assignment.isCurrentFor(note)) {
+                current.put(note.getId(), assignment);
+                k = Math.max(k, assignment.getClusterId() + 1);
+            }
+        }
+        if (current.size() < MIN_RESTORE_COVERAGE * notes.size() || k > maxClusters) {
+            return false;
+        }
+        // Stale rows are reassigned by sync() against the restored centroids
+        assignments.clear();
+        assignments.putAll(current);
+
+        SparseVector[] sums = new SparseVector[k];
+        Arrays.fill(sums, SparseVector.EMPTY);
+        counts = new int[k];
+        for (Note note : notes) {
+            NoteCluster assignment = current.get(note.getId());
+            if (assignment != null) {
+                int c = assignment.getClusterId();
+                sums[c] = SparseVector.weightedSum(sums[c], 1.0,
+                    tfidf.vectorOf(note).normalized(), 1.0, MAX_CENTROID_TERMS);
+                counts[c]++;
+            }
+        }
+        centroids = new SparseVector[k];
+        for (int c = 0; c < k; c++) {
+            centroids[c] = sums[c].normalized();
+        }
+        fittedSize = notes.size();
+        logger.info("Restored " + k + " topic clusters from " + current.size() + " stored assignments");
+        return true;
+    }
+
+    /**
+     * k-means++ seeding: each next centroid is drawn with probability
+     * proportional to its cosine distance from the nearest chosen one.
+     */
+    private SparseVector[] seed(List<SparseVector> sample, int k) {
+        if (sample.isEmpty()) {
+            return new SparseVector[0];
+        }
+        SparseVector[] seeds = new SparseVector[k];
+        seeds[0] = sample.get(random.nextInt(sample.size()));
+        double[] distance = new double[sample.size()];
+        Arrays.fill(distance, Double.MAX_VALUE);
+        for (int c = 1; c < k; c++) {
+            double total = 0.0;
+            for (int i = 0; i < sample.size(); i++) {
+                distance[i] = Math.min(distance[i], 1.0 - sample.get(i).dot(seeds[c - 1]));
+                total += Math.max(0.0, distance[i]);
+            }
+            double pick = random.nextDouble() * total;
+            int chosen = sample.size() - 1;
+            for (int i = 0; i < sample.size(); i++) {
+                pick -= Math.max(0.0, distance[i]);
+                if (pick <= 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+            seeds[c] = sample.get(chosen);
+        }
+        return seeds;
+    }
+
+    /**
+     * Assign the note to its nearest centroid. With moveCentroid the centroid
+     * absorbs the vector, but only for notes not assigned before.
+     */
+    private void assign(Note note, boolean moveCentroid) {
+        NoteCluster previous = assignments.get(note.getId());
+        if (previous != null) {
+            release(previous);
+            moveCentroid = false;
+        }
+        if (centroids.length == 0) {
+            assignments.remove(note.getId());
+            return;
+        }
+        SparseVector vector = tfidf.vectorOf(note).normalized();
+        int c = nearest(vector);
+        if (moveCentroid && vector.size() > 0) {
+            moveCentroid(c, vector);
+        } else {
+            counts[c]++;
+        }
+        NoteCluster assignment = new NoteCluster(note.getId(), c, note.getUpdatedAt());
+        assignments.put(note.getId(), assignment);
+        if (repository != null) {
+            unsaved.add(assignment);
+        }
+    }
+
+    private void release(NoteCluster assignment) {
+        int c = assignment.getClusterId();
+        if (counts != null && c < counts.length && counts[c] > 0) {
+            counts[c]--;
+        }
+    }
+
+    /**
+     * Online update with learning rate 1/count: the centroid is the running
+     * mean of the vectors it has absorbed, projected back to unit length.
+     */
+    private void moveCentroid(int c, SparseVector vector) {
+        counts[c]++;
+        double rate = 1.0 / counts[c];
+        centroids[c] = SparseVector.weightedSum(centroids[c], 1.0 - rate, vector, rate,
+            MAX_CENTROID_TERMS).normalized();
+    }
+
+    /**
+     * Best centroid by cosine. The vector is scattered into a dense scratch
+     * array once, so each centroid costs one lookup per centroid term.
+     */
+    private int nearest(SparseVector vector) {
+        int terms = TermDictionary.size(); // covers every centroid and vector term id
+        if (scratch.length < terms) {
+            scratch = new double[Math.max(terms, 2 * scratch.length)];
+        }
+        vector.scatter(scratch, false);
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            double score = centroids[c].dot(scratch);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        vector.scatter(scratch, true);
+        return best;
+    }
+
+    private int clusterCount(int notes) {
+        return Math.max(1, Math.min(maxClusters, (int) Math.round(Math.sqrt(notes / 2.0))));
+    }
+
+    private List<Note> sample(List<Note> notes, int size) {
+        if (notes.size() <= size) {
+            return notes;
+        }
+        List<Note> shuffled = new ArrayList<>(notes);
+        Collections.shuffle(shuffled, random);
+        return shuffled.subList(0, size);
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (repository == null) {
+            return;
+        }
+        try {
+            for (NoteCluster assignment : repository.findAll()) {
+                assignments.put(assignment.getNoteId(), assignment);
+            }
+        } catch (PersistenceException e) {
+            logger.warn("Could not load topic clusters, refitting: " + e.getMessage());
+        }
+    }
+
+    private void flush() {
+        if (unsaved.isEmpty()) {
+            return;
+        }
+        try {
+            repository.saveAll(unsaved);
+        } catch (PersistenceException e) {
+            logger.warn("Could not save topic clusters: " + e.getMessage());
+        }
+        unsaved.clear();
+    }
+}
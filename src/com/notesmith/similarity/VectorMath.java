@@ -0,0 +1,139 @@
+package com.notesmith.similarity;
+
+import com.notesmith.config.AppConfig;
+import com.notesmith.util.Logger;
+
+/**
+ * Dot-product kernels for similarity scoring.
+ *
+ * Dense kernels are chosen once, at class init: SIMD kernels on the Vector
+ * API when the JVM was started with --add-modules jdk.incubator.vector (and
+ * similarity.simd.enabled is not false), otherwise plain scalar loops. The
+ * sparse kernels are merge joins. All methods are allocation-free.
+ */
+public final class VectorMath {
+
+    private static final Logger logger = Logger.getLogger(VectorMath.class);
+
+    private static final DenseKernels SCALAR = new ScalarKernels();
+    private static final DenseKernels KERNELS = selectKernels();
+
+    private VectorMath() {}
+
+    /**
+     * The kernels in use (SIMD or scalar).
+     */
+    public static DenseKernels kernels() {
+        return KERNELS;
+    }
+
+    /**
+     * The scalar kernels, for comparison against the selected ones.
+     */
+    public static DenseKernels scalarKernels() {
+        return SCALAR;
+    }
+
+    private static DenseKernels selectKernels() {
+        if (!AppConfig.isSimdEnabled()) {
+            return SCALAR;
+        }
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            logger.info("jdk.incubator.vector not available, using scalar vector kernels");
+            return SCALAR;
+        }
+        try {
+            DenseKernels simd = new SimdKernels();
+            logger.info("Using Vector API kernels (" + simd.getName() + ")");
+            return simd;
+        } catch (LinkageError e) {
+            logger.warn("Vector API kernels unavailable, using scalar: " + e);
+            return SCALAR;
+        }
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return KERNELS.dot(a, 0, b, 0, a.length);
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return KERNELS.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Dot product of an int8 row with a float query (caller applies the row scale).
+     */
+    public static float dot(byte[] a, int aOffset, float[] b, int length) {
+        return KERNELS.dot(a, aOffset, b, length);
+    }
+
+    public static float norm(float[] a) {
+        return (float) Math.sqrt(dot(a, a));
+    }
+
+    public static float cosine(float[] a, float[] b) {
+        float denominator = norm(a) * norm(b);
+        return denominator == 0f ? 0f : dot(a, b) / denominator;
+    }
+
+    /**
+     * Score one query against many row-major vectors: out[r] = rows[r] . query.
+     */
+    public static void dotMany(float[] query, float[] rows, int rowCount, float[] out) {
+        KERNELS.dotMany(query, rows, rowCount, out);
+    }
+
+    /**
+     * Dot product of two sparse vectors with sorted indices (merge join).
+     */
+    public static double sparseDot(int[] aIndices, double[] aValues, int aLength,
+                                   int[] bIndices, double[] bValues, int bLength) {
+        double sum = 0.0;
+        int i = 0, j = 0;
+        while (i < aLength && j < bLength) {
+            int ai = aIndices[i];
+            int bj = bIndices[j];
+            if (ai == bj) {
+                sum += aValues[i++] * bValues[j++];
+            } else if (ai < bj) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Size of the intersection of two sorted, distinct id arrays.
+     */
+    public static int intersectionSize(int[] a, int[] b) {
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < a.length && j < b.length) {
+            int ai = a[i];
+            int bj = b[j];
+            if (ai == bj) {
+                count++;
+                i++;
+                j++;
+            } else if (ai < bj) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Jaccard similarity of two sorted, distinct id arrays (0 if either is empty).
+     */
+    public static double jaccard(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0.0;
+        }
+        int intersection = intersectionSize(a, b);
+        return (double) intersection / (a.length + b.length - intersection);
+    }
+}
@@ -0,0 +1,41 @@
+package com.notesmith.similarity;
+
+import java.util.List;
+
+/**
+ * Lossy compression of vectors into byte codes, scored asymmetrically:
+ * the query stays in full precision and only stored vectors are quantized.
+ */
+public interface VectorQuantizer {
+
+    /**
+     * Fit the quantizer to a sample of the vectors it will encode.
+     */
+    void train(List<float[]> sample);
+
+    boolean isTrained();
+
+    /**
+     * Bytes per encoded vector.
+     */
+    int getCodeSize();
+
+    void encode(float[] vector, byte[] codes, int offset);
+
+    /**
+     * Approximate vector for a code (the centroid or bucket it stands for).
+     */
+    void decode(byte[] codes, int offset, float[] out);
+
+    /**
+     * Precompute per-query state so scoring a code is a few table lookups/multiplies.
+     */
+    Scorer scorer(float[] query);
+
+    /**
+     * Approximate dot product of the query with an encoded vector.
+     */
+    interface Scorer {
+        float score(byte[] codes, int offset);
+    }
+}
@@ -0,0 +1,104 @@
+package com.notesmith.similarity.eval;
+
+import java.util.*;
+
+/**
+ * Ranking quality measures of an approximate top-k list against the exact one.
+ * Lists hold note ids, best first.
+ */
+public final class RankingMetrics {
+
+    private static final double RBO_PERSISTENCE = 0.9;
+
+    private RankingMetrics() {}
+
+    /**
+     * Share of the exact top k that the approximate list contains.
+     */
+    public static double recall(List<String> approximate, List<String> exact) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        Set<String> found = new HashSet<>(approximate);
+        int hits = 0;
+        for (String id : exact) {
+            if (found.contains(id)) {
+                hits++;
+            }
+        }
+        return hits / (double) exact.size();
+    }
+
+    /**
+     * NDCG with the exact engine's scores as graded relevance: the gain of a
+     * returned note is its exact score, the ideal order is the exact list.
+     */
+    public static double ndcg(List<String> approximate, List<String> exact, Map<String, Double> exactScores) {
+        double ideal = 0.0;
+        for (int i = 0; i < exact.size(); i++) {
+            ideal += exactScores.getOrDefault(exact.get(i), 0.0) / log2(i + 2);
+        }
+        if (ideal == 0.0) {
+            return 1.0;
+        }
+        double dcg = 0.0;
+        for (int i = 0; i < Math.min(approximate.size(), exact.size()); i++) {
+            dcg += exactScores.getOrDefault(approximate.get(i), 0.0) / log2(i + 2);
+        }
+        return dcg / ideal;
+    }
+
+    /**
+     * Rank-biased overlap truncated at the exact list's depth and rescaled so
+     * identical lists score 1. Unlike recall it rewards matching order.
+     */
+    public static double rankBiasedOverlap(List<String> approximate, List<String> exact) {
+        int depth = exact.size();
+        if (depth == 0) {
+            return 1.0;
+        }
+        Set<String> seenApproximate = new HashSet<>();
+        Set<String> seenExact = new HashSet<>();
+        int overlap = 0;
+        double sum = 0.0;
+        double weight = 1.0;
+        for (int d = 0; d < depth; d++) {
+            String a = d < approximate.size() ? approximate.get(d) : null;
+            String e = exact.get(d);
+            if (a != null && a.equals(e)) {
+                overlap++;
+            } else {
+                if (a != null && seenExact.contains(a)) {
+                    overlap++;
+                }
+                if (seenApproximate.contains(e)) {
+                    overlap++;
+                }
+            }
+            if (a != null) {
+                seenApproximate.add(a);
+            }
+            seenExact.add(e);
+            sum += weight * overlap / (d + 1);
+            weight *= RBO_PERSISTENCE;
+        }
+        return sum * (1 - RBO_PERSISTENCE) / (1 - Math.pow(RBO_PERSISTENCE, depth));
+    }
+
+    /**
+     * Nearest-rank percentile (p in 0..100) of the values.
+     */
+    public static double percentile(long[] values, double p) {
+        if (values.length == 0) {
+            return 0.0;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+}
@@ -0,0 +1,234 @@
+package com.notesmith.similarity.eval;
+
+import com.notesmith.config.AppConfig;
+import com.notesmith.model.Note;
+import com.notesmith.similarity.*;
+import com.notesmith.util.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Offline quality-vs-latency comparison of the similarity engines.
+ *
+ * Every engine answers the same queries on a fixed synthetic corpus. Its
+ * top k is compared with exhaustive SimilarityEngine scoring (recall@k,
+ * NDCG@k, rank-biased overlap) and with the corpus topics (topic precision),
+ * next to p50/p99 latency and bytes allocated per query.
+ *
+ * The prefilter's recall calibration is turned off in every engine built on
+ * OptimizedSimilarityEngine: with it on, every Nth query would also run an
+ * exhaustive search and return the exact ranking, which inflates both the
+ * quality and the latency figures.
+ *
+ * Usage: SimilarityEvaluation [--notes 2000] [--topics 40] [--queries 100]
+ *        [--k 10] [--warmup 20] [--budget-ms 50] [--seed 42]
+ */
+public class SimilarityEvaluation {
+
+    /**
+     * An engine under test: the top k notes for the target, best first.
+     */
+    interface Candidate {
+        List<Note> search(Note target, List<Note> notes, int k);
+    }
+
+    private final Map<String, Integer> options;
+    private final SyntheticCorpus corpus;
+    private final List<Note> notes;
+    private final int k;
+    private final com.sun.management.ThreadMXBean threads;
+
+    private SimilarityEvaluation(Map<String, Integer> options) {
+        this.options = options;
+        this.corpus = SyntheticCorpus.generate(options.get("notes"), options.get("topics"), options.get("seed"));
+        this.notes = corpus.getNotes();
+        this.k = options.get("k");
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    public static void main(String[] args) {
+        Map<String, Integer> options = new LinkedHashMap<>();
+        options.put("notes", 2000);
+        options.put("topics", 40);
+        options.put("queries", 100);
+        options.put("k", 10);
+        options.put("warmup", 20);
+        options.put("budget-ms", 50);
+        options.put("seed", 42);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i].replaceFirst("^--", "");
+            if (!options.containsKey(name)) {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(2);
+            }
+            options.put(name, Integer.parseInt(args[i + 1]));
+        }
+
+        Logger.setLevel("WARN"); // per-search INFO lines would dominate the timings
+        new SimilarityEvaluation(options).run();
+    }
+
+    private void run() {
+        System.out.println("Corpus: " + options);
+
+        // Query targets are spread over the corpus; warm-up targets are different
+        // notes so no engine answers a measured query from a cache.
+        int queries = Math.min(options.get("queries"), notes.size() / 2);
+        int warmup = Math.min(options.get("warmup"), notes.size() - queries);
+        List<Note> targets = new ArrayList<>();
+        List<Note> warmupTargets = new ArrayList<>();
+        int stride = Math.max(1, notes.size() / (queries + warmup));
+        for (int i = 0; targets.size() + warmupTargets.size() < queries + warmup; i++) {
+            Note note = notes.get((i * stride) % notes.size());
+            (i % 5 == 4 && warmupTargets.size() < warmup ? warmupTargets : targets).add(note);
+            if (targets.size() > queries) {
+                warmupTargets.add(targets.remove(targets.size() - 1));
+            }
+        }
+
+        System.out.println("Computing exhaustive baseline for " + targets.size() + " queries...");
+        SimilarityEngine exhaustive = new SimilarityEngine();
+        Map<String, Map<String, Double>> exactScores = new HashMap<>();
+        Map<String, List<String>> exactTop = new HashMap<>();
+        for (Note target : targets) {
+            Map<String, Double> scores = new HashMap<>();
+            List<String> top = new ArrayList<>();
+            for (SimilarityResult result : exhaustive.findSimilarNotes(target, notes, notes.size())) {
+                scores.put(result.getNote().getId(), result.getScore());
+                if (top.size() < k) {
+                    top.add(result.getNote().getId());
+                }
+            }
+            exactScores.put(target.getId(), scores);
+            exactTop.put(target.getId(), top);
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-22s %9s %8s %8s %9s %9s %9s %10s",
+            "engine", "recall@" + k, "ndcg@" + k, "rbo", "topic-p", "p50 ms", "p99 ms", "KB/query"));
+
+        Map<String, Candidate> candidates = candidates();
+        for (Map.Entry<String, Candidate> entry : candidates.entrySet()) {
+            Candidate candidate = entry.getValue();
+            for (Note target : warmupTargets) {
+                candidate.search(target, notes, k);
+            }
+
+            long[] latencies = new long[targets.size()];
+            long allocated = 0;
+            double recall = 0.0;
+            double ndcg = 0.0;
+            double rbo = 0.0;
+            double topicPrecision = 0.0;
+            for (int q = 0; q < targets.size(); q++) {
+                Note target = targets.get(q);
+                long bytesBefore = allocatedBytes();
+                long start = System.nanoTime();
+                List<Note> found = candidate.search(target, notes, k);
+                latencies[q] = System.nanoTime() - start;
+                allocated += allocatedBytes() - bytesBefore;
+
+                List<String> ids = new ArrayList<>();
+                int sameTopic = 0;
+                for (Note note : found.subList(0, Math.min(k, found.size()))) {
+                    ids.add(note.getId());
+                    if (corpus.getTopic(note) == corpus.getTopic(target)) {
+                        sameTopic++;
+                    }
+                }
+                List<String> exact = exactTop.get(target.getId());
+                recall += RankingMetrics.recall(ids, exact);
+                ndcg += RankingMetrics.ndcg(ids, exact, exactScores.get(target.getId()));
+                rbo += RankingMetrics.rankBiasedOverlap(ids, exact);
+                topicPrecision += sameTopic / (double) k;
+            }
+
+            int n = targets.size();
+            System.out.println(String.format("%-22s %9.3f %8.3f %8.3f %9.3f %9.2f %9.2f %10s",
+                entry.getKey(), recall / n, ndcg / n, rbo / n, topicPrecision / n,
+                RankingMetrics.percentile(latencies, 50) / 1e6,
+                RankingMetrics.percentile(latencies, 99) / 1e6,
+                threads == null ? "n/a" : String.format("%.1f", allocated / 1024.0 / n)));
+        }
+        if (!AppConfig.isAIEnabled()) {
+            System.out.println("(hybrid-ai skipped: AI is disabled)");
+        }
+    }
+
+    /**
+     * The engines to compare, in report order. Each gets fresh state.
+     */
+    private Map<String, Candidate> candidates() {
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        long budget = options.get("budget-ms");
+
+        SimilarityEngine exhaustive = new SimilarityEngine();
+        candidates.put("exhaustive", (target, all, n) -> notesOf(exhaustive.findSimilarNotes(target, all, n)));
+
+        OptimizedSimilarityEngine optimized = uncalibrated(new OptimizedSimilarityEngine());
+        candidates.put("optimized", (target, all, n) -> notesOf(optimized.findSimilarNotes(target, all, n)));
+
+        OptimizedSimilarityEngine budgeted = uncalibrated(new OptimizedSimilarityEngine());
+        candidates.put("optimized-" + budget + "ms", (target, all, n) ->
+            notesOf(budgeted.findSimilarNotes(target, all, n, budget).getResults()));
+
+        TopicClusterer clusterer = new TopicClusterer(null);
+        OptimizedSimilarityEngine clustered = uncalibrated(new OptimizedSimilarityEngine());
+        candidates.put("optimized+clusters", (target, all, n) -> {
+            clusterer.sync(all);
+            List<Note> restricted = clusterer.restrictToNearestClusters(
+                target, all, AppConfig.getClusterSearchProbes());
+            return notesOf(clustered.findSimilarNotes(target, restricted, n));
+        });
+
+        SemanticIndex annIndex = inMemorySemanticIndex();
+        candidates.put("semantic-ann", (target, all, n) -> {
+            annIndex.sync(all);
+            Map<String, Note> byId = new HashMap<>();
+            for (Note note : all) {
+                byId.put(note.getId(), note);
+            }
+            List<Note> found = new ArrayList<>();
+            for (Neighbor neighbor : annIndex.findSimilar(target, n)) {
+                found.add(byId.get(neighbor.getId()));
+            }
+            return found;
+        });
+
+        HybridSimilarityService hybridSemantic = new HybridSimilarityService(inMemorySemanticIndex());
+        hybridSemantic.setPrefilterCalibrationInterval(0);
+        candidates.put("hybrid-semantic", (target, all, n) ->
+            notesOf(hybridSemantic.findSimilarNotes(target, all, n)));
+
+        if (AppConfig.isAIEnabled()) {
+            HybridSimilarityService hybridAI = new HybridSimilarityService();
+            hybridAI.setPrefilterCalibrationInterval(0);
+            candidates.put("hybrid-ai", (target, all, n) -> notesOf(hybridAI.findSimilarNotes(target, all, n)));
+        }
+        return candidates;
+    }
+
+    private static OptimizedSimilarityEngine uncalibrated(OptimizedSimilarityEngine engine) {
+        engine.setCalibrationInterval(0);
+        return engine;
+    }
+
+    private static SemanticIndex inMemorySemanticIndex() {
+        return new SemanticIndex(new HashingEmbeddingProvider(AppConfig.getEmbeddingDimension()), null);
+    }
+
+    private static List<Note> notesOf(List<SimilarityResult> results) {
+        List<Note> notes = new ArrayList<>(results.size());
+        for (SimilarityResult result : results) {
+            notes.add(result.getNote());
+        }
+        return notes;
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,148 @@
+package com.notesmith.similarity.eval;
+
+import com.notesmith.model.Note;
+import com.notesmith.model.TextNote;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Deterministic synthetic notes with a known topic per note.
+ *
+ * Each topic has its own vocabulary, title words and tags; note text mixes
+ * topic words with common filler and some off-topic words, and a share of
+ * the notes are lightly edited copies of earlier ones (pasted meeting notes).
+ * The same seed always yields the same corpus, ids included.
+ */
+public class SyntheticCorpus {
+
+    private static final String[] FILLER = {
+        "the", "and", "for", "with", "this", "that", "from", "about", "need", "next",
+        "week", "team", "plan", "review", "notes", "follow", "update", "check", "today", "idea"
+    };
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ra", "ten", "vor", "sel", "du", "pra", "gin",
+        "ste", "mon", "qui", "bar", "el", "fos", "tri", "nu", "zan", "cor"
+    };
+    private static final int TOPIC_WORDS = 60;
+    private static final int TOPIC_TAGS = 3;
+    private static final double DUPLICATE_SHARE = 0.05;
+
+    private final List<Note> notes = new ArrayList<>();
+    private final Map<String, Integer> topics = new HashMap<>();
+
+    private SyntheticCorpus() {}
+
+    public static SyntheticCorpus generate(int noteCount, int topicCount, long seed) {
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        Random random = new Random(seed);
+        String[][] vocabulary = new String[topicCount][TOPIC_WORDS];
+        String[][] tags = new String[topicCount][TOPIC_TAGS];
+        for (int t = 0; t < topicCount; t++) {
+            for (int w = 0; w < TOPIC_WORDS; w++) {
+                vocabulary[t][w] = word(random, 2 + random.nextInt(3));
+            }
+            for (int g = 0; g < TOPIC_TAGS; g++) {
+                tags[t][g] = word(random, 2);
+            }
+        }
+
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < noteCount; i++) {
+            String id = new UUID(seed, i).toString();
+            LocalDateTime time = base.plusMinutes(random.nextInt(365 * 24 * 60));
+            Note note;
+            int topic;
+            if (i > 0 && random.nextDouble() < DUPLICATE_SHARE) {
+                Note original = corpus.notes.get(random.nextInt(i));
+                topic = corpus.topics.get(original.getId());
+                note = new TextNote(id, original.getTitle(),
+                    edit(original.getContent(), vocabulary[topic], random), time, time);
+                note.restoreState(original.getTags(), false);
+            } else {
+                topic = random.nextInt(topicCount);
+                note = new TextNote(id, title(vocabulary[topic], random),
+                    content(vocabulary, topic, random), time, time);
+                List<String> noteTags = new ArrayList<>();
+                for (int g = random.nextInt(TOPIC_TAGS); g > 0; g--) {
+                    noteTags.add(tags[topic][random.nextInt(TOPIC_TAGS)]);
+                }
+                note.restoreState(noteTags, false);
+            }
+            corpus.notes.add(note);
+            corpus.topics.put(id, topic);
+        }
+        return corpus;
+    }
+
+    public List<Note> getNotes() {
+        return Collections.unmodifiableList(notes);
+    }
+
+    public int getTopic(Note note) {
+        return topics.getOrDefault(note.getId(), -1);
+    }
+
+    private static String title(String[] vocabulary, Random random) {
+        StringBuilder title = new StringBuilder();
+        for (int w = 2 + random.nextInt(3); w > 0; w--) {
+            String word = vocabulary[random.nextInt(vocabulary.length)];
+            title.append(title.length() == 0 ? capitalize(word) : " " + word);
+        }
+        return title.toString();
+    }
+
+    private static String content(String[][] vocabulary, int topic, Random random) {
+        StringBuilder text = new StringBuilder();
+        int sentences = 2 + random.nextInt(12);
+        boolean list = random.nextInt(4) == 0;
+        for (int s = 0; s < sentences; s++) {
+            if (list) {
+                text.append("- ");
+            }
+            int words = 6 + random.nextInt(10);
+            for (int w = 0; w < words; w++) {
+                double roll = random.nextDouble();
+                String word;
+                if (roll < 0.55) {
+                    word = vocabulary[topic][random.nextInt(TOPIC_WORDS)];
+                } else if (roll < 0.9) {
+                    word = FILLER[random.nextInt(FILLER.length)];
+                } else {
+                    word = vocabulary[random.nextInt(vocabulary.length)][random.nextInt(TOPIC_WORDS)];
+                }
+                text.append(w == 0 ? capitalize(word) : word).append(w + 1 < words ? " " : "");
+            }
+            text.append(random.nextInt(6) == 0 ? "?" : ".").append(list ? "\n" : " ");
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * A few words replaced and maybe a sentence appended.
+     */
+    private static String edit(String content, String[] vocabulary, Random random) {
+        String[] words = content.split(" ");
+        for (int e = 1 + random.nextInt(3); e > 0; e--) {
+            words[random.nextInt(words.length)] = vocabulary[random.nextInt(vocabulary.length)];
+        }
+        String edited = String.join(" ", words);
+        if (random.nextBoolean()) {
+            edited += " " + capitalize(FILLER[random.nextInt(FILLER.length)]) + " "
+                + vocabulary[random.nextInt(vocabulary.length)] + ".";
+        }
+        return edited;
+    }
+
+    private static String word(Random random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int s = 0; s < syllables; s++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.notesmith.similarity.eval;
+
+import com.notesmith.similarity.DenseKernels;
+import com.notesmith.similarity.VectorMath;
+import com.notesmith.util.Logger;
+
+import java.util.*;
+
+/**
+ * Reproducible timing of the dense kernels: one query scored against a flat
+ * block of row-major vectors with dotMany, the way OffHeapVectorStore scans.
+ *
+ * The scalar kernels always run; the SIMD ones only when the JVM was started
+ * with --add-modules jdk.incubator.vector. Each reports median and p90 over
+ * the measured rounds, plus the largest score difference from scalar.
+ *
+ * Usage: VectorMathBenchmark [--vectors 100000] [--dimension 256]
+ *        [--rounds 50] [--warmup 20] [--seed 42]
+ */
+public class VectorMathBenchmark {
+
+    public static void main(String[] args) {
+        Map<String, Integer> options = new LinkedHashMap<>();
+        options.put("vectors", 100_000);
+        options.put("dimension", 256);
+        options.put("rounds", 50);
+        options.put("warmup", 20);
+        options.put("seed", 42);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i].replaceFirst("^--", "");
+            if (!options.containsKey(name)) {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(2);
+            }
+            options.put(name, Integer.parseInt(args[i + 1]));
+        }
+
+        Logger.setLevel("WARN");
+        int vectors = options.get("vectors");
+        int dimension = options.get("dimension");
+        Random random = new Random(options.get("seed"));
+        float[] rows = new float[vectors * dimension];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (float) random.nextGaussian();
+        }
+        float[] query = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            query[i] = (float) random.nextGaussian();
+        }
+
+        System.out.println("Benchmark: " + options + ", java " + System.getProperty("java.version"));
+        float[] reference = new float[vectors];
+        DenseKernels scalar = VectorMath.scalarKernels();
+        report(scalar, query, rows, vectors, reference, null, options);
+        DenseKernels selected = VectorMath.kernels();
+        if (selected != scalar) {
+            report(selected, query, rows, vectors, new float[vectors], reference, options);
+        } else {
+            System.out.println("SIMD kernels not active (run with --add-modules jdk.incubator.vector)");
+        }
+    }
+
+    private static void report(DenseKernels kernels, float[] query, float[] rows, int vectors,
+                               float[] out, float[] reference, Map<String, Integer> options) {
+        for (int i = 0; i < options.get("warmup"); i++) {
+            kernels.dotMany(query, rows, vectors, out);
+        }
+        int rounds = options.get("rounds");
+        long[] nanos = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            kernels.dotMany(query, rows, vectors, out);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        StringBuilder line = new StringBuilder(String.format("%-12s median %7.2f ms   p90 %7.2f ms",
+            kernels.getName(), nanos[rounds / 2] / 1e6, nanos[(int) (rounds * 0.9)] / 1e6));
+        if (reference != null) {
+            // Summation order differs, so scores agree to float rounding, not bit for bit
+            float maxDiff = 0f;
+            for (int i = 0; i < vectors; i++) {
+                maxDiff = Math.max(maxDiff, Math.abs(out[i] - reference[i]));
+            }
+            line.append(String.format("   max |diff| vs scalar %.2e", maxDiff));
+        }
+        System.out.println(line);
+    }
+}
@@ -1,6 +1,7 @@
 package com.notesmith.ui;
 
 import com.notesmith.ai.ContentAnalyzer;
+import com.notesmith.ai.TagSuggester;
 import com.notesmith.ai.MockAIService;
 import com.notesmith.ai.SmartLinkingService;
 import com.notesmith.ai.SummarizationService;
@@ -13,7 +14,18 @@ import com.notesmith.exception.ValidationException;
 import com.notesmith.model.Note;
 import com.notesmith.model.TextNote;
 import com.notesmith.model.User;
+import com.notesmith.persistence.JdbcNoteClusterRepository;
+import com.notesmith.persistence.JdbcNoteKeywordRepository;
+import com.notesmith.persistence.JdbcNoteSketchRepository;
 import com.notesmith.persistence.NoteRepository;
+import com.notesmith.persistence.ObservableNoteRepository;
+import com.notesmith.similarity.HybridSimilarityService;
+import com.notesmith.similarity.SemanticIndex;
+import com.notesmith.similarity.SimilarityResult;
+import com.notesmith.similarity.SimilaritySearchResult;
+import com.notesmith.similarity.TagIndex;
+import com.notesmith.similarity.TemporalIndex;
+import com.notesmith.similarity.TopicClusterer;
 import com.notesmith.ui.components.*;
 import com.notesmith.util.ExportUtils;
 import com.notesmith.util.ValidationUtils;
@@ -33,8 +45,16 @@ import java.awt.event.KeyEvent;
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DashboardPanel extends CPanel {
 
@@ -43,16 +63,26 @@ public class DashboardPanel extends CPanel {
     }
 
     // ==== FIELDS (class members) ====
+    private static final int MAX_SUGGESTED_TAGS = 3;
+
     private User user;
     private NoteRepository noteRepo;
 
-    private DefaultListModel<Note> listModel;
+    private NoteListModel listModel;
     private DefaultListModel<Note> filteredListModel;
     private JList<Note> noteList;
+    private boolean updatingList; // Selection changes from list refreshes, not the user
     private List<Note> allNotes;
+    private final TagIndex tagIndex = new TagIndex();
+    private final TemporalIndex temporalIndex = new TemporalIndex();
+    private final TagSuggester tagSuggester = new TagSuggester();
+    private final SearchController searchController =
+        new SearchController(this::matchNotes, this::showNotes, AppConfig.getSearchDebounceMs());
+    private final Timer tagHintDebounce = new Timer(AppConfig.getSearchDebounceMs(), e -> updateTagHint());
 
     private CTextField titleField;
     private CTextField tagsField;
+    private JLabel tagHintLabel;
     private CTextArea contentArea;
     private JEditorPane previewPane;
     private JLabel messageLabel;
@@ -63,7 +93,8 @@ public class DashboardPanel extends CPanel {
     private Note currentNote; // null = adding new note
     
     // AI Services
-    private SmartLinkingService smartLinkingService;
+    private HybridSimilarityService similarityService;
+    private TopicClusterer topicClusterer;
     private SummarizationService summarizationService;
     private ContentAnalyzer contentAnalyzer;
     
@@ -72,16 +103,36 @@ public class DashboardPanel extends CPanel {
     private DefaultListModel<RelatedNote> relatedNotesModel;
     private JList<RelatedNote> relatedNotesList;
     private JLabel aiStatusLabel;
-
-    public DashboardPanel(User user, NoteRepository noteRepo, LogoutListener listener) {
+    
+    // Background AI work; pending tasks are cancelled when the user switches notes
+    private final ExecutorService aiExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "dashboard-ai");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> relatedTask;
+    private Future<?> summaryTask;
+    private Future<?> tagsTask;
+
+    public DashboardPanel(User user, ObservableNoteRepository noteRepo, LogoutListener listener) {
         this.user = user;
         this.noteRepo = noteRepo;
         
+        // Related notes are found locally (embedding index kept current on save/delete);
+        // with AI enabled, keyword-based AI linking is merged in as a further signal
+        this.topicClusterer = new TopicClusterer(new JdbcNoteClusterRepository(user.getId()));
+        SmartLinkingService linkingService = AppConfig.isAIEnabled()
+            ? new SmartLinkingService(new JdbcNoteKeywordRepository(user.getId()))
+            : null;
+        this.similarityService = new HybridSimilarityService(SemanticIndex.forUser(user.getId()),
+            new JdbcNoteSketchRepository(user.getId()), topicClusterer, linkingService);
+        noteRepo.addListener(similarityService);
+        noteRepo.addListener(tagSuggester);
+        
         // Initialize AI services if enabled
         if (AppConfig.isAIEnabled()) {
-            this.smartLinkingService = new SmartLinkingService();
             this.summarizationService = new SummarizationService();
-            this.contentAnalyzer = new ContentAnalyzer();
+            this.contentAnalyzer = new ContentAnalyzer(tagSuggester);
         }
 
         setLayout(new BorderLayout());
@@ -115,6 +166,14 @@ public class DashboardPanel extends CPanel {
         JPanel rightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         rightPanel.setOpaque(false);
         
+        CButton topicsBtn = CButton.secondary("Topics");
+        topicsBtn.addActionListener(e -> openTopics());
+        rightPanel.add(topicsBtn);
+        
+        CButton duplicatesBtn = CButton.secondary("Duplicates");
+        duplicatesBtn.addActionListener(e -> openDuplicates());
+        rightPanel.add(duplicatesBtn);
+        
         CButton settingsBtn = new CButton("AI Settings");
         settingsBtn.setBackground(new Color(100, 100, 100));
         settingsBtn.addActionListener(e -> openSettings());
@@ -136,39 +195,13 @@ public class DashboardPanel extends CPanel {
         splitPane.setBorder(null);
 
         // ===== LEFT: NOTE LIST =====
-        listModel = new DefaultListModel<>();
+        listModel = new NoteListModel();
         noteList = new JList<>(listModel);
         noteList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         noteList.setBackground(AppStyles.BG_MAIN);
         noteList.setSelectionBackground(AppStyles.ACCENT);
         noteList.setSelectionForeground(AppStyles.TEXT_PRIMARY);
-        noteList.setCellRenderer(new DefaultListCellRenderer() {
-            @Override
-            public Component getListCellRendererComponent(JList<?> list, Object value,
-                                                          int index, boolean isSelected, boolean cellHasFocus) {
-                Component comp = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-                if (value instanceof Note) {
-                    Note note = (Note) value;
-                    String display = note.display();
-                    
-                    // Add pin indicator
-                    if (note.isPinned()) {
-                        display = "📌 " + display;
-                    }
-                    
-                    // Add tags with better styling
-                    if (!note.getTags().isEmpty()) {
-                        display += " [" + String.join(", ", note.getTags()) + "]";
-                    }
-                    
-                    setText(display);
-                }
-                setBackground(isSelected ? AppStyles.ACCENT : AppStyles.BG_CARD);
-                setForeground(AppStyles.TEXT_PRIMARY);
-                setFont(AppStyles.fontNormal());
-                return comp;
-            }
-        });
+        NoteCellRenderer.install(noteList);
 
         JPanel left = new JPanel(new BorderLayout());
         left.setBackground(AppStyles.BG_MAIN);
@@ -273,6 +306,15 @@ public class DashboardPanel extends CPanel {
         tagsField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 32));
         fullWidth(tagsField);
         fields.add(tagsField);
+        
+        // Live suggestions from the user's own tagging; click to add them
+        tagHintLabel = CLabel.secondary(" ");
+        tagHintLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        tagHintLabel.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override public void mouseClicked(java.awt.event.MouseEvent e) { suggestTags(); }
+        });
+        fullWidth(tagHintLabel);
+        fields.add(tagHintLabel);
 
         fields.add(Box.createVerticalStrut(16));
 
@@ -341,10 +383,11 @@ public class DashboardPanel extends CPanel {
 
         // live preview
         contentArea.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            @Override public void insertUpdate(javax.swing.event.DocumentEvent e) { updatePreview(); }
-            @Override public void removeUpdate(javax.swing.event.DocumentEvent e) { updatePreview(); }
-            @Override public void changedUpdate(javax.swing.event.DocumentEvent e) { updatePreview(); }
+            @Override public void insertUpdate(javax.swing.event.DocumentEvent e) { updatePreview(); tagHintDebounce.restart(); }
+            @Override public void removeUpdate(javax.swing.event.DocumentEvent e) { updatePreview(); tagHintDebounce.restart(); }
+            @Override public void changedUpdate(javax.swing.event.DocumentEvent e) { updatePreview(); tagHintDebounce.restart(); }
         });
+        tagHintDebounce.setRepeats(false); // Suggest once typing pauses
         updatePreview();
 
 // message + buttons
@@ -407,9 +450,12 @@ public class DashboardPanel extends CPanel {
 
         // 👉 AFTER everything is created, THEN wire the list click behavior
         noteList.addListSelectionListener(e -> {
-            if (!e.getValueIsAdjusting()) {
+            if (!e.getValueIsAdjusting() && !updatingList) {
                 Note selected = noteList.getSelectedValue();
                 if (selected != null) {
+                    if (selected != currentNote) {
+                        cancelPendingAITasks();
+                    }
                     currentNote = selected;
                     titleField.setText(selected.getTitle());
                     contentArea.setText(selected.getContent());
@@ -417,6 +463,7 @@ public class DashboardPanel extends CPanel {
                     pinCheckbox.setSelected(selected.isPinned());
                     saveBtn.setText("Save Changes");
                     updatePreview();
+                    updateTagHint();
                 }
             }
         });
@@ -425,30 +472,111 @@ public class DashboardPanel extends CPanel {
     }
 
     private void loadNotes() {
-        listModel.clear();
         try {
             allNotes = noteRepo.findAll();
-            allNotes.forEach(listModel::addElement);
+            tagIndex.rebuild(allNotes);
+            temporalIndex.rebuild(allNotes);
+            tagSuggester.sync(allNotes);
+            searchController.searchNow(searchField.getText(), allNotes);
         } catch (PersistenceException e) {
+            showNotes(new ArrayList<>());
             messageLabel.setText("Failed to load notes: " + e.getMessage());
             messageLabel.setForeground(AppStyles.ACCENT_DANGER);
         }
     }
     
+    /**
+     * Debounced; matching runs on the search thread, see SearchController.
+     */
     private void filterNotes() {
-        String query = searchField.getText().toLowerCase().trim();
-        listModel.clear();
-        
+        searchController.search(searchField.getText(), allNotes);
+    }
+    
+    /**
+     * Replace the list contents in one model update (search results are
+     * published here). The selected note stays selected if it is still
+     * listed; the editor is left alone either way.
+     */
+    private void showNotes(List<Note> notes) {
+        Note selected = noteList.getSelectedValue();
+        updatingList = true;
+        try {
+            listModel.setNotes(notes);
+            int index = selected == null ? -1 : listModel.indexOf(selected.getId());
+            if (index >= 0) {
+                noteList.setSelectedIndex(index);
+            } else {
+                noteList.clearSelection();
+            }
+        } finally {
+            updatingList = false;
+        }
+    }
+    
+    /**
+     * Notes matching the query; runs on the search thread. Returns null when
+     * the search is interrupted because the query changed.
+     */
+    private List<Note> matchNotes(String rawQuery, List<Note> notes) {
+        String query = rawQuery.toLowerCase().trim();
         if (query.isEmpty()) {
-            // Show all notes
-            allNotes.forEach(listModel::addElement);
-        } else {
-            // Filter notes by title or content
-            allNotes.stream()
-                .filter(note -> note.getTitle().toLowerCase().contains(query) ||
-                               note.getContent().toLowerCase().contains(query))
-                .forEach(listModel::addElement);
+            return notes;
+        }
+        
+        // "#tag" terms narrow by tag via the index, "edited:7d" / "edited:12h" lists
+        // recent edits newest first via the time index, the rest matches title or content
+        List<String> tags = new ArrayList<>();
+        Duration editedWithin = null;
+        StringBuilder text = new StringBuilder();
+        for (String term : query.split("\\s+")) {
+            Duration window = term.startsWith("edited:") ? parseWindow(term.substring(7)) : null;
+            if (term.startsWith("#") && term.length() > 1) {
+                tags.add(term.substring(1));
+            } else if (window != null) {
+                editedWithin = window;
+            } else {
+                text.append(text.length() > 0 ? " " : "").append(term);
+            }
+        }
+        String textQuery = tags.isEmpty() && editedWithin == null ? query : text.toString();
+        
+        List<Note> candidates = tags.isEmpty() ? notes : tagIndex.findWithAllTags(tags);
+        if (editedWithin != null) {
+            List<Note> recent = temporalIndex.findUpdatedSince(LocalDateTime.now().minus(editedWithin));
+            if (!tags.isEmpty()) {
+                Set<String> tagged = new HashSet<>();
+                candidates.forEach(note -> tagged.add(note.getId()));
+                recent.removeIf(note -> !tagged.contains(note.getId()));
+            }
+            candidates = recent;
+        }
+        if (textQuery.isEmpty()) {
+            return candidates;
+        }
+        
+        List<Note> matches = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if ((i & 255) == 0 && Thread.currentThread().isInterrupted()) {
+                return null; // Superseded by a newer query
+            }
+            Note note = candidates.get(i);
+            if (note.getTitle().toLowerCase().contains(textQuery) ||
+                note.getContent().toLowerCase().contains(textQuery)) {
+                matches.add(note);
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * "7d" or "12h" as a duration; null if the term is not a window.
+     */
+    private static Duration parseWindow(String value) {
+        if (!value.matches("\\d{1,5}[dh]")) {
+            return null;
         }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return value.endsWith("d") ? Duration.ofDays(amount) : Duration.ofHours(amount);
     }
 
     // Save note
@@ -520,6 +648,7 @@ public class DashboardPanel extends CPanel {
     }
 
     private void clearEditor() {
+        cancelPendingAITasks();
         currentNote = null;
         titleField.setText("");
         contentArea.setText("");
@@ -527,6 +656,7 @@ public class DashboardPanel extends CPanel {
         pinCheckbox.setSelected(false);
         saveBtn.setText("Add Note");
         updatePreview();
+        updateTagHint();
         noteList.clearSelection();
     }
 
@@ -554,7 +684,14 @@ public class DashboardPanel extends CPanel {
     private void deleteSelected(Note note) {
         try {
             noteRepo.delete(note.getId());
-            listModel.removeElement(note);
+            listModel.remove(note.getId());
+            
+            // Searches and related-note lookups read allNotes; keep it and its indexes current
+            List<Note> remaining = new ArrayList<>(allNotes);
+            remaining.removeIf(n -> n.getId().equals(note.getId()));
+            allNotes = remaining;
+            tagIndex.rebuild(allNotes);
+            temporalIndex.rebuild(allNotes);
             if (currentNote == note) {
                 clearEditor();
             }
@@ -571,6 +708,22 @@ public class DashboardPanel extends CPanel {
         settingsDialog.setVisible(true);
     }
 
+    private void openTopics() {
+        TopicsDialog dialog = new TopicsDialog(
+            (Frame) SwingUtilities.getWindowAncestor(this), topicClusterer, allNotes);
+        dialog.setVisible(true);
+    }
+
+    private void openDuplicates() {
+        DuplicatesDialog dialog = new DuplicatesDialog(
+            (Frame) SwingUtilities.getWindowAncestor(this), allNotes, noteRepo);
+        dialog.setVisible(true);
+        if (dialog.isChanged()) {
+            clearEditor();
+            loadNotes();
+        }
+    }
+
     private void wrapSelection(String prefix, String suffix) {
         String text = contentArea.getText();
         int start = contentArea.getSelectionStart();
@@ -965,42 +1118,71 @@ public class DashboardPanel extends CPanel {
     }
     
     private void findRelatedNotes() {
-        if (!AppConfig.isAIEnabled() || smartLinkingService == null) {
-            aiStatusLabel.setText("● AI is disabled");
-            aiStatusLabel.setForeground(AppStyles.ACCENT_DANGER);
-            return;
-        }
-        
         if (currentNote == null) {
             aiStatusLabel.setText("● Select a note first");
             aiStatusLabel.setForeground(AppStyles.ACCENT_DANGER);
             return;
         }
         
-        boolean mockMode = MockAIService.shouldUseMockMode(AppConfig.getGeminiApiKey());
-        aiStatusLabel.setText(mockMode ? "● Analyzing (Mock)..." : "● Analyzing with AI...");
+        if (isRunning(relatedTask)) {
+            return; // Already searching for this note
+        }
+        
+        Note note = currentNote;
+        List<Note> notes = allNotes;
+        aiStatusLabel.setText("● Finding related notes...");
         aiStatusLabel.setForeground(AppStyles.TEXT_SECONDARY);
         relatedNotesModel.clear();
         
-        // Run in background thread
-        new Thread(() -> {
-            List<RelatedNote> related = smartLinkingService.findRelatedNotes(currentNote, allNotes);
+        // Run in background thread: local results within the budget first,
+        // then the AI-enhanced ranking when AI is enabled
+        relatedTask = aiExecutor.submit(() -> {
+            SimilaritySearchResult search = similarityService.findSimilarNotes(
+                note, notes, 5, AppConfig.getRelatedNotesBudgetMs());
+            showRelatedNotes(note, search.getResults(), search.isComplete() ? "" : " (partial)");
             
-            SwingUtilities.invokeLater(() -> {
-                relatedNotesModel.clear();
-                for (RelatedNote rn : related) {
-                    relatedNotesModel.addElement(rn);
-                }
-                
-                boolean isMock = MockAIService.shouldUseMockMode(AppConfig.getGeminiApiKey());
-                if (related.isEmpty()) {
-                    aiStatusLabel.setText(isMock ? "● Mock Mode" : "● No related notes");
-                } else {
-                    aiStatusLabel.setText((isMock ? "● Mock Mode - " : "● ") + "Found " + related.size());
-                    aiStatusLabel.setForeground(isMock ? new Color(0xFFA500) : AppStyles.ACCENT_SUCCESS);
-                }
-            });
-        }).start();
+            if (similarityService.isAIEnabled() && !Thread.currentThread().isInterrupted()) {
+                showRelatedNotes(note, similarityService.findSimilarNotes(note, notes, 5), " (AI)");
+            }
+        });
+    }
+    
+    private void showRelatedNotes(Note note, List<SimilarityResult> results, String suffix) {
+        List<RelatedNote> related = new ArrayList<>();
+        for (SimilarityResult result : results) {
+            related.add(new RelatedNote(result.getNote(), result.getScore(), describeSimilarity(result)));
+        }
+        
+        SwingUtilities.invokeLater(() -> {
+            if (note != currentNote) {
+                return; // Stale result for a note the user navigated away from
+            }
+            relatedNotesModel.clear();
+            for (RelatedNote rn : related) {
+                relatedNotesModel.addElement(rn);
+            }
+            
+            if (related.isEmpty()) {
+                aiStatusLabel.setText("● No related notes");
+            } else {
+                aiStatusLabel.setText("● Found " + related.size() + suffix);
+                aiStatusLabel.setForeground(AppStyles.ACCENT_SUCCESS);
+            }
+        });
+    }
+    
+    /**
+     * Short reason for the related-notes list: the two strongest signals.
+     */
+    private String describeSimilarity(SimilarityResult result) {
+        List<String> reasons = new ArrayList<>();
+        result.getReasonBreakdown().entrySet().stream()
+            .filter(e -> e.getValue() > 0.2)
+            .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
+            .limit(2)
+            .map(Map.Entry::getKey)
+            .forEach(reasons::add);
+        return reasons.isEmpty() ? "Similar content" : String.join(" + ", reasons);
     }
     
     private void summarizeCurrentNote() {
@@ -1014,24 +1196,69 @@ public class DashboardPanel extends CPanel {
             return;
         }
         
+        if (isRunning(summaryTask)) {
+            return; // Already summarizing this note
+        }
+        
+        Note note = currentNote;
         boolean mockMode = MockAIService.shouldUseMockMode(AppConfig.getGeminiApiKey());
         aiSummaryArea.setText(mockMode ? "Generating mock summary..." : "Generating AI summary...");
         aiStatusLabel.setText(mockMode ? "● Mock Mode..." : "● Summarizing...");
         
         // Run in background thread
-        new Thread(() -> {
-            String summary = summarizationService.summarize(currentNote);
+        summaryTask = aiExecutor.submit(() -> {
+            String summary = summarizationService.summarize(note);
             
             SwingUtilities.invokeLater(() -> {
+                if (note != currentNote) {
+                    return;
+                }
                 aiSummaryArea.setText(summary);
                 boolean isMock = MockAIService.shouldUseMockMode(AppConfig.getGeminiApiKey());
                 aiStatusLabel.setText(isMock ? "● Mock Mode" : "● Summary ready");
                 aiStatusLabel.setForeground(isMock ? new Color(0xFFA500) : AppStyles.ACCENT_SUCCESS);
             });
-        }).start();
+        });
+    }
+    
+    /**
+     * Tags the local model suggests for the editor's text, minus those already entered.
+     */
+    private List<String> localTagSuggestions() {
+        List<String> entered = new ArrayList<>();
+        for (String tag : tagsField.getText().split(",")) {
+            if (!tag.trim().isEmpty()) {
+                entered.add(tag.trim());
+            }
+        }
+        return tagSuggester.suggest(titleField.getText(), contentArea.getText(), entered, MAX_SUGGESTED_TAGS);
+    }
+    
+    private void updateTagHint() {
+        tagHintDebounce.stop(); // Up to date now; a pending keystroke update is redundant
+        if (tagHintLabel == null || tagsField == null) return;
+        List<String> suggested = localTagSuggestions();
+        tagHintLabel.setText(suggested.isEmpty() ? " " : "Suggested: " + String.join(", ", suggested) + " (click to add)");
+    }
+    
+    private void addTagsToField(List<String> tags) {
+        String currentTags = tagsField.getText().trim();
+        tagsField.setText(currentTags.isEmpty() ?
+            String.join(", ", tags) :
+            currentTags + ", " + String.join(", ", tags));
+        updateTagHint();
     }
     
     private void suggestTags() {
+        // Local statistics first: instant and offline
+        List<String> local = localTagSuggestions();
+        if (!local.isEmpty()) {
+            addTagsToField(local);
+            messageLabel.setText("Tags suggested from your tagged notes. Review and save.");
+            messageLabel.setForeground(AppStyles.ACCENT);
+            return;
+        }
+        
         if (!AppConfig.isAIEnabled() || contentAnalyzer == null) {
             messageLabel.setText("AI is disabled");
             messageLabel.setForeground(AppStyles.ACCENT_DANGER);
@@ -1044,27 +1271,30 @@ public class DashboardPanel extends CPanel {
             return;
         }
         
+        if (isRunning(tagsTask)) {
+            return; // Already suggesting tags for this note
+        }
+        
+        Note note = currentNote;
         boolean mockMode = MockAIService.shouldUseMockMode(AppConfig.getGeminiApiKey());
         aiStatusLabel.setText(mockMode ? "● Mock Mode..." : "● Analyzing...");
         messageLabel.setText(mockMode ? "Generating mock tags..." : "AI is analyzing content...");
         
         // Run in background thread
-        new Thread(() -> {
-            List<String> suggestedTags = contentAnalyzer.suggestTags(currentNote);
+        tagsTask = aiExecutor.submit(() -> {
+            List<String> suggestedTags = contentAnalyzer.suggestTags(note);
             
             SwingUtilities.invokeLater(() -> {
+                if (note != currentNote) {
+                    return;
+                }
                 boolean isMock = MockAIService.shouldUseMockMode(AppConfig.getGeminiApiKey());
                 
                 if (suggestedTags.isEmpty()) {
                     messageLabel.setText("No tag suggestions available");
                     messageLabel.setForeground(AppStyles.ACCENT_DANGER);
                 } else {
-                    String currentTags = tagsField.getText().trim();
-                    String newTags = currentTags.isEmpty() ? 
-                        String.join(", ", suggestedTags) :
-                        currentTags + ", " + String.join(", ", suggestedTags);
-                    
-                    tagsField.setText(newTags);
+                    addTagsToField(suggestedTags);
                     String msg = isMock ? "Mock tags added! (Configure API for real AI)" : "AI tags suggested! Review and save.";
                     messageLabel.setText(msg);
                     messageLabel.setForeground(AppStyles.ACCENT);
@@ -1072,7 +1302,26 @@ public class DashboardPanel extends CPanel {
                     aiStatusLabel.setForeground(isMock ? new Color(0xFFA500) : AppStyles.ACCENT_SUCCESS);
                 }
             });
-        }).start();
+        });
+    }
+    
+    private boolean isRunning(Future<?> task) {
+        return task != null && !task.isDone();
+    }
+    
+    /**
+     * Cancel AI work started for the previously selected note.
+     * Interrupting the worker releases its share of any coalesced Gemini call.
+     */
+    private void cancelPendingAITasks() {
+        for (Future<?> task : new Future<?>[] {relatedTask, summaryTask, tagsTask}) {
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+        relatedTask = null;
+        summaryTask = null;
+        tagsTask = null;
     }
 
 }
@@ -0,0 +1,209 @@
+package com.notesmith.ui;
+
+import com.notesmith.config.AppConfig;
+import com.notesmith.config.AppStyles;
+import com.notesmith.exception.PersistenceException;
+import com.notesmith.model.Note;
+import com.notesmith.persistence.NoteRepository;
+import com.notesmith.similarity.DuplicateGroup;
+import com.notesmith.similarity.SimHashIndex;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Lists groups of near-duplicate notes (by SimHash distance) and offers to
+ * merge each group into its most recently edited note.
+ */
+public class DuplicatesDialog extends JDialog {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Removals listed by name in the merge confirmation; the rest are counted
+    private static final int MAX_LISTED_REMOVALS = 10;
+
+    private final NoteRepository noteRepo;
+    private final DefaultListModel<DuplicateGroup> groupModel = new DefaultListModel<>();
+    private final DefaultListModel<Note> noteModel = new DefaultListModel<>();
+    private JList<DuplicateGroup> groupList;
+    private JTextArea suggestionText;
+    private JButton mergeButton;
+    private boolean changed = false;
+
+    public DuplicatesDialog(Frame parent, List<Note> notes, NoteRepository noteRepo) {
+        super(parent, "Duplicate Notes", true);
+        this.noteRepo = noteRepo;
+
+        SimHashIndex index = new SimHashIndex(AppConfig.getDuplicateMaxBits());
+        index.rebuild(notes);
+        index.findDuplicateGroups().forEach(groupModel::addElement);
+
+        initUI();
+    }
+
+    /**
+     * Whether any group was merged, i.e. the note list needs reloading.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    private void initUI() {
+        setLayout(new BorderLayout(10, 10));
+        setSize(750, 500);
+        setLocationRelativeTo(getParent());
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 10, 20));
+        mainPanel.setBackground(Color.WHITE);
+
+        JLabel titleLabel = new JLabel(groupModel.isEmpty()
+            ? "No duplicate notes found"
+            : groupModel.size() + " groups of near-duplicate notes");
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 20));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        groupList = new JList<>(groupModel);
+        groupList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        groupList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                DuplicateGroup group = (DuplicateGroup) value;
+                String text = group.getNotes().size() + " × " + group.getSuggestedKeeper().getTitle();
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        groupList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showGroup(groupList.getSelectedValue());
+            }
+        });
+
+        JList<Note> noteList = new JList<>(noteModel);
+        noteList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                Note note = (Note) value;
+                int distance = groupList.getSelectedValue().getDistance(note);
+                String text = note.getTitle() + "  (" + note.getUpdatedAt().format(DATE_FORMAT) +
+                    (index == 0 ? ", newest" : ", " + distance + " bits apart") + ")";
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+            new JScrollPane(groupList), new JScrollPane(noteList));
+        split.setDividerLocation(280);
+        mainPanel.add(split, BorderLayout.CENTER);
+
+        suggestionText = new JTextArea(3, 40);
+        suggestionText.setEditable(false);
+        suggestionText.setLineWrap(true);
+        suggestionText.setWrapStyleWord(true);
+        suggestionText.setBackground(new Color(240, 248, 255));
+        suggestionText.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        suggestionText.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        mainPanel.add(suggestionText, BorderLayout.SOUTH);
+
+        add(mainPanel, BorderLayout.CENTER);
+
+        // Buttons
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.setBackground(Color.WHITE);
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(0, 20, 20, 20));
+
+        mergeButton = new JButton("Merge Group");
+        mergeButton.setBackground(AppStyles.ACCENT);
+        mergeButton.setForeground(Color.WHITE);
+        mergeButton.setFocusPainted(false);
+        mergeButton.setEnabled(false);
+        mergeButton.addActionListener(e -> mergeSelected());
+
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        buttonPanel.add(closeButton);
+        buttonPanel.add(mergeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        if (!groupModel.isEmpty()) {
+            groupList.setSelectedIndex(0);
+        }
+    }
+
+    private void showGroup(DuplicateGroup group) {
+        noteModel.clear();
+        mergeButton.setEnabled(group != null);
+        if (group == null) {
+            suggestionText.setText("");
+            return;
+        }
+        group.getNotes().forEach(noteModel::addElement);
+
+        StringBuilder text = new StringBuilder("Suggestion: keep \"")
+            .append(group.getSuggestedKeeper().getTitle())
+            .append("\" (most recently edited) and delete the other ")
+            .append(group.getSuggestedRemovals().size())
+            .append(" note(s).");
+        if (!group.getMergedTags().isEmpty()) {
+            text.append(" Tags after merge: ").append(String.join(", ", group.getMergedTags())).append('.');
+        }
+        if (group.isMergedPinned()) {
+            text.append(" The kept note stays pinned.");
+        }
+        suggestionText.setText(text.toString());
+    }
+
+    private void mergeSelected() {
+        DuplicateGroup group = groupList.getSelectedValue();
+        if (group == null) {
+            return;
+        }
+        List<Note> removals = group.getSuggestedRemovals();
+        StringBuilder message = new StringBuilder("Keep \"")
+            .append(group.getSuggestedKeeper().getTitle())
+            .append("\" and delete ")
+            .append(removals.size())
+            .append(" other note(s)?\n");
+        for (Note note : removals.subList(0, Math.min(MAX_LISTED_REMOVALS, removals.size()))) {
+            message.append("\n  • ").append(note.getTitle())
+                .append("  (").append(group.getDistance(note)).append(" bits apart)");
+        }
+        if (removals.size() > MAX_LISTED_REMOVALS) {
+            message.append("\n  … and ").append(removals.size() - MAX_LISTED_REMOVALS).append(" more");
+        }
+        int result = JOptionPane.showConfirmDialog(
+            this,
+            message.toString(),
+            "Confirm Merge",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.WARNING_MESSAGE
+        );
+        if (result != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        Note keeper = group.getSuggestedKeeper();
+        try {
+            List<String> mergedTags = group.getMergedTags();
+            boolean pinned = group.isMergedPinned();
+            if (!mergedTags.equals(keeper.getTags()) || pinned != keeper.isPinned()) {
+                keeper.setTags(mergedTags);
+                keeper.setPinned(pinned);
+                noteRepo.save(keeper);
+            }
+            for (Note duplicate : group.getSuggestedRemovals()) {
+                noteRepo.delete(duplicate.getId());
+            }
+            changed = true;
+            groupModel.removeElement(group);
+        } catch (PersistenceException e) {
+            JOptionPane.showMessageDialog(this, "Failed to merge notes: " + e.getMessage(),
+                "Merge Failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
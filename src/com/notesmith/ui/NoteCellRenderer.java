@@ -0,0 +1,100 @@
+package com.notesmith.ui;
+
+import com.notesmith.config.AppStyles;
+import com.notesmith.model.Note;
+import com.notesmith.model.TextNote;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renderer for the note list.
+ *
+ * The row text is built once per note version and kept in a bounded LRU
+ * cache, so painting a row is a lookup plus a label update. Rows are one
+ * line of fixed height; install() sizes the list from a prototype row, so
+ * the JList never measures individual cells.
+ */
+public class NoteCellRenderer extends DefaultListCellRenderer {
+
+    // More than any screen shows at once; older rows are rebuilt on demand
+    private static final int MAX_CACHED_ROWS = 1024;
+
+    // Longest row text kept; the rest would be cut off by the column anyway
+    private static final int MAX_ROW_CHARS = 160;
+
+    private final Font font = AppStyles.fontNormal();
+    private final Map<String, CachedRow> rows = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedRow> eldest) {
+            return size() > MAX_CACHED_ROWS;
+        }
+    };
+
+    /**
+     * Use this renderer for the list, with every row as tall as a prototype
+     * row. The prototype's short text also keeps the list's preferred width
+     * small, so rows fill the viewport instead of scrolling sideways.
+     */
+    public static void install(JList<Note> list) {
+        NoteCellRenderer renderer = new NoteCellRenderer();
+        list.setCellRenderer(renderer);
+        Note prototype = new TextNote("Prototype note", "");
+        prototype.setPinned(true);
+        prototype.addTag("tag");
+        list.setPrototypeCellValue(prototype);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value,
+                                                  int index, boolean isSelected, boolean cellHasFocus) {
+        Object text = value instanceof Note ? rowText((Note) value) : value;
+        super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+        setBackground(isSelected ? AppStyles.ACCENT : AppStyles.BG_CARD);
+        setForeground(AppStyles.TEXT_PRIMARY);
+        setFont(font);
+        return this;
+    }
+
+    private String rowText(Note note) {
+        CachedRow cached = rows.get(note.getId());
+        if (cached != null && cached.version.equals(note.getUpdatedAt())) {
+            return cached.text;
+        }
+        String text = buildText(note);
+        rows.put(note.getId(), new CachedRow(note.getUpdatedAt(), text));
+        return text;
+    }
+
+    private static String buildText(Note note) {
+        String display = note.display();
+        if (display.length() > MAX_ROW_CHARS) {
+            display = display.substring(0, MAX_ROW_CHARS) + "...";
+        }
+        display = display.replaceAll("\\s+", " "); // One line per row
+
+        // Add pin indicator
+        if (note.isPinned()) {
+            display = "📌 " + display;
+        }
+
+        // Add tags with better styling
+        if (!note.getTagView().isEmpty()) {
+            display += " [" + String.join(", ", note.getTagView()) + "]";
+        }
+        return display;
+    }
+
+    private static class CachedRow {
+        final LocalDateTime version;
+        final String text;
+
+        CachedRow(LocalDateTime version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+}
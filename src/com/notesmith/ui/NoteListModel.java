@@ -0,0 +1,95 @@
+package com.notesmith.ui;
+
+import com.notesmith.model.Note;
+
+import javax.swing.*;
+import java.util.List;
+
+/**
+ * List model for the note list, backed by an immutable array snapshot.
+ *
+ * setNotes() swaps the whole snapshot and fires at most one event: the
+ * difference to the previous snapshot is narrowed to the range between
+ * their common prefix and suffix, so a reload after one save or delete
+ * reports only the rows that changed, and a new search result is a single
+ * contentsChanged. Rows are equal when they hold the same note version
+ * (id and updatedAt).
+ */
+public class NoteListModel extends AbstractListModel<Note> {
+
+    private Note[] notes = new Note[0];
+
+    @Override
+    public int getSize() {
+        return notes.length;
+    }
+
+    @Override
+    public Note getElementAt(int index) {
+        return notes[index];
+    }
+
+    /**
+     * Position of the note with this id, or -1.
+     */
+    public int indexOf(String noteId) {
+        for (int i = 0; i < notes.length; i++) {
+            if (notes[i].getId().equals(noteId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replace the contents with the given notes.
+     */
+    public void setNotes(List<Note> newNotes) {
+        Note[] old = notes;
+        Note[] next = newNotes.toArray(new Note[0]);
+        notes = next;
+
+        int prefix = 0;
+        int shorter = Math.min(old.length, next.length);
+        while (prefix < shorter && sameVersion(old[prefix], next[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < shorter - prefix
+               && sameVersion(old[old.length - 1 - suffix], next[next.length - 1 - suffix])) {
+            suffix++;
+        }
+        int removed = old.length - prefix - suffix;
+        int added = next.length - prefix - suffix;
+
+        if (removed == 0 && added == 0) {
+            return; // Same versions in the same order: nothing to repaint
+        }
+        if (removed == 0) {
+            fireIntervalAdded(this, prefix, prefix + added - 1);
+        } else if (added == 0) {
+            fireIntervalRemoved(this, prefix, prefix + removed - 1);
+        } else {
+            fireContentsChanged(this, prefix, prefix + Math.max(removed, added) - 1);
+        }
+    }
+
+    /**
+     * Drop one note, e.g. right after it was deleted.
+     */
+    public void remove(String noteId) {
+        int index = indexOf(noteId);
+        if (index < 0) {
+            return;
+        }
+        Note[] next = new Note[notes.length - 1];
+        System.arraycopy(notes, 0, next, 0, index);
+        System.arraycopy(notes, index + 1, next, index, next.length - index);
+        notes = next;
+        fireIntervalRemoved(this, index, index);
+    }
+
+    private static boolean sameVersion(Note a, Note b) {
+        return a == b || (a.getId().equals(b.getId()) && a.getUpdatedAt().equals(b.getUpdatedAt()));
+    }
+}
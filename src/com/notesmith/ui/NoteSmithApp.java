@@ -91,8 +91,10 @@ public class NoteSmithApp extends JFrame
         NoteRepository fileRepo = new FileNoteRepository(filename);
         NoteRepository dbRepo   = new JdbcNoteRepository(user.getId());
 
-        // Composite repository: writes to DB + file, reads from DB (fallback: file)
-        NoteRepository noteRepo = new DualNoteRepository(fileRepo, dbRepo);
+        // Composite repository: writes to DB + file, reads from DB (fallback: file);
+        // observable so indexes can follow note changes
+        ObservableNoteRepository noteRepo =
+            new ObservableNoteRepository(new DualNoteRepository(fileRepo, dbRepo));
 
         dashboardPanel = new DashboardPanel(user, noteRepo, this);
         cardPanel.add(dashboardPanel, "dashboard");
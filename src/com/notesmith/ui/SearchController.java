@@ -0,0 +1,112 @@
+package com.notesmith.ui;
+
+import com.notesmith.model.Note;
+import com.notesmith.util.Logger;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs the note list search off the event dispatch thread.
+ *
+ * Keystrokes restart a debounce timer; when it fires, matching runs on a
+ * background thread and the previous search, if still running, is
+ * interrupted. Results reach the publisher on the EDT in one call, and only
+ * if no newer query was issued in the meantime. All methods are called on
+ * the EDT.
+ */
+public class SearchController {
+
+    private static final Logger logger = Logger.getLogger(SearchController.class);
+
+    /**
+     * Matches a query against a note list. Runs on the search thread and may
+     * return null once the thread is interrupted.
+     */
+    public interface Matcher {
+        List<Note> match(String query, List<Note> notes);
+    }
+
+    private final Matcher matcher;
+    private final Consumer<List<Note>> publisher;
+    private final Timer debounce;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dashboard-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private String pendingQuery = "";
+    private List<Note> pendingNotes = List.of();
+    private Future<?> running;
+    private long generation; // Bumped per query; stale results are dropped
+
+    public SearchController(Matcher matcher, Consumer<List<Note>> publisher, int debounceMillis) {
+        this.matcher = matcher;
+        this.publisher = publisher;
+        this.debounce = new Timer(debounceMillis, e -> start());
+        this.debounce.setRepeats(false);
+    }
+
+    /**
+     * The query changed: search once typing pauses. Clearing the query shows
+     * the full list right away.
+     */
+    public void search(String query, List<Note> notes) {
+        pendingQuery = query;
+        pendingNotes = notes;
+        if (query.trim().isEmpty()) {
+            debounce.stop();
+            cancelRunning();
+            generation++;
+            publisher.accept(notes);
+        } else {
+            generation++;
+            debounce.restart();
+        }
+    }
+
+    /**
+     * Search without waiting, e.g. after the note list was reloaded.
+     */
+    public void searchNow(String query, List<Note> notes) {
+        search(query, notes);
+        if (debounce.isRunning()) {
+            debounce.stop();
+            start();
+        }
+    }
+
+    private void start() {
+        cancelRunning();
+        long id = ++generation;
+        String query = pendingQuery;
+        List<Note> notes = pendingNotes;
+        running = executor.submit(() -> {
+            try {
+                List<Note> matches = matcher.match(query, notes);
+                if (matches == null || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (id == generation) {
+                        publisher.accept(matches);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.error("Note search failed for query: " + query, e);
+            }
+        });
+    }
+
+    private void cancelRunning() {
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.notesmith.ui;
+
+import com.notesmith.model.Note;
+import com.notesmith.similarity.TopicCluster;
+import com.notesmith.similarity.TopicClusterer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Shows the notes grouped by topic cluster. Clustering runs in the
+ * background; a first fit on a large account can take a moment.
+ */
+public class TopicsDialog extends JDialog {
+
+    private final DefaultListModel<TopicCluster> clusterModel = new DefaultListModel<>();
+    private final DefaultListModel<Note> noteModel = new DefaultListModel<>();
+    private JLabel titleLabel;
+
+    public TopicsDialog(Frame parent, TopicClusterer clusterer, List<Note> notes) {
+        super(parent, "Topics", true);
+        initUI();
+        loadClusters(clusterer, notes);
+    }
+
+    private void initUI() {
+        setLayout(new BorderLayout(10, 10));
+        setSize(750, 500);
+        setLocationRelativeTo(getParent());
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 10, 20));
+        mainPanel.setBackground(Color.WHITE);
+
+        titleLabel = new JLabel("Grouping notes by topic...");
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 20));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        JList<TopicCluster> clusterList = new JList<>(clusterModel);
+        clusterList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        clusterList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                TopicCluster cluster = (TopicCluster) value;
+                String text = cluster.getLabel() + " (" + cluster.getNotes().size() + ")";
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        clusterList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                noteModel.clear();
+                TopicCluster cluster = clusterList.getSelectedValue();
+                if (cluster != null) {
+                    cluster.getNotes().forEach(noteModel::addElement);
+                }
+            }
+        });
+
+        JList<Note> noteList = new JList<>(noteModel);
+        noteList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, ((Note) value).getTitle(), index,
+                    isSelected, cellHasFocus);
+            }
+        });
+
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+            new JScrollPane(clusterList), new JScrollPane(noteList));
+        split.setDividerLocation(320);
+        mainPanel.add(split, BorderLayout.CENTER);
+        add(mainPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.setBackground(Color.WHITE);
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(0, 20, 20, 20));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        buttonPanel.add(closeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // Select the first cluster once they arrive
+        clusterModel.addListDataListener(new javax.swing.event.ListDataListener() {
+            @Override
+            public void intervalAdded(javax.swing.event.ListDataEvent e) {
+                if (clusterList.isSelectionEmpty()) {
+                    clusterList.setSelectedIndex(0);
+                }
+            }
+
+            @Override
+            public void intervalRemoved(javax.swing.event.ListDataEvent e) {}
+
+            @Override
+            public void contentsChanged(javax.swing.event.ListDataEvent e) {}
+        });
+    }
+
+    private void loadClusters(TopicClusterer clusterer, List<Note> notes) {
+        new SwingWorker<List<TopicCluster>, Void>() {
+            @Override
+            protected List<TopicCluster> doInBackground() {
+                clusterer.sync(notes);
+                return clusterer.getClusters(notes);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<TopicCluster> clusters = get();
+                    clusters.forEach(clusterModel::addElement);
+                    titleLabel.setText(clusters.isEmpty()
+                        ? "No topics found"
+                        : clusters.size() + " topics across " + notes.size() + " notes");
+                } catch (Exception e) {
+                    titleLabel.setText("Could not group notes: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+}
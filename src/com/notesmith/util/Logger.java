@@ -2,6 +2,7 @@ package com.notesmith.util;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 /**
  * Simple logging utility.
@@ -12,6 +13,9 @@ public final class Logger {
     private static final DateTimeFormatter formatter = 
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
+    private static final List<String> LEVELS = List.of("INFO", "WARN", "ERROR");
+    private static volatile int minimumLevel = 0;
+    
     private final String className;
     
     private Logger(String className) {
@@ -22,6 +26,18 @@ public final class Logger {
         return new Logger(clazz.getSimpleName());
     }
     
+    /**
+     * Drop messages below the given level (INFO, WARN or ERROR),
+     * e.g. to keep batch tools from logging every search.
+     */
+    public static void setLevel(String level) {
+        int index = LEVELS.indexOf(level.toUpperCase());
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown log level: " + level);
+        }
+        minimumLevel = index;
+    }
+    
     public void info(String message) {
         log("INFO", message);
     }
@@ -40,6 +56,9 @@ public final class Logger {
     }
     
     private void log(String level, String message) {
+        if (LEVELS.indexOf(level) < minimumLevel) {
+            return;
+        }
         String timestamp = LocalDateTime.now().format(formatter);
         System.out.println(String.format("[%s] %s [%s] %s", 
             timestamp, level, className, message));